@@ -0,0 +1,58 @@
+package com.eguglielmelli.benchmarks;
+
+import com.eguglielmelli.config.CacheConfig;
+import com.eguglielmelli.repositories.WorkoutRepository;
+import com.eguglielmelli.service.WorkoutRollupService;
+import com.eguglielmelli.service.WorkoutService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import javax.sql.DataSource;
+
+/**
+ * Just the workout service and what it needs, on an in memory H2 database in Postgres mode
+ * The datasource is built here so none of the Postgres driver settings in application.properties reach H2
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = {R2dbcAutoConfiguration.class, SecurityAutoConfiguration.class,
+        UserDetailsServiceAutoConfiguration.class})
+@EntityScan(basePackages = "com.eguglielmelli.entities")
+@EnableJpaRepositories(basePackageClasses = WorkoutRepository.class)
+@Import({CacheConfig.class, WorkoutService.class, WorkoutRollupService.class})
+class BenchmarkApplication {
+
+    @Bean
+    DataSource dataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        //the database lives as long as the pool keeps a connection open, so every context starts empty
+        dataSource.setJdbcUrl("jdbc:h2:mem:benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH");
+        dataSource.setUsername("sa");
+        return dataSource;
+    }
+
+    /**
+     * Start the context, command line arguments are used because they win over application.properties
+     * @return the running context, close it when the benchmark is done
+     */
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run("--spring.sql.init.mode=never",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+    }
+}
@@ -0,0 +1,60 @@
+package com.eguglielmelli.benchmarks;
+
+import com.eguglielmelli.dtos.WorkoutDto;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Users and workouts for the benchmarks, generated from a fixed seed so every run measures the same data
+ */
+final class BenchmarkData {
+
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+
+    private BenchmarkData() {
+
+    }
+
+    static User user(String username) {
+        return new User("Benchmark User", username, "password", username + "@gmail.com",
+                30, BigDecimal.valueOf(170.0), BigDecimal.valueOf(70.0), false, false);
+    }
+
+    static List<WorkoutDto> workoutDtos(int count, User user) {
+        Random random = new Random(count);
+        List<WorkoutDto> workoutDtos = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            WorkoutDto workoutDto = new WorkoutDto();
+            workoutDto.setName("Workout " + i);
+            workoutDto.setNotes("Felt good, kept a steady pace for most of it");
+            workoutDto.setDate(FIRST_DAY.plusDays(i / 2));
+            workoutDto.setWorkoutType(TYPES[random.nextInt(TYPES.length)]);
+            workoutDto.setDurationInMinutes(20 + random.nextInt(100));
+            workoutDto.setCaloriesBurned(100 + random.nextInt(900));
+            workoutDto.setUser(user);
+            workoutDtos.add(workoutDto);
+        }
+        return workoutDtos;
+    }
+
+    static List<Workout> workouts(int count, User user) {
+        List<Workout> workouts = new ArrayList<>(count);
+        long id = 1;
+        for(WorkoutDto workoutDto : workoutDtos(count, user)) {
+            Workout workout = new Workout(workoutDto.getName(), workoutDto.getNotes(), workoutDto.getDurationInMinutes(),
+                    workoutDto.getDate(), workoutDto.getCaloriesBurned(), workoutDto.getWorkoutType(), user);
+            workout.setId(id++);
+            workouts.add(workout);
+        }
+        return workouts;
+    }
+}
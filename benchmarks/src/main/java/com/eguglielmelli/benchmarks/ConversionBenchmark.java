@@ -0,0 +1,72 @@
+package com.eguglielmelli.benchmarks;
+
+import com.eguglielmelli.entities.HeightConversion;
+import com.eguglielmelli.entities.TenthsConversion;
+import com.eguglielmelli.entities.WeightConversion;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting size values at once with the BigDecimal conversions and with TenthsConversion
+ * Both get the same values, one decimal place, as BigDecimals and as tenths
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private BigDecimal[] values;
+
+    private long[] tenths;
+
+    private long[] converted;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(size);
+        values = new BigDecimal[size];
+        tenths = new long[size];
+        converted = new long[size];
+        for(int i = 0; i < size; i++) {
+            //0.0 to 300.0, covers heights in cm and inches and weights in kg and pounds
+            tenths[i] = random.nextInt(3001);
+            values[i] = TenthsConversion.fromTenths(tenths[i]);
+        }
+    }
+
+    @Benchmark
+    public void centimetersToInchesBigDecimal(Blackhole blackhole) {
+        for(BigDecimal value : values) {
+            blackhole.consume(HeightConversion.centimetersToInches(value));
+        }
+    }
+
+    @Benchmark
+    public long[] centimetersToInchesTenths() {
+        TenthsConversion.CENTIMETERS_TO_INCHES.convert(tenths, converted);
+        return converted;
+    }
+
+    @Benchmark
+    public void poundsToKilosBigDecimal(Blackhole blackhole) {
+        for(BigDecimal value : values) {
+            blackhole.consume(WeightConversion.poundsToKilos(value));
+        }
+    }
+
+    @Benchmark
+    public long[] poundsToKilosTenths() {
+        TenthsConversion.POUNDS_TO_KILOS.convert(tenths, converted);
+        return converted;
+    }
+}
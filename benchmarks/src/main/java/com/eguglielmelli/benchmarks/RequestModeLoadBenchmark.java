@@ -0,0 +1,210 @@
+package com.eguglielmelli.benchmarks;
+
+import com.eguglielmelli.WorkoutApp;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.service.WorkoutService;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput and latency of GET api/users/{userId}/workouts in one request execution mode (see ThreadingConfig)
+ * Not a JMH benchmark, JMH measures a method from a few threads while this keeps thousands of clients waiting on
+ * the server at once. Starts the whole application on an in memory H2 database, every client sends its next
+ * request as soon as the last one is answered, and only requests started after the warmup are counted
+ * Run each mode in its own JVM (see README.md), virtual needs Java 21 or later
+ * Arguments: mode (platform or virtual), clients (5000), warmup seconds (10), measured seconds (30)
+ */
+public final class RequestModeLoadBenchmark {
+
+    private static final int USERS = 100;
+
+    private static final int WORKOUTS_PER_USER = 100;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final String mode;
+
+    private final int clients;
+
+    private final Duration warmup;
+
+    private final Duration measurement;
+
+    private final LongAdder errors = new LongAdder();
+
+    private final Latencies latencies = new Latencies();
+
+    private HttpClient httpClient;
+
+    private List<URI> uris;
+
+    private long measureFrom;
+
+    private long end;
+
+    private CountDownLatch finished;
+
+    private RequestModeLoadBenchmark(String mode, int clients, Duration warmup, Duration measurement) {
+        this.mode = mode;
+        this.clients = clients;
+        this.warmup = warmup;
+        this.measurement = measurement;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "platform";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        Duration warmup = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 10);
+        Duration measurement = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 30);
+        new RequestModeLoadBenchmark(mode, clients, warmup, measurement).run();
+    }
+
+    private void run() throws InterruptedException {
+        try(ConfigurableApplicationContext context = start()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            uris = new ArrayList<>(USERS);
+            for(Long userId : seed(context)) {
+                uris.add(URI.create("http://localhost:" + port + "/api/users/" + userId + "/workouts"));
+            }
+
+            ExecutorService clientExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+            httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .build();
+            long now = System.nanoTime();
+            measureFrom = now + warmup.toNanos();
+            end = measureFrom + measurement.toNanos();
+            finished = new CountDownLatch(clients);
+
+            //clients join over the first half of the warmup, opening every connection at once overflows the accept queue
+            long rampUpNanos = warmup.toNanos() / 2;
+            for(int client = 0; client < clients; client++) {
+                long startAt = now + rampUpNanos * client / clients;
+                long wait = startAt - System.nanoTime();
+                if(wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                next(client);
+            }
+            finished.await();
+            clientExecutor.shutdown();
+            report();
+        }
+    }
+
+    /**
+     * Send the client's next request, or stop it once the measurement is over
+     */
+    private void next(int client) {
+        long start = System.nanoTime();
+        if(start >= end) {
+            finished.countDown();
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(uris.get(client % uris.size())).GET().build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if(start >= measureFrom) {
+                if(error != null || response.statusCode() != 200) {
+                    errors.increment();
+                } else {
+                    latencies.add(System.nanoTime() - start);
+                }
+            }
+            next(client);
+        });
+    }
+
+    private void report() {
+        long[] sorted = latencies.sorted();
+        System.out.printf("mode %s, %d clients, %d s measured, java %s, %d cpus%n", mode, clients,
+                measurement.getSeconds(), Runtime.version(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("requests %d, errors %d, throughput %.1f requests/s%n", sorted.length, errors.sum(),
+                sorted.length / (double) measurement.getSeconds());
+        for(double percentile : PERCENTILES) {
+            System.out.printf("p%s %.1f ms%n", percentile, percentileMillis(sorted, percentile));
+        }
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if(sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * The whole application on H2, command line arguments are used because they win over application.properties
+     */
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(WorkoutApp.class)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run("--server.port=0",
+                        "--app.threading.mode=" + mode,
+                        "--spring.datasource.url=jdbc:h2:mem:load;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                        "--spring.datasource.username=sa",
+                        "--spring.sql.init.mode=never",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--app.search.mode=memory",
+                        "--app.password-hashing.strength=4",
+                        "--management.endpoints.web.exposure.include=health",
+                        "--logging.level.root=WARN");
+    }
+
+    /**
+     * @return ids of the users whose workouts the clients read
+     */
+    private static List<Long> seed(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        WorkoutService workoutService = context.getBean(WorkoutService.class);
+        List<Long> userIds = new ArrayList<>(USERS);
+        for(int i = 0; i < USERS; i++) {
+            User user = userRepository.save(BenchmarkData.user("load_user_" + i));
+            workoutService.importWorkouts(user.getId(), BenchmarkData.workoutDtos(WORKOUTS_PER_USER, user));
+            userIds.add(user.getId());
+        }
+        return userIds;
+    }
+
+    /**
+     * Response times in nanoseconds from every client thread
+     */
+    private static final class Latencies {
+
+        private long[] values = new long[1 << 16];
+
+        private int size;
+
+        synchronized void add(long nanos) {
+            if(size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.eguglielmelli.benchmarks;
+
+import com.eguglielmelli.entities.Workout;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a list of workouts as JSON, the way the workout endpoints return them
+ * The mapper is built with the same builder and defaults spring boot uses for its own mapper
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkoutSerializationBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int workouts;
+
+    private ObjectMapper objectMapper;
+
+    private List<Workout> workoutList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        workoutList = BenchmarkData.workouts(workouts, BenchmarkData.user("writer"));
+    }
+
+    @Benchmark
+    public byte[] writeWorkouts() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(workoutList);
+    }
+}
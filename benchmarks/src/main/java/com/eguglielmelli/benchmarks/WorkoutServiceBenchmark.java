@@ -0,0 +1,89 @@
+package com.eguglielmelli.benchmarks;
+
+import com.eguglielmelli.dtos.WorkoutDto;
+import com.eguglielmelli.dtos.WorkoutPage;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.service.WorkoutService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WorkoutService write and read paths, through the spring proxies (transactions, caches) and JPA
+ * workouts is how many workouts the reading user already has
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkoutServiceBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int workouts;
+
+    private ConfigurableApplicationContext context;
+
+    private WorkoutService workoutService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private User reader;
+
+    private User writer;
+
+    private WorkoutDto newWorkout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        workoutService = context.getBean(WorkoutService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        reader = userRepository.save(BenchmarkData.user("reader"));
+        writer = userRepository.save(BenchmarkData.user("writer"));
+
+        List<WorkoutDto> history = BenchmarkData.workoutDtos(workouts, reader);
+        for(int from = 0; from < history.size(); from += WorkoutService.MAX_IMPORT_SIZE) {
+            int to = Math.min(from + WorkoutService.MAX_IMPORT_SIZE, history.size());
+            workoutService.importWorkouts(reader.getId(), history.subList(from, to));
+        }
+        newWorkout = BenchmarkData.workoutDtos(1, writer).get(0);
+    }
+
+    /**
+     * Take the workouts written during the last iteration out again so every iteration inserts into the same table size
+     */
+    @Setup(Level.Iteration)
+    public void clearWrittenWorkouts() {
+        jdbcTemplate.update("delete from workout_daily_rollups where user_id = ?", writer.getId());
+        jdbcTemplate.update("delete from workouts where user_id = ?", writer.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Workout createWorkout() {
+        return workoutService.createWorkout(newWorkout);
+    }
+
+    @Benchmark
+    public List<Workout> getUsersWorkouts() {
+        return workoutService.getUsersWorkouts(reader.getId());
+    }
+
+    @Benchmark
+    public WorkoutPage getUsersWorkoutsFirstPage() {
+        return workoutService.getUsersWorkouts(reader.getId(), null, null, null, null, 20);
+    }
+}
@@ -0,0 +1,62 @@
+package com.eguglielmelli.config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Picks the bcrypt work factor for this machine at startup
+ * Every step up in strength doubles the cost of a hash, so we time one hash at the minimum strength
+ * and take the highest strength whose projected time still fits the target
+ */
+final class BCryptCalibration {
+
+    private static final Logger log = LoggerFactory.getLogger(BCryptCalibration.class);
+
+    //bcrypt itself only accepts strengths from 4 to 31
+    static final int MAX_STRENGTH = 31;
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+
+    private BCryptCalibration() {
+
+    }
+
+    /**
+     * Time a few hashes at the minimum strength on this machine and pick the strength from that
+     * @param minStrength never go below this, even on a slow machine
+     * @param targetMillis how long one hash should take at most
+     * @return the chosen strength
+     */
+    static int calibrate(int minStrength, long targetMillis) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        //first hash warms up the jit, keep the fastest of the rest to filter out noise
+        encoder.encode(SAMPLE_PASSWORD);
+        long fastestNanos = Long.MAX_VALUE;
+        for(int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            fastestNanos = Math.min(fastestNanos, System.nanoTime() - start);
+        }
+        double baseMillis = fastestNanos / 1_000_000.0;
+        int strength = pickStrength(minStrength, baseMillis, targetMillis);
+        log.info("bcrypt strength {} picked for a {} ms target, strength {} took {} ms on this machine",
+                strength, targetMillis, minStrength, String.format("%.1f", baseMillis));
+        return strength;
+    }
+
+    /**
+     * @param minStrength strength the base time was measured at, also the lowest strength returned
+     * @param baseMillis time of one hash at minStrength
+     * @param targetMillis how long one hash should take at most
+     * @return highest strength whose projected hash time is within the target
+     */
+    static int pickStrength(int minStrength, double baseMillis, long targetMillis) {
+        int strength = minStrength;
+        double projectedMillis = baseMillis;
+        while(strength < MAX_STRENGTH && projectedMillis * 2 <= targetMillis) {
+            strength++;
+            projectedMillis *= 2;
+        }
+        return strength;
+    }
+}
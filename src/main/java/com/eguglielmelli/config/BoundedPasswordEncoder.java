@@ -0,0 +1,112 @@
+package com.eguglielmelli.config;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the expensive part of password hashing (encode and matches) on a small dedicated pool
+ * A hash costs around 100 ms of cpu, so a burst of sign ups would otherwise tie up every request thread
+ * and cpu core, with a fixed number of threads and a bounded queue the rest of the api keeps its share
+ * When both are full the caller gets a PasswordHashingBusyException right away instead of waiting
+ *
+ * Metrics: executor.* gauges tagged name=password.hashing (queued, active, completed...),
+ * password.hash timer tagged by operation, password.hashing.rejected counter
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private static final String POOL_NAME = "password.hashing";
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer encodeTimer;
+
+    private final Timer matchesTimer;
+
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        if(threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Password hashing threads and queue capacity must be at least 1");
+        }
+        this.delegate = delegate;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        new ExecutorServiceMetrics(executor, POOL_NAME, Tags.empty()).bindTo(meterRegistry);
+        this.encodeTimer = Timer.builder("password.hash").tag("operation", "encode")
+                .description("Time spent hashing a password, not counting time in the queue")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hash").tag("operation", "matches")
+                .description("Time spent hashing a password, not counting time in the queue")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("password.hashing.rejected")
+                .description("Hash requests turned away because the pool and its queue were full")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        //only inspects the stored hash, cheap enough to run on the caller's thread
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * Hand the work to the pool and wait for it, the caller still blocks but no longer burns its own cpu
+     * @param timer records how long the hash itself took
+     * @param work the hashing call
+     * @return result of the work
+     */
+    private <T> T run(Timer timer, Callable<T> work) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.recordCallable(work));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("Too many password requests right now, try again shortly");
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the password hash", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
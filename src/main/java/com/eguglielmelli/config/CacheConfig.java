@@ -0,0 +1,62 @@
+package com.eguglielmelli.config;
+import com.eguglielmelli.service.WorkoutSeries;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * In process caches for the lookups that dominate our read traffic
+ * Every cache is bounded in size and entries expire, so a missed eviction can only serve stale data for a while
+ * Evictions are delayed until the surrounding transaction commits, otherwise a concurrent read
+ * could put the old value back before the new one is visible in the database
+ * The workout series hold a user's whole history and differ a lot in size, that cache is bounded by the
+ * bytes of its arrays instead of by the number of entries
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String USERS_CACHE = "users";
+
+    public static final String WORKOUTS_CACHE = "workouts";
+
+    public static final String USER_EXISTS_CACHE = "userExists";
+
+    public static final String WORKOUT_SERIES_CACHE = "workoutSeries";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${app.cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${app.cache.expire-after-write:10m}") Duration expireAfterWrite,
+                                     @Value("${app.cache.workout-series.maximum-weight:64MB}") DataSize seriesMaximumWeight) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(USERS_CACHE, WORKOUTS_CACHE, USER_EXISTS_CACHE);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats());
+        cacheManager.registerCustomCache(WORKOUT_SERIES_CACHE, Caffeine.newBuilder()
+                .maximumWeight(seriesMaximumWeight.toBytes())
+                .weigher(CacheConfig::seriesWeight)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build());
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    /**
+     * Weight of a cached series is the heap its arrays take, anything else the cache may hold counts as 1
+     */
+    static int seriesWeight(Object key, Object value) {
+        if(value instanceof WorkoutSeries) {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(1, ((WorkoutSeries) value).sizeInBytes()));
+        }
+        return 1;
+    }
+}
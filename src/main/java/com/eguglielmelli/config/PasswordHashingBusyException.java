@@ -0,0 +1,11 @@
+package com.eguglielmelli.config;
+
+/**
+ * Thrown when the password hashing pool and its queue are full, the request should be retried later
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,75 @@
+package com.eguglielmelli.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Answers 429 with Retry-After, like RestExceptionHandler, when the password hashing pool is full while
+ * HTTP Basic credentials are checked. That happens in the filter chain before any controller so the
+ * exception handler never sees it
+ * BasicAuthenticationFilter lets the exception through as is when it comes from the password check, and
+ * wraps it in an AuthenticationException when the username is unknown, so this is both a filter placed
+ * in front of it and its entry point. Every other failed login gets the usual 401 from the delegate
+ */
+public class PasswordHashingBusyHandler extends OncePerRequestFilter implements AuthenticationEntryPoint {
+
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    private final AuthenticationEntryPoint delegate;
+
+    public PasswordHashingBusyHandler(String realmName) {
+        BasicAuthenticationEntryPoint basicEntryPoint = new BasicAuthenticationEntryPoint();
+        basicEntryPoint.setRealmName(realmName);
+        this.delegate = basicEntryPoint;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } catch (PasswordHashingBusyException e) {
+            respondBusy(response, e);
+        }
+    }
+
+    @Override
+    public void commence(HttpServletRequest request, HttpServletResponse response,
+                         AuthenticationException authException) throws IOException, ServletException {
+        PasswordHashingBusyException busy = findBusyCause(authException);
+        if(busy != null) {
+            respondBusy(response, busy);
+            return;
+        }
+        delegate.commence(request, response, authException);
+    }
+
+    private static PasswordHashingBusyException findBusyCause(Throwable throwable) {
+        for(Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if(cause instanceof PasswordHashingBusyException) {
+                return (PasswordHashingBusyException) cause;
+            }
+        }
+        return null;
+    }
+
+    private static void respondBusy(HttpServletResponse response, PasswordHashingBusyException e) throws IOException {
+        if(response.isCommitted()) {
+            throw e;
+        }
+        response.resetBuffer();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.getWriter().write(e.getMessage());
+    }
+}
@@ -0,0 +1,51 @@
+package com.eguglielmelli.config;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Non blocking connection pool for the reactive read api (ReactiveWorkoutController)
+ * Only created when app.reactive.enabled=true, writes and every other read keep using JPA
+ * The pool is deliberately not exposed as a ConnectionFactory bean, spring boot would otherwise
+ * set up an R2DBC transaction manager next to the JPA one and run the schema script over R2DBC
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+public class ReactiveDatabaseConfig implements DisposableBean {
+
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient(@Value("${app.reactive.url}") String url,
+                                                 @Value("${app.reactive.username:}") String username,
+                                                 @Value("${app.reactive.password:}") String password,
+                                                 @Value("${app.reactive.max-connections:20}") int maxConnections) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if(!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if(!password.isEmpty()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .initialSize(1)
+                .maxSize(maxConnections)
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        if(connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
@@ -1,27 +1,85 @@
 package com.eguglielmelli.config;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
+    private static final String BCRYPT_ID = "bcrypt";
+
+    //spring security's default realm, what clients saw before the entry point was customized
+    private static final String REALM_NAME = "Realm";
+
+    private final boolean basicAuthEnabled;
+
+    public SecurityConfig(@Value("${app.security.basic-auth.enabled:false}") boolean basicAuthEnabled) {
+        this.basicAuthEnabled = basicAuthEnabled;
+    }
+
+    /**
+     * BCrypt behind a DelegatingPasswordEncoder, run on a bounded pool of its own (see BoundedPasswordEncoder)
+     * The strength is calibrated at startup to the target time unless it is set explicitly
+     * New hashes are stored as {bcrypt}..., hashes from before this change have no prefix and are still
+     * matched as plain bcrypt. Either kind is rehashed when the user next logs in with HTTP Basic if it is
+     * weaker than the current strength (see UserAuthenticationService and configure())
+     * By default the pool gets half the cores so hashing can never take the whole machine
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.password-hashing.threads:0}") int threads,
+                                           @Value("${app.password-hashing.queue-capacity:50}") int queueCapacity,
+                                           @Value("${app.password-hashing.strength:0}") int strength,
+                                           @Value("${app.password-hashing.min-strength:10}") int minStrength,
+                                           @Value("${app.password-hashing.target-millis:250}") long targetMillis,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        int bcryptStrength = strength > 0 ? strength : BCryptCalibration.calibrate(minStrength, targetMillis);
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT_ID, bcrypt);
+        DelegatingPasswordEncoder delegatingPasswordEncoder = new DelegatingPasswordEncoder(BCRYPT_ID, encoders);
+        delegatingPasswordEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(delegatingPasswordEncoder, poolSize, queueCapacity,
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
     }
 
+    /**
+     * Every endpoint is open
+     * HTTP Basic is off unless app.security.basic-auth.enabled is set. When it is on, credentials stay optional,
+     * but a request that sends them pays a full password check on the hashing pool, wrong credentials get
+     * a 401 even on an open endpoint, and a full pool gets a 429 with Retry-After (see PasswordHashingBusyHandler)
+     * That check is also the only place weak password hashes are upgraded, with Basic off they are not
+     */
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http
                 .csrf().disable()
                 .authorizeRequests()
                 .anyRequest().permitAll(); // Allow access to all endpoints
+        if(basicAuthEnabled) {
+            PasswordHashingBusyHandler passwordHashingBusyHandler = new PasswordHashingBusyHandler(REALM_NAME);
+            http
+                    .addFilterBefore(passwordHashingBusyHandler, BasicAuthenticationFilter.class)
+                    .httpBasic()
+                    .realmName(REALM_NAME)
+                    .authenticationEntryPoint(passwordHashingBusyHandler);
+        }
     }
 }
\ No newline at end of file
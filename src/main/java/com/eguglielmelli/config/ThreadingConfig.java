@@ -0,0 +1,60 @@
+package com.eguglielmelli.config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Chooses which threads run requests and @Async work, set with app.threading.mode
+ * platform (the default) keeps Tomcat's fixed thread pool and spring boot's task executor
+ * virtual starts a virtual thread per request and per @Async call, a request blocked on a slow query
+ * then no longer holds one of a few hundred pool threads. Needs Java 21 or later at runtime
+ * Database concurrency is capped by the Hikari pool in both modes, it is sized on its own
+ * (spring.datasource.hikari.maximum-pool-size)
+ * @Async is only enabled in virtual mode, platform mode leaves it as it was (off)
+ */
+@Configuration
+public class ThreadingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    private static final String MODE_PROPERTY = "app.threading.mode";
+
+    /**
+     * Hands Tomcat an executor that runs every request on its own virtual thread,
+     * server.tomcat.threads.* no longer applies once Tomcat has an external executor
+     */
+    @Bean
+    @ConditionalOnProperty(name = MODE_PROPERTY, havingValue = "virtual")
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadRequestExecutor() {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("request-");
+        log.info("Requests run on virtual threads");
+        return factory -> factory.addProtocolHandlerCustomizers(protocolHandler -> protocolHandler.setExecutor(executor));
+    }
+
+    /**
+     * Turns on @Async and replaces spring boot's applicationTaskExecutor, used for @Async methods
+     * and async mvc requests, in virtual mode only
+     */
+    @Configuration
+    @EnableAsync
+    @ConditionalOnProperty(name = MODE_PROPERTY, havingValue = "virtual")
+    static class VirtualThreadAsyncConfig {
+
+        @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+                AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+        public AsyncTaskExecutor virtualThreadTaskExecutor() {
+            return new TaskExecutorAdapter(VirtualThreads.newThreadPerTaskExecutor("async-"));
+        }
+    }
+}
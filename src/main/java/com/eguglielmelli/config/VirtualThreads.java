@@ -0,0 +1,51 @@
+package com.eguglielmelli.config;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual thread executors without compiling against the Java 21 api
+ * The project still builds for Java 11, so the virtual thread builder is looked up by reflection
+ * and only the virtual execution mode needs a newer runtime
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+
+    }
+
+    /**
+     * @return true if the running jvm can create virtual threads
+     */
+    static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Executor that starts a new named virtual thread for every task
+     * @param namePrefix thread names are this prefix followed by a counter
+     * @return the executor
+     * @throws IllegalStateException if the running jvm has no virtual threads
+     */
+    static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if(!isSupported()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, this jvm is "
+                    + Runtime.version());
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+}
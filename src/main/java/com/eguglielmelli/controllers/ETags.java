@@ -0,0 +1,72 @@
+package com.eguglielmelli.controllers;
+
+import com.eguglielmelli.dtos.ResourceVersion;
+
+/**
+ * Entity versions travel as ETags, a GET returns the version in the ETag header and updates
+ * send it back in If-Match so stale updates can be rejected
+ * A workout's ETag is "version.userVersion" since the workout is returned with its user, only the
+ * part before the dot is compared on updates
+ */
+final class ETags {
+
+    //never a real version, so an If-Match we cannot read fails the check instead of being ignored
+    private static final long UNKNOWN_VERSION = -1L;
+
+    private ETags() {
+
+    }
+
+    /**
+     * @param version entity version
+     * @return the ETag value for that version, quoted as the header requires
+     */
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param version entity version
+     * @param userVersion version of the user embedded in the entity
+     * @return the ETag value for both versions
+     */
+    static String of(long version, long userVersion) {
+        return "\"" + version + "." + userVersion + "\"";
+    }
+
+    /**
+     * @param version version read without loading the entity
+     * @return the same ETag the entity itself would get
+     */
+    static String of(ResourceVersion version) {
+        Long userVersion = version.getUserVersion();
+        return userVersion == null ? of(version.getVersion()) : of(version.getVersion(), userVersion);
+    }
+
+    /**
+     * Read the version out of an If-Match header
+     * @param ifMatch header value, may be null
+     * @return the version, or null when the header is missing or "*" (any version)
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if(ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if(value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if(value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        int userVersionStart = value.indexOf('.');
+        if(userVersionStart >= 0) {
+            value = value.substring(0, userVersionStart);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return UNKNOWN_VERSION;
+        }
+    }
+}
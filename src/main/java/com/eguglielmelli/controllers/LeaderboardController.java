@@ -0,0 +1,43 @@
+package com.eguglielmelli.controllers;
+import com.eguglielmelli.dtos.LeaderboardEntry;
+import com.eguglielmelli.dtos.WorkoutLeaderboard;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.service.WorkoutLeaderboardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * Weekly leaderboards across all users, served from WorkoutLeaderboardService
+ */
+@RestController
+@RequestMapping("api/leaderboards/{workoutType}")
+public class LeaderboardController {
+
+    private final WorkoutLeaderboardService workoutLeaderboardService;
+
+    @Autowired
+    public LeaderboardController(WorkoutLeaderboardService workoutLeaderboardService) {
+        this.workoutLeaderboardService = workoutLeaderboardService;
+    }
+
+    @GetMapping
+    public ResponseEntity<WorkoutLeaderboard> getLeaderboard(@PathVariable WorkoutType workoutType,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate week,
+                                                             @RequestParam(defaultValue = "100") int limit) {
+        WorkoutLeaderboard leaderboard = workoutLeaderboardService.getLeaderboard(workoutType, week, limit);
+        return new ResponseEntity<>(leaderboard, HttpStatus.OK);
+    }
+
+    @GetMapping("/users/{userId}")
+    public ResponseEntity<LeaderboardEntry> getUserRank(@PathVariable WorkoutType workoutType,
+                                                        @PathVariable Long userId,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate week) {
+        LeaderboardEntry entry = workoutLeaderboardService.getUserRank(userId, workoutType, week);
+        return new ResponseEntity<>(entry, HttpStatus.OK);
+    }
+}
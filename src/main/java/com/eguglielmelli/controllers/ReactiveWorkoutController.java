@@ -0,0 +1,55 @@
+package com.eguglielmelli.controllers;
+
+import com.eguglielmelli.dtos.WorkoutStats;
+import com.eguglielmelli.dtos.WorkoutSummary;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.service.ReactiveWorkoutService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Read only, non blocking counterpart of WorkoutController backed by R2DBC
+ * Only registered when app.reactive.enabled=true, writes stay on WorkoutController
+ * The workout list is streamed as newline delimited json, one workout is requested from the
+ * database stream for every one written to the client
+ */
+@RestController
+@RequestMapping("api/reactive/users/{userId}/workouts")
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+public class ReactiveWorkoutController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ReactiveWorkoutService reactiveWorkoutService;
+
+    @Autowired
+    public ReactiveWorkoutController(ReactiveWorkoutService reactiveWorkoutService) {
+        this.reactiveWorkoutService = reactiveWorkoutService;
+    }
+
+    @GetMapping(produces = NDJSON)
+    public Flux<WorkoutSummary> getUsersWorkouts(@PathVariable Long userId,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                 @RequestParam(required = false) WorkoutType type) {
+        return reactiveWorkoutService.getUsersWorkouts(userId, from, to, type);
+    }
+
+    @GetMapping("/{id}/info")
+    public Mono<WorkoutSummary> getWorkout(@PathVariable Long userId, @PathVariable Long id) {
+        return reactiveWorkoutService.getWorkoutInfo(userId, id);
+    }
+
+    @GetMapping("/stats")
+    public Mono<WorkoutStats> getWorkoutStats(@PathVariable Long userId,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return reactiveWorkoutService.getWorkoutStats(userId, from, to);
+    }
+}
@@ -0,0 +1,46 @@
+package com.eguglielmelli.controllers;
+import com.eguglielmelli.config.PasswordHashingBusyException;
+import com.eguglielmelli.service.VersionMismatchException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns concurrent modification and overload failures into responses the client can act on
+ */
+@RestControllerAdvice
+public class RestExceptionHandler {
+
+    /**
+     * The If-Match version is not the current one, the client should reload and retry
+     * The current version is sent back as the ETag
+     */
+    @ExceptionHandler(VersionMismatchException.class)
+    public ResponseEntity<String> handleVersionMismatch(VersionMismatchException e) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .eTag(ETags.of(e.getCurrentVersion()))
+                .body(e.getMessage());
+    }
+
+    /**
+     * Another request updated the same row between our read and our write
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("The resource was modified by another request, reload it and try again");
+    }
+
+    /**
+     * Password hashing is saturated, the client should back off and retry
+     */
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<String> handlePasswordHashingBusy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
+    }
+}
@@ -1,12 +1,16 @@
 package com.eguglielmelli.controllers;
+import com.eguglielmelli.dtos.ResourceVersion;
 import com.eguglielmelli.dtos.UserDto;
+import com.eguglielmelli.dtos.UserPatchDto;
 import com.eguglielmelli.dtos.UserUpdateDto;
 import com.eguglielmelli.entities.User;
 import com.eguglielmelli.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import javax.validation.Valid;
 import java.util.Optional;
 
@@ -42,14 +46,33 @@ public class UserController {
     }
 
     @PutMapping("/{id}/update")
-    public ResponseEntity<User> updateUserInfo(@PathVariable Long id, @RequestBody UserUpdateDto userUpdateDto) {
-        boolean updated = userService.updateUserInfo(id, userUpdateDto);
+    public ResponseEntity<User> updateUserInfo(@PathVariable Long id, @RequestBody UserUpdateDto userUpdateDto,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        boolean updated = userService.updateUserInfo(id, userUpdateDto, ETags.parseIfMatch(ifMatch));
         return updated ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
     }
 
+    @PatchMapping("/{id}/update")
+    public ResponseEntity<User> patchUser(@PathVariable Long id, @RequestBody @Valid UserPatchDto userPatchDto,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        boolean found = userService.patchUser(id, userPatchDto, ETags.parseIfMatch(ifMatch));
+        return found ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
     @GetMapping("/{id}/info")
-    public ResponseEntity<?> getUserInfo(@PathVariable Long id) {
-        Optional<User> foundUser = userService.getUserInfo(id);
-        return new ResponseEntity<>(foundUser,HttpStatus.OK);
+    public ResponseEntity<User> getUserInfo(@PathVariable Long id, WebRequest request) {
+        //clients poll this, answer 304 from the version alone when their copy is still current
+        Optional<ResourceVersion> foundVersion = userService.getUserVersion(id);
+        if(foundVersion.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ResourceVersion version = foundVersion.get();
+        if(request.checkNotModified(ETags.of(version.getVersion()), version.getLastModified())) {
+            return null;
+        }
+        //the user can be deleted between the version check and this read
+        return userService.getUserInfo(id)
+                .map(user -> ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(user))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 }
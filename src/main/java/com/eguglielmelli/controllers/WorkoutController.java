@@ -1,14 +1,32 @@
 package com.eguglielmelli.controllers;
+import com.eguglielmelli.dtos.ResourceVersion;
 import com.eguglielmelli.dtos.WorkoutDto;
+import com.eguglielmelli.dtos.WorkoutImportResult;
+import com.eguglielmelli.dtos.WorkoutPage;
+import com.eguglielmelli.dtos.WorkoutPatchDto;
+import com.eguglielmelli.dtos.WorkoutRecords;
+import com.eguglielmelli.dtos.WorkoutSearchPage;
+import com.eguglielmelli.dtos.WorkoutStats;
 import com.eguglielmelli.dtos.WorkoutUpdateDto;
 import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.service.WorkoutAnalyticsService;
+import com.eguglielmelli.service.WorkoutExportService;
+import com.eguglielmelli.service.WorkoutRecordsService;
+import com.eguglielmelli.service.WorkoutSearchService;
 import com.eguglielmelli.service.WorkoutService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -18,11 +36,27 @@ import java.util.List;
 @RequestMapping("api/users/{userId}/workouts")
 public class WorkoutController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final WorkoutService workoutService;
 
+    private final WorkoutExportService workoutExportService;
+
+    private final WorkoutSearchService workoutSearchService;
+
+    private final WorkoutAnalyticsService workoutAnalyticsService;
+
+    private final WorkoutRecordsService workoutRecordsService;
+
     @Autowired
-    public WorkoutController(WorkoutService workoutService) {
+    public WorkoutController(WorkoutService workoutService, WorkoutExportService workoutExportService,
+                             WorkoutSearchService workoutSearchService, WorkoutAnalyticsService workoutAnalyticsService,
+                             WorkoutRecordsService workoutRecordsService) {
         this.workoutService = workoutService;
+        this.workoutExportService = workoutExportService;
+        this.workoutSearchService = workoutSearchService;
+        this.workoutAnalyticsService = workoutAnalyticsService;
+        this.workoutRecordsService = workoutRecordsService;
     }
 
     @PostMapping("/")
@@ -31,9 +65,15 @@ public class WorkoutController {
         return new ResponseEntity<>(workout, HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<WorkoutImportResult> importWorkouts(@PathVariable Long userId, @RequestBody List<WorkoutDto> workoutDtos) {
+        WorkoutImportResult result = workoutService.importWorkouts(userId, workoutDtos);
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
     @DeleteMapping("/{id}/delete")
-    public ResponseEntity<Void> deleteWorkout(@PathVariable Long id) {
-        boolean deleted = workoutService.deleteWorkout(id);
+    public ResponseEntity<Void> deleteWorkout(@PathVariable Long userId, @PathVariable Long id) {
+        boolean deleted = workoutService.deleteWorkout(userId, id);
         if(deleted) {
             return ResponseEntity.ok().build();
         }else {
@@ -42,22 +82,77 @@ public class WorkoutController {
     }
 
     @PutMapping("/{id}/update")
-    public ResponseEntity<Workout> updateWorkout(@PathVariable Long id, WorkoutUpdateDto workoutUpdateDto) {
-        boolean updatedWorkout = workoutService.updateWorkoutInfo(id, workoutUpdateDto);
+    public ResponseEntity<Workout> updateWorkout(@PathVariable Long id, WorkoutUpdateDto workoutUpdateDto,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        boolean updatedWorkout = workoutService.updateWorkoutInfo(id, workoutUpdateDto, ETags.parseIfMatch(ifMatch));
         return updatedWorkout ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
     }
 
+    @PatchMapping("/{id}/update")
+    public ResponseEntity<Void> patchWorkout(@PathVariable Long userId, @PathVariable Long id,
+                                             @RequestBody @Valid WorkoutPatchDto workoutPatchDto,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        boolean found = workoutService.patchWorkout(userId, id, workoutPatchDto, ETags.parseIfMatch(ifMatch));
+        return found ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
     @GetMapping("/{id}/info")
-    public ResponseEntity<Workout> getWorkout(@PathVariable Long id) {
+    public ResponseEntity<Workout> getWorkout(@PathVariable Long id, WebRequest request) {
+        //clients poll this, answer 304 from the version alone when their copy is still current
+        ResourceVersion version = workoutService.getWorkoutVersion(id);
+        if(request.checkNotModified(ETags.of(version), version.getLastModified())) {
+            return null;
+        }
         Workout foundWorkout = workoutService.getWorkoutInfo(id);
-        return new ResponseEntity<>(foundWorkout,HttpStatus.OK);
+        return ResponseEntity.ok().eTag(ETags.of(foundWorkout.getVersion(), foundWorkout.getUser().getVersion()))
+                .body(foundWorkout);
     }
 
     @GetMapping
-    public ResponseEntity<List<Workout>> getUsersWorkouts(@PathVariable Long userId) {
-        List<Workout> workouts = workoutService.getUsersWorkouts(userId);
+    public ResponseEntity<WorkoutPage> getUsersWorkouts(@PathVariable Long userId,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                        @RequestParam(required = false) WorkoutType type,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "20") int limit) {
+        WorkoutPage workouts = workoutService.getUsersWorkouts(userId, from, to, type, cursor, limit);
         return new ResponseEntity<>(workouts, HttpStatus.OK);
     }
 
+    @GetMapping("/stats")
+    public ResponseEntity<WorkoutStats> getWorkoutStats(@PathVariable Long userId,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        WorkoutStats stats = workoutService.getWorkoutStats(userId, from, to);
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
 
+    @GetMapping("/analytics")
+    public ResponseEntity<WorkoutStats> getWorkoutAnalytics(@PathVariable Long userId,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        WorkoutStats stats = workoutAnalyticsService.getWorkoutStats(userId, from, to);
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
+    @GetMapping("/records")
+    public ResponseEntity<WorkoutRecords> getWorkoutRecords(@PathVariable Long userId) {
+        WorkoutRecords records = workoutRecordsService.getRecords(userId);
+        return new ResponseEntity<>(records, HttpStatus.OK);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<WorkoutSearchPage> searchWorkouts(@PathVariable Long userId,
+                                                            @RequestParam("q") String query,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "20") int limit) {
+        WorkoutSearchPage page = workoutSearchService.searchWorkouts(userId, query, cursor, limit);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    @GetMapping("/export")
+    public void exportWorkouts(@PathVariable Long userId, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        workoutExportService.exportWorkouts(userId, response.getOutputStream());
+    }
 }
@@ -0,0 +1,32 @@
+package com.eguglielmelli.dtos;
+
+/**
+ * One user's place on a weekly leaderboard, rank starts at 1
+ * A user without minutes that week has rank 0
+ */
+public class LeaderboardEntry {
+
+    private final int rank;
+
+    private final Long userId;
+
+    private final long totalMinutes;
+
+    public LeaderboardEntry(int rank, Long userId, long totalMinutes) {
+        this.rank = rank;
+        this.userId = userId;
+        this.totalMinutes = totalMinutes;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getTotalMinutes() {
+        return totalMinutes;
+    }
+}
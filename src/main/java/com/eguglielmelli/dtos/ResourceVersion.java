@@ -0,0 +1,57 @@
+package com.eguglielmelli.dtos;
+
+import java.time.Instant;
+
+/**
+ * Version and last update time of a user or workout, enough to answer a conditional GET
+ * without reading the rest of the row
+ * A workout is returned with its user embedded, so its version also carries the version of that user
+ */
+public class ResourceVersion {
+
+    private final long version;
+
+    private final Instant updatedAt;
+
+    private final Long userVersion;
+
+    private final Instant userUpdatedAt;
+
+    public ResourceVersion(Long version, Instant updatedAt) {
+        this(version, updatedAt, null, null);
+    }
+
+    public ResourceVersion(Long version, Instant updatedAt, Long userVersion, Instant userUpdatedAt) {
+        this.version = version;
+        this.updatedAt = updatedAt;
+        this.userVersion = userVersion;
+        this.userUpdatedAt = userUpdatedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * @return version of the embedded user, null when the resource has none
+     */
+    public Long getUserVersion() {
+        return userVersion;
+    }
+
+    /**
+     * @return last update time in epoch millis, the later of the resource and its user,
+     * -1 for rows written before updated_at existed
+     */
+    public long getLastModified() {
+        Instant lastModified = updatedAt;
+        if(userUpdatedAt != null && (lastModified == null || userUpdatedAt.isAfter(lastModified))) {
+            lastModified = userUpdatedAt;
+        }
+        return lastModified == null ? -1 : lastModified.toEpochMilli();
+    }
+}
@@ -0,0 +1,95 @@
+package com.eguglielmelli.dtos;
+import javax.validation.constraints.*;
+import java.math.BigDecimal;
+
+/**
+ * Used for PATCH requests on a user, only the fields that are sent are changed
+ * Every field is boxed so a missing field (null) can be told apart from a zero or false
+ */
+public class UserPatchDto {
+
+    @Email
+    @Size(min = 1, message = "Email must not be empty")
+    private String email;
+
+    @Size(min = 1, message = "Password must not be empty")
+    private String password;
+
+    @Size(min = 1, message = "Username must not be empty")
+    private String username;
+
+    private Boolean metricSystem;
+
+    @Min(0)
+    private Integer age;
+
+    @DecimalMin("0.0")
+    private BigDecimal weight;
+
+    @DecimalMin("0.0")
+    private BigDecimal height;
+
+    /**
+     * @return true if the request does not contain any field to change
+     */
+    public boolean isEmpty() {
+        return email == null && password == null && username == null && metricSystem == null
+                && age == null && weight == null && height == null;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Boolean getMetricSystem() {
+        return metricSystem;
+    }
+
+    public void setMetricSystem(Boolean metricSystem) {
+        this.metricSystem = metricSystem;
+    }
+
+    public Integer getAge() {
+        return age;
+    }
+
+    public void setAge(Integer age) {
+        this.age = age;
+    }
+
+    public BigDecimal getWeight() {
+        return weight;
+    }
+
+    public void setWeight(BigDecimal weight) {
+        this.weight = weight;
+    }
+
+    public BigDecimal getHeight() {
+        return height;
+    }
+
+    public void setHeight(BigDecimal height) {
+        this.height = height;
+    }
+}
@@ -0,0 +1,62 @@
+package com.eguglielmelli.dtos;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last workout on a page, the next page starts right after it
+ * Workouts are ordered by (date, id) so those two values are all we need to continue
+ * Clients only ever see the encoded string, they should not try to build one themselves
+ */
+public class WorkoutCursor {
+
+    private final LocalDate date;
+    private final Long id;
+
+    public WorkoutCursor(LocalDate date, Long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Turn the cursor into the opaque string that is sent back to the client
+     * @return url safe cursor string
+     */
+    public String encode() {
+        String raw = date + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse a cursor string previously handed out by encode()
+     * @param cursor string sent by the client
+     * @return the decoded cursor
+     */
+    public static WorkoutCursor decode(String cursor) {
+        if(cursor == null || cursor.isEmpty()) {
+            throw new IllegalArgumentException("Cursor must not be null or empty");
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if(separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            LocalDate date = LocalDate.parse(raw.substring(0, separator));
+            Long id = Long.parseLong(raw.substring(separator + 1));
+            return new WorkoutCursor(date, id);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.eguglielmelli.dtos;
+
+import java.util.List;
+
+/**
+ * Result of a bulk workout import, how many workouts were saved and
+ * which items were rejected (by their position in the request) and why
+ */
+public class WorkoutImportResult {
+
+    private final int created;
+
+    private final List<ItemError> errors;
+
+    public WorkoutImportResult(int created, List<ItemError> errors) {
+        this.created = created;
+        this.errors = errors;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public List<ItemError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * A single workout from the request that failed validation
+     */
+    public static class ItemError {
+
+        private final int index;
+
+        private final String message;
+
+        public ItemError(int index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
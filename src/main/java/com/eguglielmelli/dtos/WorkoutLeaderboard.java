@@ -0,0 +1,44 @@
+package com.eguglielmelli.dtos;
+
+import com.eguglielmelli.entities.WorkoutType;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Top users by minutes of one workout type for one week, the week starts on monday
+ */
+public class WorkoutLeaderboard {
+
+    private final LocalDate weekStart;
+
+    private final WorkoutType workoutType;
+
+    private final int totalUsers;
+
+    private final List<LeaderboardEntry> entries;
+
+    public WorkoutLeaderboard(LocalDate weekStart, WorkoutType workoutType, int totalUsers,
+                              List<LeaderboardEntry> entries) {
+        this.weekStart = weekStart;
+        this.workoutType = workoutType;
+        this.totalUsers = totalUsers;
+        this.entries = entries;
+    }
+
+    public LocalDate getWeekStart() {
+        return weekStart;
+    }
+
+    public WorkoutType getWorkoutType() {
+        return workoutType;
+    }
+
+    public int getTotalUsers() {
+        return totalUsers;
+    }
+
+    public List<LeaderboardEntry> getEntries() {
+        return entries;
+    }
+}
@@ -0,0 +1,27 @@
+package com.eguglielmelli.dtos;
+
+import java.util.List;
+
+/**
+ * One page of a user's workouts, ordered by date and then id
+ * nextCursor is null when there are no more workouts to fetch
+ */
+public class WorkoutPage {
+
+    private final List<WorkoutSummary> workouts;
+
+    private final String nextCursor;
+
+    public WorkoutPage(List<WorkoutSummary> workouts, String nextCursor) {
+        this.workouts = workouts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<WorkoutSummary> getWorkouts() {
+        return workouts;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,84 @@
+package com.eguglielmelli.dtos;
+import com.eguglielmelli.entities.WorkoutType;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Size;
+import java.time.LocalDate;
+
+/**
+ * Used for PATCH requests on a workout, only the fields that are sent are changed
+ * Every field is boxed so a missing field (null) can be told apart from a zero
+ */
+public class WorkoutPatchDto {
+
+    @Size(min = 1, message = "Workout name must not be empty")
+    private String name;
+
+    private String notes;
+
+    @Min(0)
+    private Integer durationInMinutes;
+
+    private LocalDate date;
+
+    @Min(0)
+    private Integer caloriesBurned;
+
+    private WorkoutType workoutType;
+
+    /**
+     * @return true if the request does not contain any field to change
+     */
+    public boolean isEmpty() {
+        return name == null && notes == null && durationInMinutes == null && date == null
+                && caloriesBurned == null && workoutType == null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+    public Integer getDurationInMinutes() {
+        return durationInMinutes;
+    }
+
+    public void setDurationInMinutes(Integer durationInMinutes) {
+        this.durationInMinutes = durationInMinutes;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public Integer getCaloriesBurned() {
+        return caloriesBurned;
+    }
+
+    public void setCaloriesBurned(Integer caloriesBurned) {
+        this.caloriesBurned = caloriesBurned;
+    }
+
+    public WorkoutType getWorkoutType() {
+        return workoutType;
+    }
+
+    public void setWorkoutType(WorkoutType workoutType) {
+        this.workoutType = workoutType;
+    }
+}
@@ -0,0 +1,40 @@
+package com.eguglielmelli.dtos;
+
+import java.time.LocalDate;
+
+/**
+ * Totals for all workouts in a period (a day or a week), the period is identified by its first day
+ */
+public class WorkoutPeriodStats {
+
+    private final LocalDate startDate;
+
+    private final long count;
+
+    private final long totalDuration;
+
+    private final long totalCalories;
+
+    public WorkoutPeriodStats(LocalDate startDate, Long count, Long totalDuration, Long totalCalories) {
+        this.startDate = startDate;
+        this.count = count;
+        this.totalDuration = totalDuration;
+        this.totalCalories = totalCalories;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    public long getTotalCalories() {
+        return totalCalories;
+    }
+}
@@ -0,0 +1,33 @@
+package com.eguglielmelli.dtos;
+
+import java.time.LocalDate;
+
+/**
+ * A personal record, the workout that holds it and the record value (minutes or calories)
+ */
+public class WorkoutRecord {
+
+    private final Long workoutId;
+
+    private final LocalDate date;
+
+    private final int value;
+
+    public WorkoutRecord(Long workoutId, LocalDate date, int value) {
+        this.workoutId = workoutId;
+        this.date = date;
+        this.value = value;
+    }
+
+    public Long getWorkoutId() {
+        return workoutId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getValue() {
+        return value;
+    }
+}
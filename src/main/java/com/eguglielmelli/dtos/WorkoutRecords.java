@@ -0,0 +1,34 @@
+package com.eguglielmelli.dtos;
+
+import java.util.List;
+
+/**
+ * A user's workout streaks (in days) and personal records per workout type
+ * Only types the user has logged a workout for are listed
+ */
+public class WorkoutRecords {
+
+    private final int currentStreak;
+
+    private final int longestStreak;
+
+    private final List<WorkoutTypeRecords> byType;
+
+    public WorkoutRecords(int currentStreak, int longestStreak, List<WorkoutTypeRecords> byType) {
+        this.currentStreak = currentStreak;
+        this.longestStreak = longestStreak;
+        this.byType = byType;
+    }
+
+    public int getCurrentStreak() {
+        return currentStreak;
+    }
+
+    public int getLongestStreak() {
+        return longestStreak;
+    }
+
+    public List<WorkoutTypeRecords> getByType() {
+        return byType;
+    }
+}
@@ -0,0 +1,61 @@
+package com.eguglielmelli.dtos;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last hit on a page of search results, the next page starts right after it
+ * Hits are ordered by rank (highest first) and then id (highest first), so those two values are all we need
+ * Same idea as WorkoutCursor, clients only ever see the encoded string
+ */
+public class WorkoutSearchCursor {
+
+    private final float rank;
+    private final Long id;
+
+    public WorkoutSearchCursor(float rank, Long id) {
+        this.rank = rank;
+        this.id = id;
+    }
+
+    public float getRank() {
+        return rank;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Turn the cursor into the opaque string that is sent back to the client
+     * Float.toString() parses back to exactly the same float, so the next page compares against the same rank
+     * @return url safe cursor string
+     */
+    public String encode() {
+        String raw = rank + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse a cursor string previously handed out by encode()
+     * @param cursor string sent by the client
+     * @return the decoded cursor
+     */
+    public static WorkoutSearchCursor decode(String cursor) {
+        if(cursor == null || cursor.isEmpty()) {
+            throw new IllegalArgumentException("Cursor must not be null or empty");
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if(separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            float rank = Float.parseFloat(raw.substring(0, separator));
+            Long id = Long.parseLong(raw.substring(separator + 1));
+            return new WorkoutSearchCursor(rank, id);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
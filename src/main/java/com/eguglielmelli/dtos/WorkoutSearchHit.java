@@ -0,0 +1,24 @@
+package com.eguglielmelli.dtos;
+
+import com.eguglielmelli.entities.WorkoutType;
+
+import java.time.LocalDate;
+
+/**
+ * A workout matching a search, with how well it matched
+ * A higher rank is a better match, ranks are only comparable within one search
+ */
+public class WorkoutSearchHit extends WorkoutSummary {
+
+    private final float rank;
+
+    public WorkoutSearchHit(Long id, String name, LocalDate date, WorkoutType workoutType,
+                            int durationInMinutes, int caloriesBurned, float rank) {
+        super(id, name, date, workoutType, durationInMinutes, caloriesBurned);
+        this.rank = rank;
+    }
+
+    public float getRank() {
+        return rank;
+    }
+}
@@ -0,0 +1,27 @@
+package com.eguglielmelli.dtos;
+
+import java.util.List;
+
+/**
+ * One page of search results, best match first
+ * nextCursor is null when there are no more hits to fetch
+ */
+public class WorkoutSearchPage {
+
+    private final List<WorkoutSearchHit> hits;
+
+    private final String nextCursor;
+
+    public WorkoutSearchPage(List<WorkoutSearchHit> hits, String nextCursor) {
+        this.hits = hits;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<WorkoutSearchHit> getHits() {
+        return hits;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,67 @@
+package com.eguglielmelli.dtos;
+import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutType;
+import java.time.LocalDate;
+
+/**
+ * Copy of the fields of a workout that derived data (like the rollups) depends on
+ * Taken before an update or delete so we still know the old values afterwards
+ */
+public final class WorkoutSnapshot {
+
+    private final Long id;
+
+    private final Long userId;
+
+    private final LocalDate date;
+
+    private final WorkoutType workoutType;
+
+    private final int durationInMinutes;
+
+    private final int caloriesBurned;
+
+    public WorkoutSnapshot(Long id, Long userId, LocalDate date, WorkoutType workoutType,
+                           int durationInMinutes, int caloriesBurned) {
+        this.id = id;
+        this.userId = userId;
+        this.date = date;
+        this.workoutType = workoutType;
+        this.durationInMinutes = durationInMinutes;
+        this.caloriesBurned = caloriesBurned;
+    }
+
+    /**
+     * Take a snapshot of a workout, the user is only asked for its id so a lazy user is not loaded
+     * @param workout to copy
+     * @return snapshot of the current values
+     */
+    public static WorkoutSnapshot of(Workout workout) {
+        return new WorkoutSnapshot(workout.getId(), workout.getUser().getId(), workout.getDate(),
+                workout.getWorkoutType(), workout.getDurationInMinutes(), workout.getCaloriesBurned());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public WorkoutType getWorkoutType() {
+        return workoutType;
+    }
+
+    public int getDurationInMinutes() {
+        return durationInMinutes;
+    }
+
+    public int getCaloriesBurned() {
+        return caloriesBurned;
+    }
+}
@@ -0,0 +1,63 @@
+package com.eguglielmelli.dtos;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Aggregated workout statistics of a user for a date range, broken down by type and by week
+ * Weeks start on monday
+ */
+public class WorkoutStats {
+
+    private final LocalDate from;
+
+    private final LocalDate to;
+
+    private final long count;
+
+    private final long totalDuration;
+
+    private final long totalCalories;
+
+    private final List<WorkoutTypeStats> byType;
+
+    private final List<WorkoutPeriodStats> byWeek;
+
+    public WorkoutStats(LocalDate from, LocalDate to, List<WorkoutTypeStats> byType, List<WorkoutPeriodStats> byWeek) {
+        this.from = from;
+        this.to = to;
+        this.byType = byType;
+        this.byWeek = byWeek;
+        this.count = byType.stream().mapToLong(WorkoutTypeStats::getCount).sum();
+        this.totalDuration = byType.stream().mapToLong(WorkoutTypeStats::getTotalDuration).sum();
+        this.totalCalories = byType.stream().mapToLong(WorkoutTypeStats::getTotalCalories).sum();
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    public long getTotalCalories() {
+        return totalCalories;
+    }
+
+    public List<WorkoutTypeStats> getByType() {
+        return byType;
+    }
+
+    public List<WorkoutPeriodStats> getByWeek() {
+        return byWeek;
+    }
+}
@@ -0,0 +1,59 @@
+package com.eguglielmelli.dtos;
+
+import com.eguglielmelli.entities.WorkoutType;
+
+import java.time.LocalDate;
+
+/**
+ * Read only view of a workout used when listing a user's workouts
+ * Only holds the columns a list needs, so no notes and no user
+ * Built directly by the repository queries, the entity is never loaded
+ */
+public class WorkoutSummary {
+
+    private final Long id;
+
+    private final String name;
+
+    private final LocalDate date;
+
+    private final WorkoutType workoutType;
+
+    private final int durationInMinutes;
+
+    private final int caloriesBurned;
+
+    public WorkoutSummary(Long id, String name, LocalDate date, WorkoutType workoutType,
+                          int durationInMinutes, int caloriesBurned) {
+        this.id = id;
+        this.name = name;
+        this.date = date;
+        this.workoutType = workoutType;
+        this.durationInMinutes = durationInMinutes;
+        this.caloriesBurned = caloriesBurned;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public WorkoutType getWorkoutType() {
+        return workoutType;
+    }
+
+    public int getDurationInMinutes() {
+        return durationInMinutes;
+    }
+
+    public int getCaloriesBurned() {
+        return caloriesBurned;
+    }
+}
@@ -0,0 +1,33 @@
+package com.eguglielmelli.dtos;
+
+import com.eguglielmelli.entities.WorkoutType;
+
+/**
+ * Personal records for one workout type
+ */
+public class WorkoutTypeRecords {
+
+    private final WorkoutType workoutType;
+
+    private final WorkoutRecord longestDuration;
+
+    private final WorkoutRecord mostCalories;
+
+    public WorkoutTypeRecords(WorkoutType workoutType, WorkoutRecord longestDuration, WorkoutRecord mostCalories) {
+        this.workoutType = workoutType;
+        this.longestDuration = longestDuration;
+        this.mostCalories = mostCalories;
+    }
+
+    public WorkoutType getWorkoutType() {
+        return workoutType;
+    }
+
+    public WorkoutRecord getLongestDuration() {
+        return longestDuration;
+    }
+
+    public WorkoutRecord getMostCalories() {
+        return mostCalories;
+    }
+}
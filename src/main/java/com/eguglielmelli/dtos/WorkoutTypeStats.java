@@ -0,0 +1,64 @@
+package com.eguglielmelli.dtos;
+
+import com.eguglielmelli.entities.WorkoutType;
+
+/**
+ * Totals and averages for one workout type, computed by the database
+ */
+public class WorkoutTypeStats {
+
+    private final WorkoutType workoutType;
+
+    private final long count;
+
+    private final long totalDuration;
+
+    private final long totalCalories;
+
+    private final double averageDuration;
+
+    private final double averageCalories;
+
+    public WorkoutTypeStats(WorkoutType workoutType, Long count, Long totalDuration, Long totalCalories,
+                            Double averageDuration, Double averageCalories) {
+        this.workoutType = workoutType;
+        this.count = count;
+        this.totalDuration = totalDuration;
+        this.totalCalories = totalCalories;
+        this.averageDuration = averageDuration;
+        this.averageCalories = averageCalories;
+    }
+
+    /**
+     * Build the stats from totals only, averages are derived from the count
+     */
+    public WorkoutTypeStats(WorkoutType workoutType, Long count, Long totalDuration, Long totalCalories) {
+        this(workoutType, count, totalDuration, totalCalories,
+                count == 0 ? 0.0 : (double) totalDuration / count,
+                count == 0 ? 0.0 : (double) totalCalories / count);
+    }
+
+    public WorkoutType getWorkoutType() {
+        return workoutType;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    public long getTotalCalories() {
+        return totalCalories;
+    }
+
+    public double getAverageDuration() {
+        return averageDuration;
+    }
+
+    public double getAverageCalories() {
+        return averageCalories;
+    }
+}
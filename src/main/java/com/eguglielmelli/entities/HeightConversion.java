@@ -6,20 +6,21 @@ import java.math.RoundingMode;
 /**
  * Since we are storing all details using imperial system, this class will be used for
  * people who use the metric system
+ * For many values at once, or values already held as tenths, see TenthsConversion
  */
 public class HeightConversion {
 
-    private final BigDecimal CM_TO_INCHES = new BigDecimal("0.393701");
-    private final BigDecimal INCHES_TO_CM = new BigDecimal("2.54");
+    static final BigDecimal CM_TO_INCHES = new BigDecimal("0.393701");
+    static final BigDecimal INCHES_TO_CM = new BigDecimal("2.54");
 
-    public BigDecimal centimetersToInches(BigDecimal cm) {
+    public static BigDecimal centimetersToInches(BigDecimal cm) {
         if(cm == null) {
             throw new IllegalArgumentException("Centimeters cannot be null");
         }
         return cm.multiply(CM_TO_INCHES).setScale(1,RoundingMode.HALF_UP);
     }
 
-    public BigDecimal inchesToCentimeters(BigDecimal inches) {
+    public static BigDecimal inchesToCentimeters(BigDecimal inches) {
         if(inches == null) {
             throw new IllegalArgumentException("Inches cannot be null");
         }
@@ -0,0 +1,114 @@
+package com.eguglielmelli.entities;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Height and weight conversions on values held as whole tenths (72.5 in is 725), with plain long math
+ * Gives exactly what HeightConversion and WeightConversion give for a value with one decimal place,
+ * including HALF_UP rounding away from zero, but without creating any objects, so it can be used for
+ * long lists of values
+ * The factors are read from the BigDecimal constants of those classes so the two can not drift apart
+ */
+public enum TenthsConversion {
+
+    CENTIMETERS_TO_INCHES(HeightConversion.CM_TO_INCHES, null),
+    INCHES_TO_CENTIMETERS(HeightConversion.INCHES_TO_CM, null),
+    POUNDS_TO_KILOS(WeightConversion.POUNDS_TO_KG, "pounds"),
+    KILOS_TO_POUNDS(WeightConversion.KG_TO_POUNDS, "kilograms");
+
+    //factor as multiplier / divisor, e.g. 2.54 is 254 / 100
+    private final long multiplier;
+
+    private final long divisor;
+
+    //largest input whose product with the multiplier still fits in a long
+    private final long maxInput;
+
+    //unit named in the error for a negative input, null when negative values are converted like the BigDecimal version does
+    private final String nonNegativeUnit;
+
+    TenthsConversion(BigDecimal factor, String nonNegativeUnit) {
+        this.multiplier = factor.unscaledValue().longValueExact();
+        this.divisor = BigInteger.TEN.pow(factor.scale()).longValueExact();
+        this.maxInput = Long.MAX_VALUE / multiplier;
+        this.nonNegativeUnit = nonNegativeUnit;
+    }
+
+    /**
+     * Convert one value, input and result are both in tenths
+     * Both sides are in tenths so the tenths cancel out: the result is tenths * factor rounded to a whole number
+     * @param tenths value to convert in tenths
+     * @return converted value in tenths
+     */
+    public long convert(long tenths) {
+        validate(tenths);
+        return roundHalfUp(tenths * multiplier, divisor);
+    }
+
+    /**
+     * Convert every value of in into the same position of out, in and out may be the same array
+     * Every input is checked before anything is written, so a bad value leaves out untouched
+     * @param in values to convert in tenths
+     * @param out converted values in tenths, at least as long as in
+     */
+    public void convert(long[] in, long[] out) {
+        if(in == null || out == null) {
+            throw new IllegalArgumentException("Input and output arrays cannot be null");
+        }
+        if(out.length < in.length) {
+            throw new IllegalArgumentException("Output array must be at least as long as the input array");
+        }
+        for(long tenths : in) {
+            validate(tenths);
+        }
+        for(int i = 0; i < in.length; i++) {
+            out[i] = roundHalfUp(in[i] * multiplier, divisor);
+        }
+    }
+
+    /**
+     * @param value a value with at most one decimal place, e.g. 72.5
+     * @return the value in tenths, e.g. 725
+     */
+    public static long toTenths(BigDecimal value) {
+        if(value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+        try {
+            return value.movePointRight(1).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Value must have at most one decimal place and fit in tenths");
+        }
+    }
+
+    /**
+     * @param tenths a value in tenths
+     * @return the value with one decimal place, same scale as the BigDecimal conversions return
+     */
+    public static BigDecimal fromTenths(long tenths) {
+        return BigDecimal.valueOf(tenths, 1);
+    }
+
+    private void validate(long tenths) {
+        if(nonNegativeUnit != null && tenths < 0) {
+            throw new IllegalArgumentException("Input " + nonNegativeUnit + " must be a non-negative number.");
+        }
+        if(tenths > maxInput || tenths < -maxInput) {
+            throw new IllegalArgumentException("Value is too large to convert");
+        }
+    }
+
+    /**
+     * dividend / divisor rounded to the nearest whole number, halves away from zero like RoundingMode.HALF_UP
+     */
+    private static long roundHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        //remainder is at most divisor - 1 (at most 10^8) so doubling it can not overflow
+        if(Math.abs(remainder) * 2 >= divisor) {
+            quotient += dividend < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+}
@@ -1,12 +1,28 @@
 package com.eguglielmelli.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.Where;
+
 import javax.validation.Valid;
 import javax.validation.constraints.*;
 import javax.persistence.*;
 import java.math.BigDecimal;
+import java.time.Instant;
 
 @Entity
-@Table(name = "users")
+//plain unique constraints for schemas hibernate generates (H2 in tests), on Postgres schema-postgresql.sql
+//replaces them with partial indexes so soft deleted users do not block their username or email
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_users_username", columnNames = "username"),
+        @UniqueConstraint(name = "uk_users_email", columnNames = "email")
+})
+//soft deleted users are invisible to every query and lookup, see UserService.deleteUser()
+@Where(clause = "is_deleted = false")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+//only the changed columns go into the UPDATE
+@DynamicUpdate
 public class User {
 
     @Id
@@ -21,7 +37,8 @@ public class User {
 
     @NotNull
     @NotEmpty
-    @Column(name = "username", nullable = false, unique = true)
+    //unique among live users only on Postgres, see the @Table constraints
+    @Column(name = "username", nullable = false)
     private String username;
 
     @NotNull
@@ -32,7 +49,8 @@ public class User {
     @NotNull
     @Email
     @NotEmpty
-    @Column(name = "email", nullable = false, unique = true)
+    //unique among live users only on Postgres, see the @Table constraints
+    @Column(name = "email", nullable = false)
     private String email;
 
     @Min(0)
@@ -55,6 +73,15 @@ public class User {
     @Column(name = "is_deleted", nullable = false)
     private boolean isDeleted = false;
 
+    //bumped by hibernate on every update, an update based on an older version fails instead of overwriting
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    //set by hibernate on insert and on every update, used for Last-Modified on the info endpoints
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
 
     public User() {
     }
@@ -81,6 +108,19 @@ public class User {
         return id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    //Strictly for testing purposes, otherwise, hibernate manages the version
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getFullName() {
         return fullName;
     }
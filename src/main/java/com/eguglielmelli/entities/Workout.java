@@ -1,16 +1,31 @@
 package com.eguglielmelli.entities;
 
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.Where;
 
 import javax.validation.constraints.NotNull;
 
 import javax.persistence.*;
+import java.time.Instant;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "workouts")
+@Table(name = "workouts", indexes = {
+        @Index(name = "idx_workouts_user_date", columnList = "user_id, date"),
+        @Index(name = "idx_workouts_user_type_date", columnList = "user_id, workout_type, date"),
+        //leaderboards read every user's workouts from a date on (WorkoutRepository.streamSnapshotsFrom())
+        @Index(name = "idx_workouts_date", columnList = "date")
+})
+//workouts of a soft deleted user are hidden the same way the user is
+@Where(clause = "user_deleted = false")
+//only the changed columns go into the UPDATE, a renamed workout should not rewrite its notes
+@DynamicUpdate
 public class Workout {
+    //pooled sequence instead of identity so hibernate can batch inserts, one nextval covers 50 workouts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workouts_seq")
+    @SequenceGenerator(name = "workouts_seq", sequenceName = "workouts_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -38,10 +53,25 @@ public class Workout {
     private WorkoutType workoutType;
 
     @NotNull
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", referencedColumnName = "user_id")
     private User user;
 
+    //copy of the owner's is_deleted so workout queries can filter on it without joining users
+    //only ever set by WorkoutRepository.markUserDeleted()
+    @Column(name = "user_deleted", nullable = false)
+    private boolean userDeleted = false;
+
+    //bumped by hibernate on every update, an update based on an older version fails instead of overwriting
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    //set by hibernate on insert and on every update, used for Last-Modified on the info endpoints
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     public Workout() {
 
     }
@@ -64,6 +94,19 @@ public class Workout {
         return id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    //strictly for TESTING purposes only
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -0,0 +1,52 @@
+package com.eguglielmelli.entities;
+
+import javax.persistence.*;
+
+/**
+ * Running totals of a user's workouts for one day and workout type
+ * Kept up to date by WorkoutService on every workout write, so stats only have to read these small rows
+ * instead of the whole workouts table
+ */
+@Entity
+@Table(name = "workout_daily_rollups")
+public class WorkoutDailyRollup {
+
+    @EmbeddedId
+    private WorkoutRollupId id;
+
+    @Column(name = "workout_count", nullable = false)
+    private int workoutCount;
+
+    @Column(name = "total_duration", nullable = false)
+    private long totalDuration;
+
+    @Column(name = "total_calories", nullable = false)
+    private long totalCalories;
+
+    public WorkoutDailyRollup() {
+
+    }
+
+    public WorkoutDailyRollup(WorkoutRollupId id, int workoutCount, long totalDuration, long totalCalories) {
+        this.id = id;
+        this.workoutCount = workoutCount;
+        this.totalDuration = totalDuration;
+        this.totalCalories = totalCalories;
+    }
+
+    public WorkoutRollupId getId() {
+        return id;
+    }
+
+    public int getWorkoutCount() {
+        return workoutCount;
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    public long getTotalCalories() {
+        return totalCalories;
+    }
+}
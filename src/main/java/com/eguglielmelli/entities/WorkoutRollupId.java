@@ -0,0 +1,66 @@
+package com.eguglielmelli.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Key of a workout rollup row, one row per user, day and workout type
+ */
+@Embeddable
+public class WorkoutRollupId implements Serializable {
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "workout_date", nullable = false)
+    private LocalDate workoutDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "workout_type", nullable = false)
+    private WorkoutType workoutType;
+
+    public WorkoutRollupId() {
+
+    }
+
+    public WorkoutRollupId(Long userId, LocalDate workoutDate, WorkoutType workoutType) {
+        this.userId = userId;
+        this.workoutDate = workoutDate;
+        this.workoutType = workoutType;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDate getWorkoutDate() {
+        return workoutDate;
+    }
+
+    public WorkoutType getWorkoutType() {
+        return workoutType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof WorkoutRollupId)) {
+            return false;
+        }
+        WorkoutRollupId that = (WorkoutRollupId) o;
+        return Objects.equals(userId, that.userId) && Objects.equals(workoutDate, that.workoutDate)
+                && workoutType == that.workoutType;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, workoutDate, workoutType);
+    }
+}
@@ -0,0 +1,26 @@
+package com.eguglielmelli.repositories;
+
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.persistence.EntityManager;
+
+/**
+ * A few writes use Postgres only syntax (ON CONFLICT, RETURNING) and fall back to standard SQL on
+ * other databases, like the H2 database the tests run on
+ */
+public final class Dialects {
+
+    private Dialects() {
+
+    }
+
+    /**
+     * @param entityManager any entity manager of the persistence unit
+     * @return true when hibernate talks to Postgres
+     */
+    public static boolean isPostgres(EntityManager entityManager) {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQL81Dialect;
+    }
+}
@@ -0,0 +1,92 @@
+package com.eguglielmelli.repositories;
+
+import com.eguglielmelli.dtos.WorkoutSearchHit;
+import com.eguglielmelli.entities.Workout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Fallback search for databases without full text support (the H2 tests), selected with app.search.mode=memory
+ * The user's workouts are loaded and indexed per search, fine for tests and small data sets only
+ * Matching and ordering follow the postgres index: every query word must appear in the name or notes,
+ * name words count more than notes words. There is no stemming, words have to match exactly (ignoring case)
+ */
+@Repository
+@ConditionalOnProperty(name = "app.search.mode", havingValue = "memory")
+public class InMemoryWorkoutSearchIndex implements WorkoutSearchIndex {
+
+    //same as the default ts_rank weights for the A (name) and B (notes) labels
+    static final float NAME_WEIGHT = 1.0f;
+    static final float NOTES_WEIGHT = 0.4f;
+
+    private static final Comparator<WorkoutSearchHit> BEST_FIRST = Comparator
+            .comparing(WorkoutSearchHit::getRank, Comparator.reverseOrder())
+            .thenComparing(WorkoutSearchHit::getId, Comparator.reverseOrder());
+
+    private final WorkoutRepository workoutRepository;
+
+    @Autowired
+    public InMemoryWorkoutSearchIndex(WorkoutRepository workoutRepository) {
+        this.workoutRepository = workoutRepository;
+    }
+
+    @Override
+    public List<WorkoutSearchHit> search(Long userId, String query, float afterRank, long afterId, int limit) {
+        List<String> queryWords = words(query);
+        if(queryWords.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<WorkoutSearchHit> hits = new ArrayList<>();
+        for(Workout workout : workoutRepository.findByUser_id(userId)) {
+            Map<String, Float> index = index(workout);
+            if(!index.keySet().containsAll(queryWords)) {
+                continue;
+            }
+            float rank = 0;
+            for(String word : queryWords) {
+                rank += index.get(word);
+            }
+            if(rank < afterRank || (rank == afterRank && workout.getId() < afterId)) {
+                hits.add(new WorkoutSearchHit(workout.getId(), workout.getName(), workout.getDate(),
+                        workout.getWorkoutType(), workout.getDurationInMinutes(), workout.getCaloriesBurned(), rank));
+            }
+        }
+        return hits.stream().sorted(BEST_FIRST).limit(limit).collect(Collectors.toList());
+    }
+
+    /**
+     * Weight of every word in the workout, each occurrence adds the weight of the field it is in
+     */
+    private static Map<String, Float> index(Workout workout) {
+        Map<String, Float> index = new HashMap<>();
+        for(String word : words(workout.getName())) {
+            index.merge(word, NAME_WEIGHT, Float::sum);
+        }
+        for(String word : words(workout.getNotes())) {
+            index.merge(word, NOTES_WEIGHT, Float::sum);
+        }
+        return index;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if(text == null) {
+            return words;
+        }
+        for(String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if(!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,53 @@
+package com.eguglielmelli.repositories;
+
+import com.eguglielmelli.dtos.WorkoutSearchHit;
+import com.eguglielmelli.entities.WorkoutType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Search backed by the workouts.search_vector generated column and its GIN index
+ * Name words are weighted above notes words, the query is parsed with plainto_tsquery so every word
+ * has to match and words are stemmed ("repeats" finds "repeat")
+ */
+@Repository
+@ConditionalOnProperty(name = "app.search.mode", havingValue = "postgres", matchIfMissing = true)
+public class PostgresWorkoutSearchIndex implements WorkoutSearchIndex {
+
+    private static final String SEARCH_QUERY =
+            "select w.id, w.name, w.date, w.workout_type, w.workout_duration, w.calories_burned, " +
+            "ts_rank(w.search_vector, q) as rank " +
+            "from workouts w, plainto_tsquery('english', :query) q " +
+            "where w.user_id = :userId and w.user_deleted = false and w.search_vector @@ q " +
+            "and (ts_rank(w.search_vector, q) < :afterRank " +
+            "or (ts_rank(w.search_vector, q) = :afterRank and w.id < :afterId)) " +
+            "order by rank desc, w.id desc";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<WorkoutSearchHit> search(Long userId, String query, float afterRank, long afterId, int limit) {
+        List<Object[]> rows = entityManager.createNativeQuery(SEARCH_QUERY)
+                .setParameter("query", query)
+                .setParameter("userId", userId)
+                .setParameter("afterRank", afterRank)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+        return rows.stream().map(PostgresWorkoutSearchIndex::toHit).collect(Collectors.toList());
+    }
+
+    private static WorkoutSearchHit toHit(Object[] row) {
+        return new WorkoutSearchHit(((Number) row[0]).longValue(), (String) row[1], ((Date) row[2]).toLocalDate(),
+                WorkoutType.valueOf((String) row[3]), ((Number) row[4]).intValue(),
+                row[5] == null ? 0 : ((Number) row[5]).intValue(), ((Number) row[6]).floatValue());
+    }
+}
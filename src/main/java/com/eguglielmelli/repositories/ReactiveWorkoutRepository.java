@@ -0,0 +1,118 @@
+package com.eguglielmelli.repositories;
+
+import com.eguglielmelli.dtos.WorkoutPeriodStats;
+import com.eguglielmelli.dtos.WorkoutSummary;
+import com.eguglielmelli.dtos.WorkoutTypeStats;
+import com.eguglielmelli.entities.WorkoutType;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Non blocking reads over the same tables the JPA repositories map (users, workouts, workout_daily_rollups)
+ * Plain SQL since there are no R2DBC entities, so the soft delete filters that @Where adds
+ * on the JPA side are written out here
+ */
+@Repository
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+public class ReactiveWorkoutRepository {
+
+    //rows are pulled from a server side cursor in chunks of this size as the subscriber asks for more
+    static final int FETCH_SIZE = 500;
+
+    private static final String SUMMARY_COLUMNS =
+            "select id, name, date, workout_type, workout_duration, calories_burned from workouts ";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveWorkoutRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Boolean> existsUserById(Long userId) {
+        return databaseClient.sql("select count(*) from users where user_id = :userId and is_deleted = false")
+                .bind("userId", userId)
+                .map((row, metadata) -> row.get(0, Long.class) > 0)
+                .one();
+    }
+
+    /**
+     * Every workout of a user in the date range, in (date, id) order
+     * Demand from the subscriber drives the cursor, a slow client holds back the database
+     * instead of the whole history being buffered in memory
+     * @param workoutType only this type, null for all types
+     */
+    public Flux<WorkoutSummary> findByUserId(Long userId, LocalDate from, LocalDate to, WorkoutType workoutType) {
+        String sql = SUMMARY_COLUMNS + "where user_id = :userId and user_deleted = false and date between :from and :to "
+                + (workoutType == null ? "" : "and workout_type = :workoutType ")
+                + "order by date asc, id asc";
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind("userId", userId)
+                .bind("from", from)
+                .bind("to", to);
+        if(workoutType != null) {
+            spec = spec.bind("workoutType", workoutType.name());
+        }
+        return spec.filter((statement, next) -> next.execute(statement.fetchSize(FETCH_SIZE)))
+                .map((row, metadata) -> toSummary(row))
+                .all();
+    }
+
+    public Mono<WorkoutSummary> findByIdAndUserId(Long id, Long userId) {
+        return databaseClient.sql(SUMMARY_COLUMNS + "where id = :id and user_id = :userId and user_deleted = false")
+                .bind("id", id)
+                .bind("userId", userId)
+                .map((row, metadata) -> toSummary(row))
+                .one();
+    }
+
+    /**
+     * Same as WorkoutRollupRepository.findTypeStats()
+     */
+    public Flux<WorkoutTypeStats> findTypeStats(Long userId, LocalDate from, LocalDate to) {
+        return databaseClient.sql("select workout_type, cast(sum(workout_count) as bigint) as workout_count, " +
+                        "cast(sum(total_duration) as bigint) as total_duration, " +
+                        "cast(sum(total_calories) as bigint) as total_calories from workout_daily_rollups " +
+                        "where user_id = :userId and workout_date between :from and :to " +
+                        "group by workout_type having sum(workout_count) > 0 order by workout_type")
+                .bind("userId", userId)
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> new WorkoutTypeStats(WorkoutType.valueOf(row.get("workout_type", String.class)),
+                        row.get("workout_count", Long.class), row.get("total_duration", Long.class),
+                        row.get("total_calories", Long.class)))
+                .all();
+    }
+
+    /**
+     * Same as WorkoutRollupRepository.findDailyStats()
+     */
+    public Flux<WorkoutPeriodStats> findDailyStats(Long userId, LocalDate from, LocalDate to) {
+        return databaseClient.sql("select workout_date, cast(sum(workout_count) as bigint) as workout_count, " +
+                        "cast(sum(total_duration) as bigint) as total_duration, " +
+                        "cast(sum(total_calories) as bigint) as total_calories from workout_daily_rollups " +
+                        "where user_id = :userId and workout_date between :from and :to " +
+                        "group by workout_date having sum(workout_count) > 0 order by workout_date")
+                .bind("userId", userId)
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> new WorkoutPeriodStats(row.get("workout_date", LocalDate.class),
+                        row.get("workout_count", Long.class), row.get("total_duration", Long.class),
+                        row.get("total_calories", Long.class)))
+                .all();
+    }
+
+    private static WorkoutSummary toSummary(Row row) {
+        Integer caloriesBurned = row.get("calories_burned", Integer.class);
+        return new WorkoutSummary(row.get("id", Long.class), row.get("name", String.class),
+                row.get("date", LocalDate.class), WorkoutType.valueOf(row.get("workout_type", String.class)),
+                row.get("workout_duration", Integer.class), caloriesBurned == null ? 0 : caloriesBurned);
+    }
+}
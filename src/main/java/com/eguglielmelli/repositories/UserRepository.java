@@ -1,7 +1,13 @@
 package com.eguglielmelli.repositories;
+import com.eguglielmelli.config.CacheConfig;
+import com.eguglielmelli.dtos.ResourceVersion;
 import com.eguglielmelli.entities.User;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -9,4 +15,28 @@ public interface UserRepository extends JpaRepository<User,Long> {
 
     Optional<User> findByusername(String username);
     Optional<User> findByemail(String email);
+
+    /**
+     * Lowercased usernames of the live users already holding the given username or email
+     * Registration checks both columns with this one query, at most two rows come back
+     * and the lower() unique indexes in schema-postgresql.sql serve both sides of the or
+     */
+    @Query("select lower(u.username) from User u " +
+            "where lower(u.username) = lower(:username) or lower(u.email) = lower(:email)")
+    List<String> findConflictingUsernames(@Param("username") String username, @Param("email") String email);
+
+    /**
+     * Version and update time of a user, used to answer conditional GETs without loading the user
+     */
+    @Query("select new com.eguglielmelli.dtos.ResourceVersion(u.version, u.updatedAt) from User u where u.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") Long id);
+
+    /**
+     * Used by the workout service on almost every request, only positive answers are cached
+     * so a user created after a miss is seen right away
+     * UserService evicts the entry when a user is deleted
+     */
+    @Override
+    @Cacheable(cacheNames = CacheConfig.USER_EXISTS_CACHE, unless = "!#result")
+    boolean existsById(Long id);
 }
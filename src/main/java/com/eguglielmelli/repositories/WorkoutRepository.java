@@ -1,12 +1,121 @@
 package com.eguglielmelli.repositories;
 
+import com.eguglielmelli.dtos.ResourceVersion;
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.dtos.WorkoutSummary;
 import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface WorkoutRepository extends JpaRepository<Workout, Long> {
+public interface WorkoutRepository extends JpaRepository<Workout, Long>, WorkoutRepositoryCustom {
 
     List<Workout> findByUser_id(Long userId);
+
+    /**
+     * The user on a workout is lazy, use this when the caller actually needs it
+     * so both are loaded in one joined select
+     */
+    @EntityGraph(attributePaths = "user")
+    Optional<Workout> findWithUserById(Long id);
+
+    /**
+     * Version and update time of a workout and its user, used to answer conditional GETs without loading the workout
+     * The user is part of the workout response so a change to the user has to change the answer too
+     */
+    @Query("select new com.eguglielmelli.dtos.ResourceVersion(w.version, w.updatedAt, u.version, u.updatedAt) " +
+            "from Workout w join w.user u where w.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") Long id);
+
+    /**
+     * Every workout of a user in (date, id) order, read from the database in chunks as the stream is consumed
+     * Must be consumed and closed inside a transaction, entities are read only since this is only used for export
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select w from Workout w where w.user.id = :userId order by w.date asc, w.id asc")
+    Stream<Workout> streamByUserId(@Param("userId") Long userId);
+
+    /**
+     * The fields analytics needs of every workout of a user, in date order, read in chunks as the stream is consumed
+     * Must be consumed and closed inside a transaction
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.eguglielmelli.dtos.WorkoutSnapshot(w.id, w.user.id, w.date, w.workoutType, " +
+            "w.durationInMinutes, w.caloriesBurned) from Workout w where w.user.id = :userId order by w.date asc, w.id asc")
+    Stream<WorkoutSnapshot> streamSnapshotsByUserId(@Param("userId") Long userId);
+
+    /**
+     * The fields leaderboards need of every workout on or after a date, across all users
+     * Read in chunks as the stream is consumed, must be consumed and closed inside a transaction
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.eguglielmelli.dtos.WorkoutSnapshot(w.id, w.user.id, w.date, w.workoutType, " +
+            "w.durationInMinutes, w.caloriesBurned) from Workout w where w.date >= :from")
+    Stream<WorkoutSnapshot> streamSnapshotsFrom(@Param("from") LocalDate from);
+
+    /**
+     * The user's longest workout of a type, ties go to the earliest one
+     * Pass a pageable of size 1, used to find a record again after the holder was deleted or shortened
+     */
+    @Query("select new com.eguglielmelli.dtos.WorkoutSnapshot(w.id, w.user.id, w.date, w.workoutType, " +
+            "w.durationInMinutes, w.caloriesBurned) from Workout w where w.user.id = :userId and w.workoutType = :workoutType " +
+            "order by w.durationInMinutes desc, w.date asc, w.id asc")
+    List<WorkoutSnapshot> findLongestByUserIdAndType(@Param("userId") Long userId,
+                                                     @Param("workoutType") WorkoutType workoutType, Pageable pageable);
+
+    /**
+     * Same as findLongestByUserIdAndType() for the most calories burned
+     */
+    @Query("select new com.eguglielmelli.dtos.WorkoutSnapshot(w.id, w.user.id, w.date, w.workoutType, " +
+            "w.durationInMinutes, w.caloriesBurned) from Workout w where w.user.id = :userId and w.workoutType = :workoutType " +
+            "order by w.caloriesBurned desc, w.date asc, w.id asc")
+    List<WorkoutSnapshot> findMostCaloriesByUserIdAndType(@Param("userId") Long userId,
+                                                          @Param("workoutType") WorkoutType workoutType, Pageable pageable);
+
+    /**
+     * Keyset page of a user's workouts, everything strictly after (afterDate, afterId) in (date, id) order
+     * and on or before the to date
+     * The page size comes from the pageable, no count query is run since we return a plain list
+     * Only the summary columns are selected, the user is never joined or loaded
+     */
+    @Query("select new com.eguglielmelli.dtos.WorkoutSummary(w.id, w.name, w.date, w.workoutType, " +
+            "w.durationInMinutes, w.caloriesBurned) from Workout w where w.user.id = :userId " +
+            "and (w.date > :afterDate or (w.date = :afterDate and w.id > :afterId)) and w.date <= :to " +
+            "order by w.date asc, w.id asc")
+    List<WorkoutSummary> findPageAfter(@Param("userId") Long userId, @Param("afterDate") LocalDate afterDate,
+                                       @Param("afterId") Long afterId, @Param("to") LocalDate to, Pageable pageable);
+
+    /**
+     * Same as findPageAfter() but only for one workout type, served by the (user_id, workout_type, date) index
+     */
+    @Query("select new com.eguglielmelli.dtos.WorkoutSummary(w.id, w.name, w.date, w.workoutType, " +
+            "w.durationInMinutes, w.caloriesBurned) from Workout w " +
+            "where w.user.id = :userId and w.workoutType = :workoutType " +
+            "and (w.date > :afterDate or (w.date = :afterDate and w.id > :afterId)) and w.date <= :to " +
+            "order by w.date asc, w.id asc")
+    List<WorkoutSummary> findPageAfterByType(@Param("userId") Long userId, @Param("workoutType") WorkoutType workoutType,
+                                             @Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId,
+                                             @Param("to") LocalDate to, Pageable pageable);
+
+    /**
+     * Hide every workout of a user that was just soft deleted
+     * @return number of workouts that were hidden
+     */
+    @Modifying
+    @Query("update Workout w set w.userDeleted = true where w.user.id = :userId")
+    int markUserDeleted(@Param("userId") Long userId);
 }
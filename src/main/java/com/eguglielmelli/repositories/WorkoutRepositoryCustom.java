@@ -0,0 +1,20 @@
+package com.eguglielmelli.repositories;
+
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+
+import java.util.Optional;
+
+/**
+ * Workout queries spring data can not derive or declare, implemented in WorkoutRepositoryCustomImpl
+ */
+public interface WorkoutRepositoryCustom {
+
+    /**
+     * Delete a workout without loading it and return the fields the rollups need
+     * Scoped to the user so a workout of another user is treated as not found
+     * @param id id of workout
+     * @param userId id of the user that owns the workout
+     * @return the deleted workout, empty when nothing was deleted
+     */
+    Optional<WorkoutSnapshot> deleteByIdAndUserIdReturningSnapshot(Long id, Long userId);
+}
@@ -0,0 +1,68 @@
+package com.eguglielmelli.repositories;
+
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.entities.WorkoutType;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * On Postgres the delete hands back the deleted row with RETURNING, one statement and nothing
+ * can change the row between reading and deleting it
+ * Other databases read the snapshot first and then delete, a concurrent delete that gets in between
+ * makes the delete remove nothing and the workout is reported as not found
+ * Native SQL does not get Workout's @Where filter, the Postgres statement repeats it so a workout of a
+ * deleted user is not found on either path
+ */
+public class WorkoutRepositoryCustomImpl implements WorkoutRepositoryCustom {
+
+    static final String DELETE_RETURNING_QUERY =
+            "delete from workouts where id = :id and user_id = :userId and user_deleted = false " +
+            "returning id, user_id, date, workout_type, workout_duration, calories_burned";
+
+    private static final String SNAPSHOT_QUERY =
+            "select new com.eguglielmelli.dtos.WorkoutSnapshot(w.id, w.user.id, w.date, w.workoutType, " +
+            "w.durationInMinutes, w.caloriesBurned) from Workout w where w.id = :id and w.user.id = :userId";
+
+    private static final String DELETE_QUERY = "delete from Workout w where w.id = :id and w.user.id = :userId";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<WorkoutSnapshot> deleteByIdAndUserIdReturningSnapshot(Long id, Long userId) {
+        if(Dialects.isPostgres(entityManager)) {
+            return deleteReturning(id, userId);
+        }
+        List<WorkoutSnapshot> snapshots = entityManager.createQuery(SNAPSHOT_QUERY, WorkoutSnapshot.class)
+                .setParameter("id", id)
+                .setParameter("userId", userId)
+                .getResultList();
+        if(snapshots.isEmpty()) {
+            return Optional.empty();
+        }
+        int deleted = entityManager.createQuery(DELETE_QUERY)
+                .setParameter("id", id)
+                .setParameter("userId", userId)
+                .executeUpdate();
+        return deleted == 0 ? Optional.empty() : Optional.of(snapshots.get(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<WorkoutSnapshot> deleteReturning(Long id, Long userId) {
+        List<Object[]> rows = entityManager.createNativeQuery(DELETE_RETURNING_QUERY)
+                .setParameter("id", id)
+                .setParameter("userId", userId)
+                .getResultList();
+        if(rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] row = rows.get(0);
+        return Optional.of(new WorkoutSnapshot(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                ((Date) row[2]).toLocalDate(), WorkoutType.valueOf((String) row[3]), ((Number) row[4]).intValue(),
+                row[5] == null ? 0 : ((Number) row[5]).intValue()));
+    }
+}
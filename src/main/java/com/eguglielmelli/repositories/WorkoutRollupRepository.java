@@ -0,0 +1,86 @@
+package com.eguglielmelli.repositories;
+
+import com.eguglielmelli.dtos.WorkoutPeriodStats;
+import com.eguglielmelli.dtos.WorkoutTypeStats;
+import com.eguglielmelli.entities.WorkoutDailyRollup;
+import com.eguglielmelli.entities.WorkoutRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface WorkoutRollupRepository extends JpaRepository<WorkoutDailyRollup, WorkoutRollupId> {
+
+    /**
+     * Add a delta to a rollup row, inserting the row when this is the first workout for it
+     * One atomic statement, so two transactions writing the first workout of the same row can not both insert it
+     * Postgres version, see mergeIntoRollup() for other databases
+     * @param workoutType name of the workout type, the column stores the enum name
+     * @return number of rows written, always 1
+     */
+    @Modifying
+    @Query(value = "insert into workout_daily_rollups " +
+            "(user_id, workout_date, workout_type, workout_count, total_duration, total_calories) " +
+            "values (:userId, :workoutDate, :workoutType, :count, :duration, :calories) " +
+            "on conflict (user_id, workout_date, workout_type) do update set " +
+            "workout_count = workout_daily_rollups.workout_count + excluded.workout_count, " +
+            "total_duration = workout_daily_rollups.total_duration + excluded.total_duration, " +
+            "total_calories = workout_daily_rollups.total_calories + excluded.total_calories", nativeQuery = true)
+    int upsertIntoRollup(@Param("userId") Long userId, @Param("workoutDate") LocalDate workoutDate,
+                         @Param("workoutType") String workoutType, @Param("count") int count,
+                         @Param("duration") long duration, @Param("calories") long calories);
+
+    /**
+     * Same as upsertIntoRollup() written as a standard SQL MERGE, for databases without ON CONFLICT (H2 in tests)
+     */
+    @Modifying
+    @Query(value = "merge into workout_daily_rollups r using (values (cast(:userId as bigint), cast(:workoutDate as date), " +
+            "cast(:workoutType as varchar(255)), cast(:count as int), cast(:duration as bigint), cast(:calories as bigint))) " +
+            "as d(user_id, workout_date, workout_type, workout_count, total_duration, total_calories) " +
+            "on r.user_id = d.user_id and r.workout_date = d.workout_date and r.workout_type = d.workout_type " +
+            "when matched then update set workout_count = r.workout_count + d.workout_count, " +
+            "total_duration = r.total_duration + d.total_duration, total_calories = r.total_calories + d.total_calories " +
+            "when not matched then insert (user_id, workout_date, workout_type, workout_count, total_duration, total_calories) " +
+            "values (d.user_id, d.workout_date, d.workout_type, d.workout_count, d.total_duration, d.total_calories)",
+            nativeQuery = true)
+    int mergeIntoRollup(@Param("userId") Long userId, @Param("workoutDate") LocalDate workoutDate,
+                        @Param("workoutType") String workoutType, @Param("count") int count,
+                        @Param("duration") long duration, @Param("calories") long calories);
+
+    /**
+     * Count, totals and averages per workout type for a date range, read from the rollup rows
+     */
+    @Query("select new com.eguglielmelli.dtos.WorkoutTypeStats(r.id.workoutType, sum(r.workoutCount), " +
+            "sum(r.totalDuration), sum(r.totalCalories)) from WorkoutDailyRollup r " +
+            "where r.id.userId = :userId and r.id.workoutDate between :from and :to " +
+            "group by r.id.workoutType having sum(r.workoutCount) > 0 order by r.id.workoutType")
+    List<WorkoutTypeStats> findTypeStats(@Param("userId") Long userId, @Param("from") LocalDate from,
+                                         @Param("to") LocalDate to);
+
+    /**
+     * Count and totals per day for a date range, read from the rollup rows
+     */
+    @Query("select new com.eguglielmelli.dtos.WorkoutPeriodStats(r.id.workoutDate, sum(r.workoutCount), " +
+            "sum(r.totalDuration), sum(r.totalCalories)) from WorkoutDailyRollup r " +
+            "where r.id.userId = :userId and r.id.workoutDate between :from and :to " +
+            "group by r.id.workoutDate having sum(r.workoutCount) > 0 order by r.id.workoutDate")
+    List<WorkoutPeriodStats> findDailyStats(@Param("userId") Long userId, @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(value = "delete from workout_daily_rollups", nativeQuery = true)
+    int deleteAllRollups();
+
+    /**
+     * Recompute every rollup row from the workouts table, run after deleteAllRollups()
+     */
+    @Modifying
+    @Query(value = "insert into workout_daily_rollups " +
+            "(user_id, workout_date, workout_type, workout_count, total_duration, total_calories) " +
+            "select user_id, date, workout_type, count(*), sum(workout_duration), sum(calories_burned) " +
+            "from workouts where user_deleted = false group by user_id, date, workout_type", nativeQuery = true)
+    int insertRollupsFromWorkouts();
+}
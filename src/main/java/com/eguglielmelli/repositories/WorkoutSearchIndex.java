@@ -0,0 +1,25 @@
+package com.eguglielmelli.repositories;
+
+import com.eguglielmelli.dtos.WorkoutSearchHit;
+
+import java.util.List;
+
+/**
+ * Full text search over the name and notes of a user's workouts
+ * app.search.mode picks the implementation, postgres (the default) uses the tsvector column
+ * from schema-postgresql.sql and memory ranks in the application, for H2 and other databases without one
+ */
+public interface WorkoutSearchIndex {
+
+    /**
+     * Workouts of a user matching every word of the query, ordered by rank and then id, both highest first
+     * Only hits strictly after (afterRank, afterId) in that order are returned
+     * @param userId id of user
+     * @param query words to search for
+     * @param afterRank rank of the last hit on the previous page
+     * @param afterId id of the last hit on the previous page
+     * @param limit max number of hits
+     * @return the hits
+     */
+    List<WorkoutSearchHit> search(Long userId, String query, float afterRank, long afterId, int limit);
+}
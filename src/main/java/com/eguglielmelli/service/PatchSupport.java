@@ -0,0 +1,31 @@
+package com.eguglielmelli.service;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Helpers for applying PATCH requests to entities
+ * Only touching fields whose value really changes keeps the entity clean for Hibernate's dirty check,
+ * so a request that changes nothing does not send an UPDATE at all
+ */
+final class PatchSupport {
+
+    private PatchSupport() {
+
+    }
+
+    /**
+     * Set a field only if a new value was sent and it differs from the current one
+     * @param newValue value from the patch, null means the field was not sent
+     * @param getter current value
+     * @param setter applies the new value
+     * @return true if the field was changed
+     */
+    static <T> boolean setIfChanged(T newValue, Supplier<T> getter, Consumer<T> setter) {
+        if(newValue == null || Objects.equals(newValue, getter.get())) {
+            return false;
+        }
+        setter.accept(newValue);
+        return true;
+    }
+}
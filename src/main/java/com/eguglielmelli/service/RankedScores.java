@@ -0,0 +1,217 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.LeaderboardEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Scores of users on one leaderboard, kept in an indexed skip list ordered by score, highest first
+ * Ties go to the lower user id so every user has a distinct rank
+ * Every link also stores how many entries it skips, that lets rank() count its way down the list
+ * so changing a score and looking up a rank are both O(log n), and the top k are the first k entries
+ * Not thread safe, callers lock around it
+ */
+final class RankedScores {
+
+    private static final int MAX_LEVEL = 32;
+
+    private final Node head = new Node(0L, 0L, MAX_LEVEL);
+
+    private final Map<Long, Node> byUser = new HashMap<>();
+
+    private int level = 1;
+
+    //entries currently linked into the list
+    private int length;
+
+    /**
+     * Add a delta to a user's score, a user whose score drops to 0 or below leaves the leaderboard
+     * @param userId id of user
+     * @param delta amount to add, negative to take away
+     */
+    void add(Long userId, long delta) {
+        if(delta == 0) {
+            return;
+        }
+        Node current = byUser.get(userId);
+        long score = delta;
+        if(current != null) {
+            score += current.score;
+            unlink(current);
+        }
+        if(score > 0) {
+            byUser.put(userId, insert(userId, score));
+        }
+        else {
+            byUser.remove(userId);
+        }
+    }
+
+    /**
+     * Take a user off the leaderboard
+     * @param userId id of user
+     */
+    void remove(Long userId) {
+        Node current = byUser.remove(userId);
+        if(current != null) {
+            unlink(current);
+        }
+    }
+
+    /**
+     * @param userId id of user
+     * @return score of the user, 0 when the user is not on the leaderboard
+     */
+    long score(Long userId) {
+        Node node = byUser.get(userId);
+        return node == null ? 0 : node.score;
+    }
+
+    /**
+     * @param userId id of user
+     * @return 1 based rank of the user, 0 when the user is not on the leaderboard
+     */
+    int rank(Long userId) {
+        Node target = byUser.get(userId);
+        if(target == null) {
+            return 0;
+        }
+        int rank = 0;
+        Node node = head;
+        for(int i = level - 1; i >= 0; i--) {
+            while(node.next[i] != null && compare(node.next[i], target.score, target.userId) <= 0) {
+                rank += node.span[i];
+                node = node.next[i];
+            }
+            if(node == target) {
+                return rank;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @param limit max number of entries
+     * @return the highest scores in rank order
+     */
+    List<LeaderboardEntry> top(int limit) {
+        List<LeaderboardEntry> entries = new ArrayList<>(Math.min(limit, byUser.size()));
+        Node node = head.next[0];
+        while(node != null && entries.size() < limit) {
+            entries.add(new LeaderboardEntry(entries.size() + 1, node.userId, node.score));
+            node = node.next[0];
+        }
+        return entries;
+    }
+
+    int size() {
+        return byUser.size();
+    }
+
+    private Node insert(Long userId, long score) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node node = head;
+        for(int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while(node.next[i] != null && compare(node.next[i], score, userId) < 0) {
+                rank[i] += node.span[i];
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+
+        int nodeLevel = randomLevel();
+        if(nodeLevel > level) {
+            for(int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = length;
+            }
+            level = nodeLevel;
+        }
+
+        Node inserted = new Node(userId, score, nodeLevel);
+        for(int i = 0; i < nodeLevel; i++) {
+            inserted.next[i] = update[i].next[i];
+            update[i].next[i] = inserted;
+            inserted.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        //the links above the new node now pass over one more entry
+        for(int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        length++;
+        return inserted;
+    }
+
+    private void unlink(Node target) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node node = head;
+        for(int i = level - 1; i >= 0; i--) {
+            while(node.next[i] != null && compare(node.next[i], target.score, target.userId) < 0) {
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+        for(int i = 0; i < level; i++) {
+            if(update[i].next[i] == target) {
+                update[i].span[i] += target.span[i] - 1;
+                update[i].next[i] = target.next[i];
+            }
+            else {
+                update[i].span[i]--;
+            }
+        }
+        while(level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        length--;
+    }
+
+    /**
+     * @return negative when the node ranks ahead of the given score and user
+     */
+    private static int compare(Node node, long score, Long userId) {
+        if(node.score != score) {
+            return node.score > score ? -1 : 1;
+        }
+        return node.userId.compareTo(userId);
+    }
+
+    /**
+     * Each level up is reached with probability 1/4, so a list of n entries is about log4(n) levels high
+     */
+    private static int randomLevel() {
+        int nodeLevel = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while(nodeLevel < MAX_LEVEL && random.nextInt(4) == 0) {
+            nodeLevel++;
+        }
+        return nodeLevel;
+    }
+
+    private static final class Node {
+
+        private final Long userId;
+
+        private final long score;
+
+        private final Node[] next;
+
+        //number of entries each link moves forward, counting the entry it lands on
+        private final int[] span;
+
+        private Node(Long userId, long score, int level) {
+            this.userId = userId;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutStats;
+import com.eguglielmelli.dtos.WorkoutSummary;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.repositories.ReactiveWorkoutRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Non blocking versions of the WorkoutService reads, same validation and same results
+ * No thread waits on the database, so one node can serve many more concurrent readers
+ * Only available when app.reactive.enabled=true
+ */
+@Service
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+public class ReactiveWorkoutService {
+
+    private final ReactiveWorkoutRepository reactiveWorkoutRepository;
+
+    @Autowired
+    public ReactiveWorkoutService(ReactiveWorkoutRepository reactiveWorkoutRepository) {
+        this.reactiveWorkoutRepository = reactiveWorkoutRepository;
+    }
+
+    /**
+     * A user's whole workout history as a stream, ordered by date and then id
+     * Unlike the paginated WorkoutService.getUsersWorkouts() there is no page limit,
+     * rows are read as fast as the client consumes them
+     * @param userId id of user
+     * @param from earliest workout date to include, null for no lower bound
+     * @param to latest workout date to include, null for no upper bound
+     * @param workoutType only include this type of workout, null for all types
+     * @return the workouts
+     */
+    public Flux<WorkoutSummary> getUsersWorkouts(Long userId, LocalDate from, LocalDate to, WorkoutType workoutType) {
+        LocalDate start = from == null ? WorkoutService.EARLIEST_DATE : from;
+        LocalDate end = to == null ? WorkoutService.LATEST_DATE : to;
+        if(start.isAfter(end)) {
+            return Flux.error(new IllegalArgumentException("From date must not be after to date"));
+        }
+        return requireUser(userId)
+                .thenMany(reactiveWorkoutRepository.findByUserId(userId, start, end, workoutType));
+    }
+
+    /**
+     * @param userId id of the user that owns the workout
+     * @param workoutId id of workout
+     * @return the workout, an error if it does not exist or belongs to another user
+     */
+    public Mono<WorkoutSummary> getWorkoutInfo(Long userId, Long workoutId) {
+        return reactiveWorkoutRepository.findByIdAndUserId(workoutId, userId)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Workout with that id is not found")));
+    }
+
+    /**
+     * Same as WorkoutService.getWorkoutStats(), read from the daily rollups
+     * The type and day queries run concurrently
+     * @param userId id of user
+     * @param from first day to include, null for no lower bound
+     * @param to last day to include, null for no upper bound
+     * @return the aggregated stats
+     */
+    public Mono<WorkoutStats> getWorkoutStats(Long userId, LocalDate from, LocalDate to) {
+        LocalDate start = from == null ? WorkoutService.EARLIEST_DATE : from;
+        LocalDate end = to == null ? WorkoutService.LATEST_DATE : to;
+        if(start.isAfter(end)) {
+            return Mono.error(new IllegalArgumentException("From date must not be after to date"));
+        }
+        return requireUser(userId).then(Mono.zip(
+                        reactiveWorkoutRepository.findTypeStats(userId, start, end).collectList(),
+                        reactiveWorkoutRepository.findDailyStats(userId, start, end).collectList())
+                .map(stats -> new WorkoutStats(start, end, stats.getT1(),
+                        WorkoutService.toWeeklyStats(stats.getT2()))));
+    }
+
+    private Mono<Void> requireUser(Long userId) {
+        return reactiveWorkoutRepository.existsUserById(userId)
+                .flatMap(exists -> exists ? Mono.<Void>empty()
+                        : Mono.error(new IllegalArgumentException("User with that id is not found")));
+    }
+}
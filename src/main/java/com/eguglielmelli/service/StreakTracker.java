@@ -0,0 +1,90 @@
+package com.eguglielmelli.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Days with at least one workout, kept as runs of consecutive days so streaks never need a full scan
+ * Adding or removing a day merges or splits at most two runs, every operation is O(log n) in the number of days
+ * Days are epoch days. Not thread safe, UserRecordsState guards it
+ */
+final class StreakTracker {
+
+    //number of workouts on each day
+    private final TreeMap<Integer, Integer> workoutsPerDay = new TreeMap<>();
+
+    //first day of every run of consecutive days -> last day of that run
+    private final TreeMap<Integer, Integer> runs = new TreeMap<>();
+
+    //length of a run -> how many runs have that length, the last key is the longest streak
+    private final TreeMap<Integer, Integer> runLengths = new TreeMap<>();
+
+    void addWorkout(int day) {
+        if(workoutsPerDay.merge(day, 1, Integer::sum) > 1) {
+            return;
+        }
+        int start = day;
+        int end = day;
+        Map.Entry<Integer, Integer> before = runs.floorEntry(day - 1);
+        if(before != null && before.getValue() == day - 1) {
+            start = before.getKey();
+            removeRun(before.getKey(), before.getValue());
+        }
+        Integer afterEnd = runs.get(day + 1);
+        if(afterEnd != null) {
+            end = afterEnd;
+            removeRun(day + 1, afterEnd);
+        }
+        addRun(start, end);
+    }
+
+    void removeWorkout(int day) {
+        Integer count = workoutsPerDay.get(day);
+        if(count == null) {
+            return;
+        }
+        if(count > 1) {
+            workoutsPerDay.put(day, count - 1);
+            return;
+        }
+        workoutsPerDay.remove(day);
+        Map.Entry<Integer, Integer> run = runs.floorEntry(day);
+        int start = run.getKey();
+        int end = run.getValue();
+        removeRun(start, end);
+        if(start < day) {
+            addRun(start, day - 1);
+        }
+        if(day < end) {
+            addRun(day + 1, end);
+        }
+    }
+
+    int longestStreak() {
+        return runLengths.isEmpty() ? 0 : runLengths.lastKey();
+    }
+
+    /**
+     * Streak that is still alive, a streak only breaks once a whole day passes without a workout
+     * so a run that ended yesterday still counts. Workouts logged ahead of today are not counted
+     * @param today current epoch day
+     * @return length of the current streak, 0 if there is none
+     */
+    int currentStreak(int today) {
+        Map.Entry<Integer, Integer> run = runs.floorEntry(today);
+        if(run == null || run.getValue() < today - 1) {
+            return 0;
+        }
+        return Math.min(run.getValue(), today) - run.getKey() + 1;
+    }
+
+    private void addRun(int start, int end) {
+        runs.put(start, end);
+        runLengths.merge(end - start + 1, 1, Integer::sum);
+    }
+
+    private void removeRun(int start, int end) {
+        runs.remove(start);
+        runLengths.computeIfPresent(end - start + 1, (length, count) -> count == 1 ? null : count - 1);
+    }
+}
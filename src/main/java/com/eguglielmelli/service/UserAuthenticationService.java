@@ -0,0 +1,79 @@
+package com.eguglielmelli.service;
+import com.eguglielmelli.config.CacheConfig;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import javax.transaction.Transactional;
+
+/**
+ * Lets spring security authenticate our users by username and password
+ * After a successful login spring security asks the password encoder if the stored hash is weaker than
+ * what we hash with today (old format or lower bcrypt strength), if so it calls updatePassword()
+ * with a fresh hash, so stored hashes are migrated as users log in
+ * Logging in is HTTP Basic, which is off unless app.security.basic-auth.enabled is set (see SecurityConfig)
+ */
+@Service
+public class UserAuthenticationService implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final String ROLE_USER = "USER";
+
+    private final UserRepository userRepository;
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public UserAuthenticationService(UserRepository userRepository, CacheManager cacheManager) {
+        this.userRepository = userRepository;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Usernames are stored in lowercase, see UserService.createUser()
+     * @param username name the user logs in with
+     * @return the user's credentials
+     */
+    @Override
+    @Transactional
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        User user = userRepository.findByusername(username.toLowerCase())
+                .orElseThrow(() -> new UsernameNotFoundException("User with that username is not found"));
+        return org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
+                .password(user.getPassword())
+                .roles(ROLE_USER)
+                .build();
+    }
+
+    /**
+     * Store the upgraded hash of a user that just logged in
+     * @param userDetails the authenticated user
+     * @param newPassword the password hashed with the current encoder settings
+     * @return the user details with the new hash
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByusername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User with that username is not found"));
+        user.setPassword(newPassword);
+
+        //the cached user still has the old hash, and so does the user on every cached workout
+        Cache users = cacheManager.getCache(CacheConfig.USERS_CACHE);
+        if(users != null) {
+            users.evict(user.getId());
+        }
+        Cache workouts = cacheManager.getCache(CacheConfig.WORKOUTS_CACHE);
+        if(workouts != null) {
+            workouts.clear();
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.eguglielmelli.service;
+
+/**
+ * Published by UserService when a user is soft deleted, in memory data about other users
+ * (like the leaderboards) drops the user once the delete commits
+ */
+public final class UserDeletedEvent {
+
+    private final Long userId;
+
+    public UserDeletedEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
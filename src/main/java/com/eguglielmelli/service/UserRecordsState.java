@@ -0,0 +1,134 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutRecord;
+import com.eguglielmelli.dtos.WorkoutRecords;
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.dtos.WorkoutTypeRecords;
+import com.eguglielmelli.entities.WorkoutType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Streaks and personal records of one user, updated from WorkoutChangedEvents
+ * Every change is applied in O(log n). A new or improved workout can only raise a record so that is a compare,
+ * but when the record holder is deleted or gets worse we cannot know the runner up, the record is
+ * then marked stale and looked up again (one query for that type) the next time the records are read
+ * Applying the same change twice has no effect, so a change that was already part of the initial load is harmless
+ */
+final class UserRecordsState {
+
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+
+    //day of every workout we know about, keyed by id so a repeated change is not counted twice
+    private final Map<Long, Integer> workoutDays = new HashMap<>();
+
+    private final StreakTracker streaks = new StreakTracker();
+
+    private final WorkoutSnapshot[] longestDuration = new WorkoutSnapshot[TYPES.length];
+
+    private final WorkoutSnapshot[] mostCalories = new WorkoutSnapshot[TYPES.length];
+
+    private final boolean[] longestDurationStale = new boolean[TYPES.length];
+
+    private final boolean[] mostCaloriesStale = new boolean[TYPES.length];
+
+    synchronized void apply(WorkoutChangedEvent event) {
+        WorkoutSnapshot before = event.getBefore();
+        WorkoutSnapshot after = event.getAfter();
+        if(before != null) {
+            invalidateRecords(before, after);
+        }
+        if(after == null) {
+            Integer day = workoutDays.remove(before.getId());
+            if(day != null) {
+                streaks.removeWorkout(day);
+            }
+            return;
+        }
+        int day = (int) after.getDate().toEpochDay();
+        Integer previousDay = workoutDays.put(after.getId(), day);
+        if(previousDay == null || previousDay != day) {
+            if(previousDay != null) {
+                streaks.removeWorkout(previousDay);
+            }
+            streaks.addWorkout(day);
+        }
+        offer(after);
+    }
+
+    /**
+     * Current streaks and records, stale records are looked up first
+     * @param today current epoch day
+     * @param findLongestDuration workout with the longest duration of a type, null if the user has none
+     * @param findMostCalories workout with the most calories of a type, null if the user has none
+     * @return the user's records
+     */
+    synchronized WorkoutRecords toRecords(int today, Function<WorkoutType, WorkoutSnapshot> findLongestDuration,
+                                          Function<WorkoutType, WorkoutSnapshot> findMostCalories) {
+        List<WorkoutTypeRecords> byType = new ArrayList<>();
+        for(WorkoutType workoutType : TYPES) {
+            int type = workoutType.ordinal();
+            if(longestDurationStale[type]) {
+                longestDuration[type] = findLongestDuration.apply(workoutType);
+                longestDurationStale[type] = false;
+            }
+            if(mostCaloriesStale[type]) {
+                mostCalories[type] = findMostCalories.apply(workoutType);
+                mostCaloriesStale[type] = false;
+            }
+            if(longestDuration[type] != null) {
+                byType.add(new WorkoutTypeRecords(workoutType,
+                        toRecord(longestDuration[type], WorkoutSnapshot::getDurationInMinutes),
+                        toRecord(mostCalories[type], WorkoutSnapshot::getCaloriesBurned)));
+            }
+        }
+        return new WorkoutRecords(streaks.currentStreak(today), streaks.longestStreak(), byType);
+    }
+
+    /**
+     * The workout was changed or deleted, if it held a record and no longer does as well the record is unknown
+     */
+    private void invalidateRecords(WorkoutSnapshot before, WorkoutSnapshot after) {
+        int type = before.getWorkoutType().ordinal();
+        boolean sameType = after != null && after.getWorkoutType() == before.getWorkoutType();
+        if(holds(longestDuration[type], before)
+                && (!sameType || after.getDurationInMinutes() < longestDuration[type].getDurationInMinutes())) {
+            longestDurationStale[type] = true;
+        }
+        if(holds(mostCalories[type], before)
+                && (!sameType || after.getCaloriesBurned() < mostCalories[type].getCaloriesBurned())) {
+            mostCaloriesStale[type] = true;
+        }
+    }
+
+    /**
+     * Make the workout the record holder if it beats the current record, or refresh it if it already holds it
+     * Ties keep the earlier holder, a stale record is left for the lookup to settle
+     */
+    private void offer(WorkoutSnapshot workout) {
+        int type = workout.getWorkoutType().ordinal();
+        WorkoutSnapshot duration = longestDuration[type];
+        if(!longestDurationStale[type] && (duration == null || holds(duration, workout)
+                || workout.getDurationInMinutes() > duration.getDurationInMinutes())) {
+            longestDuration[type] = workout;
+        }
+        WorkoutSnapshot calories = mostCalories[type];
+        if(!mostCaloriesStale[type] && (calories == null || holds(calories, workout)
+                || workout.getCaloriesBurned() > calories.getCaloriesBurned())) {
+            mostCalories[type] = workout;
+        }
+    }
+
+    private static boolean holds(WorkoutSnapshot holder, WorkoutSnapshot workout) {
+        return holder != null && holder.getId().equals(workout.getId());
+    }
+
+    private static WorkoutRecord toRecord(WorkoutSnapshot workout, ToIntFunction<WorkoutSnapshot> value) {
+        return workout == null ? null : new WorkoutRecord(workout.getId(), workout.getDate(), value.applyAsInt(workout));
+    }
+}
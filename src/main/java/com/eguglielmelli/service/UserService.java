@@ -1,16 +1,29 @@
 package com.eguglielmelli.service;
+import com.eguglielmelli.config.CacheConfig;
+import com.eguglielmelli.dtos.ResourceVersion;
 import com.eguglielmelli.dtos.UserDto;
+import com.eguglielmelli.dtos.UserPatchDto;
 import com.eguglielmelli.dtos.UserUpdateDto;
 import com.eguglielmelli.entities.User;
 import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.repositories.WorkoutRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 import javax.validation.Validator;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -21,23 +34,38 @@ import java.util.function.Consumer;
 @Service
 public class UserService {
 
+    private static final String USERNAME_TAKEN = "A user with this username already exists.";
+    private static final String EMAIL_TAKEN = "A user with this email already exists.";
+
     private final UserRepository userRepository;
+    private final WorkoutRepository workoutRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
 
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, Validator validator) {
+    public UserService(UserRepository userRepository, WorkoutRepository workoutRepository,
+                       PasswordEncoder passwordEncoder, Validator validator,
+                       ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
+        this.workoutRepository = workoutRepository;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
 
     }
 
     /**
      * Method to create our user, validation will be done in
-     * validateUserBeforeCreation() method
+     * validateUserBeforeCreation() method, taken usernames and emails are checked in checkUniqueFields()
+     * Two concurrent sign-ups can both pass that check, the unique indexes then reject the second insert
+     * and the violation is turned into the same message the check would have given
+     * The password is hashed before the transaction starts and before anything touches the database,
+     * so a sign-up waiting for the hashing pool does not hold a connection (see hashPassword())
      * @param userDto to hold user data being transferred
      */
-    @Transactional
     public User createUser(@Valid UserDto userDto) {
         if(userDto == null) {
             throw new IllegalArgumentException("UserDto cannot be null");
@@ -49,16 +77,21 @@ public class UserService {
         BigDecimal height = Optional.ofNullable(userDto.getHeight()).orElse(BigDecimal.ZERO);
         BigDecimal weight = Optional.ofNullable(userDto.getWeight()).orElse(BigDecimal.ZERO);
 
+        //VERY IMPORTANT: encode user password before sending to the repository
         User user = new User(
-                userDto.getFullName().toLowerCase(),userDto.getUsername().toLowerCase(),userDto.getPassword(),
-                userDto.getEmail().toLowerCase(),userDto.getAge(), weight, height,
+                userDto.getFullName().toLowerCase(),userDto.getUsername().toLowerCase(),
+                hashPassword(userDto.getPassword()), userDto.getEmail().toLowerCase(),userDto.getAge(), weight, height,
                 userDto.isMetricSystem(),false
         );
-        //VERY IMPORTANT: encode user password before sending to the repository
-        String encodedPassword = passwordEncoder.encode(userDto.getPassword());
-        user.setPassword(encodedPassword);
 
-        return userRepository.save(user);
+        try {
+            return transactionTemplate.execute(status -> {
+                checkUniqueFields(userDto);
+                return userRepository.save(user);
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw translateUniqueViolation(e);
+        }
     }
 
     /**
@@ -66,13 +99,24 @@ public class UserService {
      * method since it is more complex)
      * Users do not have to include all information, they can choose what to include
      * but the validator will still make sure requirements are abided by (i.e valid email format etc)
+     * Cached workouts carry their user, they are not indexed by user so that whole cache is cleared
+     * A new password is hashed before the transaction starts, like in createUser()
      * @param id of user
      * @param userUpdateDto user data transfer object containing all of the new info
+     * @param expectedVersion version the client based the update on (from If-Match), null to skip the check
      * @return true if updated, false otherwise
      */
-    @Transactional
-    public boolean updateUserInfo(Long id, @Valid UserUpdateDto userUpdateDto) {
-        return updateUser(id, user ->  {
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.WORKOUTS_CACHE, allEntries = true)
+    })
+    public boolean updateUserInfo(Long id, @Valid UserUpdateDto userUpdateDto, Long expectedVersion) {
+        String encodedPassword = null;
+        if(userUpdateDto.getPassword() != null && !userUpdateDto.getPassword().isEmpty()) {
+            encodedPassword = hashPassword(userUpdateDto.getPassword());
+        }
+        String newPassword = encodedPassword;
+        return transactionTemplate.execute(status -> updateUser(id, expectedVersion, user ->  {
             if(userUpdateDto.getEmail() != null && !userUpdateDto.getEmail().isEmpty()) {
                 user.setEmail(userUpdateDto.getEmail().toLowerCase());
             }
@@ -88,39 +132,132 @@ public class UserService {
             if(userUpdateDto.getWeight() != null && userUpdateDto.getWeight().compareTo(BigDecimal.ZERO) > 0) {
                 user.setWeight(userUpdateDto.getWeight().setScale(1, RoundingMode.HALF_UP));
             }
-            if(userUpdateDto.getPassword() != null && !userUpdateDto.getPassword().isEmpty()) {
-                user.setPassword(passwordEncoder.encode(userUpdateDto.getPassword()));
+            if(newPassword != null) {
+                user.setPassword(newPassword);
             }
             if(userUpdateDto.isMetricSystem() != user.isMetricSystem()) {
                 user.setMetricSystem(userUpdateDto.isMetricSystem());
             }
-        });
+        }));
+    }
+
+    /**
+     * Partial update of a user, only the fields present in the dto are changed
+     * Same normalization as updateUserInfo() (lowercase email and username, one decimal for height and weight)
+     * Fields are only written when the value is actually different so a request that changes nothing
+     * sends no UPDATE, and User uses dynamic updates so only the changed columns are written
+     * Clears the cached workouts like updateUserInfo() since they carry their user
+     * A new password is hashed before the transaction starts, like in createUser()
+     * @param id of user
+     * @param userPatchDto fields to change, null fields are left alone
+     * @param expectedVersion version the client based the patch on (from If-Match), null to skip the check
+     * @return true if the user was found, false otherwise
+     */
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.WORKOUTS_CACHE, allEntries = true)
+    })
+    public boolean patchUser(Long id, @Valid UserPatchDto userPatchDto, Long expectedVersion) {
+        if(userPatchDto == null) {
+            throw new IllegalArgumentException("UserPatchDto cannot be null");
+        }
+        //the stored hash is salted so we cannot compare, a new password is always written
+        String newPassword = userPatchDto.getPassword() != null ? hashPassword(userPatchDto.getPassword()) : null;
+        return transactionTemplate.execute(status -> applyPatch(id, userPatchDto, newPassword, expectedVersion));
+    }
+
+    /**
+     * Transactional part of patchUser()
+     * @param id of user
+     * @param userPatchDto fields to change
+     * @param newPassword hash of the new password, null to keep the current one
+     * @param expectedVersion version the client based the patch on, null to skip the check
+     * @return true if the user was found, false otherwise
+     */
+    private boolean applyPatch(Long id, UserPatchDto userPatchDto, String newPassword, Long expectedVersion) {
+        Optional<User> foundUser = userRepository.findById(id);
+        if(foundUser.isEmpty()) {
+            return false;
+        }
+        checkVersion(foundUser.get(), expectedVersion);
+        if(userPatchDto.isEmpty()) {
+            return true;
+        }
+
+        User user = foundUser.get();
+        if(userPatchDto.getEmail() != null) {
+            PatchSupport.setIfChanged(userPatchDto.getEmail().toLowerCase(), user::getEmail, user::setEmail);
+        }
+        if(userPatchDto.getUsername() != null) {
+            PatchSupport.setIfChanged(userPatchDto.getUsername().toLowerCase(), user::getUsername, user::setUsername);
+        }
+        PatchSupport.setIfChanged(userPatchDto.getAge(), user::getAge, user::setAge);
+        if(userPatchDto.getHeight() != null) {
+            PatchSupport.setIfChanged(userPatchDto.getHeight().setScale(1, RoundingMode.HALF_UP),
+                    user::getHeight, user::setHeight);
+        }
+        if(userPatchDto.getWeight() != null) {
+            PatchSupport.setIfChanged(userPatchDto.getWeight().setScale(1, RoundingMode.HALF_UP),
+                    user::getWeight, user::setWeight);
+        }
+        PatchSupport.setIfChanged(userPatchDto.getMetricSystem(), user::isMetricSystem, user::setMetricSystem);
+        if(newPassword != null) {
+            user.setPassword(newPassword);
+        }
+        flushUniqueFields();
+        return true;
     }
 
     /**
      * Soft delete the user from the database if they choose
      * we will just mark isDeleted() to be true, save to repository and return
+     * From then on the user and their workouts are filtered out of every query
+     * Cached workouts are not indexed by user so that whole cache is cleared, deletes are rare
+     * A UserDeletedEvent takes the user off the leaderboards once the delete commits
      * @param id user's id
      * @return true if soft delete and false if user is not found
      */
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.USER_EXISTS_CACHE, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.WORKOUTS_CACHE, allEntries = true)
+    })
     public boolean deleteUser(Long id) {
-        return updateUser(id, user -> user.setDeleted(true));
+        boolean deleted = updateUser(id, null, user -> user.setDeleted(true));
+        if(deleted) {
+            workoutRepository.markUserDeleted(id);
+            eventPublisher.publishEvent(new UserDeletedEvent(id));
+        }
+        return deleted;
     }
 
     /**
      * Method to get user's info such as name, password etc
      * This will be displayed in a menu where users can adjust info as needed
+     * Results are cached by id, updateUserInfo() and deleteUser() evict the entry
+     * A missing user is not cached, the id may still be taken by a user created later
      * @param id of user
-     * @return user object corresponding to the given id
+     * @return user object corresponding to the given id, empty if there is none
      */
     @Transactional
+    @Cacheable(cacheNames = CacheConfig.USERS_CACHE, key = "#id", unless = "#result == null")
     public Optional<User> getUserInfo(Long id) {
-        return Optional.ofNullable(userRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("User with that id is not found")));
+        return userRepository.findById(id);
     }
 
 
+    /**
+     * Version and last update time of a user, lets the controller answer a conditional GET
+     * with 304 before the user itself is read
+     * @param id of user
+     * @return version of the user, empty if there is no such user
+     */
+    @Transactional
+    public Optional<ResourceVersion> getUserVersion(Long id) {
+        return userRepository.findVersionById(id);
+    }
+
     /**
      * Validation method to make sure user data is acceptable before
      * saving it to the user repository in createUser()
@@ -135,20 +272,10 @@ public class UserService {
             throw new IllegalArgumentException("Username must not be empty or null.");
         }
 
-        //username must be unique according to our annotations, so we check here
-        if(userRepository.findByusername(userDto.getUsername()).isPresent()) {
-            throw new IllegalArgumentException("A user with this username already exists.");
-        }
-
         if(userDto.getEmail() == null || userDto.getEmail().isEmpty()) {
             throw new IllegalArgumentException("Email must not empty or null.");
         }
 
-        //need to do the same thing as above with email, spring should check format
-        if(userRepository.findByemail(userDto.getEmail()).isPresent()) {
-            throw new IllegalArgumentException("A user with this email already exists.");
-        }
-
         if(userDto.getPassword() == null || userDto.getPassword().isEmpty()) {
             throw new IllegalArgumentException("Password must not be empty or null.");
         }
@@ -159,22 +286,94 @@ public class UserService {
         }
     }
 
+    /**
+     * Make sure no other user has the username or email of a new user, runs in createUser()'s transaction
+     * @param userDto to carry user data being transferred
+     */
+    private void checkUniqueFields(UserDto userDto) {
+        //username and email must both be unique, one query checks both and tells us which one is taken
+        List<String> conflicts = userRepository.findConflictingUsernames(userDto.getUsername(), userDto.getEmail());
+        if(conflicts.contains(userDto.getUsername().toLowerCase())) {
+            throw new IllegalArgumentException(USERNAME_TAKEN);
+        }
+        if(!conflicts.isEmpty()) {
+            throw new IllegalArgumentException(EMAIL_TAKEN);
+        }
+    }
+
+    /**
+     * Hash a password, callers do this before their transaction starts
+     * The encoder waits for a slot in the bounded hashing pool (see BoundedPasswordEncoder), inside a transaction
+     * that wait would hold a database connection and a burst of sign-ups could take all of them
+     * @param rawPassword password as the user typed it
+     * @return the hash to store
+     */
+    private String hashPassword(String rawPassword) {
+        return passwordEncoder.encode(rawPassword);
+    }
+
+    /**
+     * Map a unique index violation from the insert to the message checkUniqueFields() uses
+     * Any other integrity problem is returned unchanged
+     * @param e exception thrown by the repository
+     * @return exception to throw
+     */
+    private RuntimeException translateUniqueViolation(DataIntegrityViolationException e) {
+        if(e.getCause() instanceof ConstraintViolationException) {
+            String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+            if(constraintName != null && constraintName.toLowerCase().contains("username")) {
+                return new IllegalArgumentException(USERNAME_TAKEN);
+            }
+            if(constraintName != null && constraintName.toLowerCase().contains("email")) {
+                return new IllegalArgumentException(EMAIL_TAKEN);
+            }
+        }
+        return e;
+    }
+
     /**
      * Method allow for cleaning up duplicate code in deleting and updating various attributes
      * of user class
      * @param id of user
+     * @param expectedVersion version the client based the update on, null to skip the check
      * @param updateAction which parameter will be passed into the prospective methods
      * @return true if success, false otherwise
      */
-    private boolean updateUser(Long id, Consumer<User> updateAction) {
+    private boolean updateUser(Long id, Long expectedVersion, Consumer<User> updateAction) {
         Optional<User> foundUser = userRepository.findById(id);
         if(foundUser.isPresent()) {
             User user = foundUser.get();
+            checkVersion(user, expectedVersion);
             updateAction.accept(user);
             userRepository.save(user);
+            flushUniqueFields();
             return true;
         }
         return false;
     }
 
+    /**
+     * Send the pending changes of a user now, a username or email another user took in the meantime
+     * is rejected by the unique indexes and gets the same message as on sign-up instead of failing the commit
+     */
+    private void flushUniqueFields() {
+        try {
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw translateUniqueViolation(e);
+        }
+    }
+
+    /**
+     * Fail fast when the client's copy of the user is already out of date
+     * A concurrent update between this check and the commit is still caught by hibernate's version check
+     * @param user current user
+     * @param expectedVersion version the client has, null when the client did not send one
+     */
+    private void checkVersion(User user, Long expectedVersion) {
+        if(expectedVersion != null && expectedVersion != user.getVersion()) {
+            throw new VersionMismatchException("User has been modified since version " + expectedVersion,
+                    user.getVersion());
+        }
+    }
 }
@@ -0,0 +1,19 @@
+package com.eguglielmelli.service;
+
+/**
+ * Thrown when a client updates a user or workout based on a version that is no longer the current one,
+ * usually because another device changed it in the meantime
+ */
+public class VersionMismatchException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public VersionMismatchException(String message, long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,154 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.config.CacheConfig;
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.dtos.WorkoutStats;
+import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.repositories.WorkoutRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.transaction.Transactional;
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * Analytics over a user's whole history, answered from a WorkoutSeries kept in the workoutSeries cache
+ * The first question for a user loads the series in one streamed query, later ones never touch the database,
+ * committed workout changes are applied to the cached series instead of dropping it
+ * A change that committed while the series was loading may already be in it, the series can not tell,
+ * so it is dropped instead and the next question reloads it (see WorkoutSeries.getLoadSequence())
+ */
+@Service
+public class WorkoutAnalyticsService {
+
+    private final WorkoutRepository workoutRepository;
+
+    private final UserRepository userRepository;
+
+    private final Cache seriesCache;
+
+    @Autowired
+    public WorkoutAnalyticsService(WorkoutRepository workoutRepository, UserRepository userRepository,
+                                   CacheManager cacheManager) {
+        this.workoutRepository = workoutRepository;
+        this.userRepository = userRepository;
+        this.seriesCache = cacheManager.getCache(CacheConfig.WORKOUT_SERIES_CACHE);
+    }
+
+    /**
+     * Totals by type and by week for a date range, same result as WorkoutService.getWorkoutStats()
+     * @param userId id of user
+     * @param from first day to include, null for no lower bound
+     * @param to last day to include, null for no upper bound
+     * @return the aggregated stats
+     */
+    @Transactional
+    public WorkoutStats getWorkoutStats(Long userId, LocalDate from, LocalDate to) {
+        LocalDate start = from == null ? WorkoutService.EARLIEST_DATE : from;
+        LocalDate end = to == null ? WorkoutService.LATEST_DATE : to;
+        if(start.isAfter(end)) {
+            throw new IllegalArgumentException("From date must not be after to date");
+        }
+        if(!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User with that id is not found");
+        }
+        return getSeries(userId).stats(start, end);
+    }
+
+    /**
+     * The user's series, loaded from the database if it is not cached
+     * @param userId id of an existing user
+     * @return the series
+     */
+    @Transactional
+    public WorkoutSeries getSeries(Long userId) {
+        return seriesCache.get(userId, () -> loadSeries(userId));
+    }
+
+    /**
+     * Apply a committed change to the user's series if it is cached, otherwise the next load will include it
+     * The series is replaced by a changed copy, readers holding the old one are not affected
+     * Blocks while the same user's series is being loaded so the change is applied on top of it
+     * When the old values of an update or delete are not in the series the delta can not be applied,
+     * the series is dropped then and the next question reloads it
+     * The series is dropped as well when the event was created before its load finished
+     * @param event change to one of the user's workouts
+     */
+    @TransactionalEventListener
+    public void workoutChanged(WorkoutChangedEvent event) {
+        cachedSeries().computeIfPresent(event.getUserId(), (userId, series) ->
+                loadedBefore((WorkoutSeries) series, event.getSequence())
+                        ? apply((WorkoutSeries) series, event.getBefore(), event.getAfter()) : null);
+    }
+
+    /**
+     * Add every workout of a committed import to the user's series if it is cached
+     * @param event the imported workouts
+     */
+    @TransactionalEventListener
+    public void workoutsImported(WorkoutsImportedEvent event) {
+        cachedSeries().computeIfPresent(event.getUserId(), (userId, series) ->
+                loadedBefore((WorkoutSeries) series, event.getSequence())
+                        ? ((WorkoutSeries) series).withAdded(event.getCreated()) : null);
+    }
+
+    /**
+     * The event was created inside its transaction, if that happened after the load finished the change
+     * committed after the load read the database and is not in the series yet
+     */
+    private static boolean loadedBefore(WorkoutSeries series, long eventSequence) {
+        return eventSequence > series.getLoadSequence();
+    }
+
+    /**
+     * @return the series with the change applied, null when the old values are not in it
+     */
+    private static WorkoutSeries apply(WorkoutSeries series, WorkoutSnapshot before, WorkoutSnapshot after) {
+        if(before != null && after != null && sameValues(before, after)) {
+            return series;
+        }
+        WorkoutSeries updated = series;
+        if(before != null) {
+            updated = updated.withRemoved(before.getDate(), before.getWorkoutType(), before.getDurationInMinutes(),
+                    before.getCaloriesBurned());
+            if(updated == null) {
+                return null;
+            }
+        }
+        if(after != null) {
+            updated = updated.withAdded(after.getDate(), after.getWorkoutType(), after.getDurationInMinutes(),
+                    after.getCaloriesBurned());
+        }
+        return updated;
+    }
+
+    private static boolean sameValues(WorkoutSnapshot before, WorkoutSnapshot after) {
+        return before.getDate().equals(after.getDate()) && before.getWorkoutType() == after.getWorkoutType()
+                && before.getDurationInMinutes() == after.getDurationInMinutes()
+                && before.getCaloriesBurned() == after.getCaloriesBurned();
+    }
+
+    /**
+     * The caffeine cache behind the series cache, updated through its map view so a change is applied atomically
+     * Changes are applied after commit already, so going around the transaction aware wrapper is what we want
+     */
+    @SuppressWarnings("unchecked")
+    private ConcurrentMap<Object, Object> cachedSeries() {
+        return ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) seriesCache.getNativeCache()).asMap();
+    }
+
+    private WorkoutSeries loadSeries(Long userId) {
+        WorkoutSeries.Builder builder = WorkoutSeries.builder();
+        try(Stream<WorkoutSnapshot> workouts = workoutRepository.streamSnapshotsByUserId(userId)) {
+            workouts.forEach(workout -> builder.add(workout.getDate(), workout.getWorkoutType(),
+                    workout.getDurationInMinutes(), workout.getCaloriesBurned()));
+        }
+        //taken once every row is read, any event created up to now may or may not be in what we read
+        return builder.build(WorkoutChangedEvent.lastSequence());
+    }
+}
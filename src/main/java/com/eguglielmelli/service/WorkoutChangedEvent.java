@@ -0,0 +1,82 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Published by WorkoutService for every workout it creates, updates or deletes
+ * For in memory derived data (analytics series, records, leaderboards), listeners should use
+ * @TransactionalEventListener so a rolled back write never reaches them
+ * The rollups live in the database and are still updated directly inside the write transaction
+ * Every event gets a sequence number when it is created, inside the write transaction, so a listener can
+ * tell whether data it loaded from the database could already contain the change (see WorkoutAnalyticsService)
+ */
+public final class WorkoutChangedEvent {
+
+    //shared with WorkoutsImportedEvent
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final WorkoutSnapshot before;
+
+    private final WorkoutSnapshot after;
+
+    private final long sequence;
+
+    private WorkoutChangedEvent(WorkoutSnapshot before, WorkoutSnapshot after) {
+        this.before = before;
+        this.after = after;
+        this.sequence = nextSequence();
+    }
+
+    static long nextSequence() {
+        return SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * @return sequence number of the last event created so far, every later event has a higher one
+     */
+    static long lastSequence() {
+        return SEQUENCE.get();
+    }
+
+    public static WorkoutChangedEvent created(WorkoutSnapshot after) {
+        return new WorkoutChangedEvent(null, after);
+    }
+
+    public static WorkoutChangedEvent updated(WorkoutSnapshot before, WorkoutSnapshot after) {
+        return new WorkoutChangedEvent(before, after);
+    }
+
+    public static WorkoutChangedEvent deleted(WorkoutSnapshot before) {
+        return new WorkoutChangedEvent(before, null);
+    }
+
+    /**
+     * @return values before the change, null for a created workout
+     */
+    public WorkoutSnapshot getBefore() {
+        return before;
+    }
+
+    /**
+     * @return values after the change, null for a deleted workout
+     */
+    public WorkoutSnapshot getAfter() {
+        return after;
+    }
+
+    /**
+     * @return number of this event, taken before the change committed
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return owner of the workout, a workout never moves between users
+     */
+    public Long getUserId() {
+        return after != null ? after.getUserId() : before.getUserId();
+    }
+}
@@ -0,0 +1,72 @@
+package com.eguglielmelli.service;
+import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.repositories.WorkoutRepository;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a user's full workout history as newline delimited JSON, one workout per line
+ * Workouts are streamed from the database and written one at a time, so memory use stays the same
+ * no matter how many workouts the user has
+ */
+@Service
+public class WorkoutExportService {
+
+    private final WorkoutRepository workoutRepository;
+
+    private final UserRepository userRepository;
+
+    private final EntityManager entityManager;
+
+    private final ObjectWriter workoutWriter;
+
+    @Autowired
+    public WorkoutExportService(WorkoutRepository workoutRepository, UserRepository userRepository,
+                                EntityManager entityManager, ObjectMapper objectMapper) {
+        this.workoutRepository = workoutRepository;
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        //every line belongs to the same user, no need to repeat (or load) it for each workout
+        this.workoutWriter = objectMapper.copy()
+                .addMixIn(Workout.class, WorkoutWithoutUser.class)
+                .writerFor(Workout.class);
+    }
+
+    /**
+     * Export every workout of a user, ordered by date and then id
+     * @param userId id of user
+     * @param out stream the workouts are written to, it is not closed here
+     */
+    @Transactional
+    public void exportWorkouts(Long userId, OutputStream out) throws IOException {
+        if(!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User with that id is not found");
+        }
+
+        try (Stream<Workout> workouts = workoutRepository.streamByUserId(userId)) {
+            Iterator<Workout> iterator = workouts.iterator();
+            while(iterator.hasNext()) {
+                Workout workout = iterator.next();
+                out.write(workoutWriter.writeValueAsBytes(workout));
+                out.write('\n');
+                //written already, drop it from the persistence context so it can be garbage collected
+                entityManager.detach(workout);
+            }
+        }
+        out.flush();
+    }
+
+    @JsonIgnoreProperties("user")
+    private abstract static class WorkoutWithoutUser {
+    }
+}
@@ -0,0 +1,30 @@
+package com.eguglielmelli.service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the weekly leaderboards from the database at startup
+ * Runs once every bean is created but before the web server starts, unlike an ApplicationRunner,
+ * so no workout change can commit while the boards are being read and be lost when they are swapped in
+ */
+@Component
+public class WorkoutLeaderboardLoader implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkoutLeaderboardLoader.class);
+
+    private final WorkoutLeaderboardService workoutLeaderboardService;
+
+    @Autowired
+    public WorkoutLeaderboardLoader(WorkoutLeaderboardService workoutLeaderboardService) {
+        this.workoutLeaderboardService = workoutLeaderboardService;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long workouts = workoutLeaderboardService.rebuild();
+        log.info("Built workout leaderboards from {} workouts", workouts);
+    }
+}
@@ -0,0 +1,205 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.LeaderboardEntry;
+import com.eguglielmelli.dtos.WorkoutLeaderboard;
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.repositories.WorkoutRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.transaction.Transactional;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * Weekly leaderboards of total minutes per workout type across all users
+ * Every week and type has its own RankedScores, so the top of a leaderboard and a user's rank are read
+ * without touching the database. The boards are rebuilt from the workouts table at startup
+ * (see WorkoutLeaderboardLoader) and then kept up to date from committed workout changes
+ * Only the current week, the weeks before it set by app.leaderboard.weeks and any later week are kept
+ */
+@Service
+public class WorkoutLeaderboardService {
+
+    static final int MAX_LEADERBOARD_SIZE = 100;
+
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+
+    private final WorkoutRepository workoutRepository;
+
+    private final int retainedWeeks;
+
+    //one board per workout type (by ordinal) for every week start
+    private volatile ConcurrentMap<LocalDate, RankedScores[]> boards = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WorkoutLeaderboardService(WorkoutRepository workoutRepository,
+                                     @Value("${app.leaderboard.weeks:4}") int retainedWeeks) {
+        if(retainedWeeks < 1) {
+            throw new IllegalArgumentException("At least one leaderboard week must be kept");
+        }
+        this.workoutRepository = workoutRepository;
+        this.retainedWeeks = retainedWeeks;
+    }
+
+    /**
+     * Users with the most minutes of a workout type in a week, highest first
+     * @param workoutType type of workout
+     * @param week any day of the week, null for the current week
+     * @param limit max number of users, at most 100
+     * @return the leaderboard
+     */
+    public WorkoutLeaderboard getLeaderboard(WorkoutType workoutType, LocalDate week, int limit) {
+        if(limit < 1 || limit > MAX_LEADERBOARD_SIZE) {
+            throw new IllegalArgumentException("Leaderboard limit must be between 1 and " + MAX_LEADERBOARD_SIZE);
+        }
+        LocalDate weekStart = validateWeek(workoutType, week);
+        RankedScores board = existingBoard(weekStart, workoutType);
+        if(board == null) {
+            return new WorkoutLeaderboard(weekStart, workoutType, 0, List.of());
+        }
+        synchronized(board) {
+            return new WorkoutLeaderboard(weekStart, workoutType, board.size(), board.top(limit));
+        }
+    }
+
+    /**
+     * A user's rank and minutes for a workout type in a week
+     * @param userId id of user
+     * @param workoutType type of workout
+     * @param week any day of the week, null for the current week
+     * @return the user's entry, rank 0 when the user has no minutes of that type that week
+     */
+    public LeaderboardEntry getUserRank(Long userId, WorkoutType workoutType, LocalDate week) {
+        LocalDate weekStart = validateWeek(workoutType, week);
+        RankedScores board = existingBoard(weekStart, workoutType);
+        if(board == null) {
+            return new LeaderboardEntry(0, userId, 0);
+        }
+        synchronized(board) {
+            return new LeaderboardEntry(board.rank(userId), userId, board.score(userId));
+        }
+    }
+
+    /**
+     * Move a committed change's minutes between the boards, runs after commit so a rolled back write never counts
+     * @param event change to one workout
+     */
+    @TransactionalEventListener
+    public void workoutChanged(WorkoutChangedEvent event) {
+        WorkoutSnapshot before = event.getBefore();
+        WorkoutSnapshot after = event.getAfter();
+        if(before != null && after != null && before.getWorkoutType() == after.getWorkoutType()
+                && weekStart(before.getDate()).equals(weekStart(after.getDate()))) {
+            add(boards, after, after.getDurationInMinutes() - before.getDurationInMinutes());
+        }
+        else {
+            if(before != null) {
+                add(boards, before, -before.getDurationInMinutes());
+            }
+            if(after != null) {
+                add(boards, after, after.getDurationInMinutes());
+            }
+        }
+        LocalDate oldestWeek = oldestWeek();
+        boards.keySet().removeIf(weekStart -> weekStart.isBefore(oldestWeek));
+    }
+
+    /**
+     * Add the minutes of every workout of a committed import
+     * @param event the imported workouts
+     */
+    @TransactionalEventListener
+    public void workoutsImported(WorkoutsImportedEvent event) {
+        event.getCreated().forEach(workout -> add(boards, workout, workout.getDurationInMinutes()));
+    }
+
+    /**
+     * Take a soft deleted user off every leaderboard, their workouts are hidden from then on
+     * @param event the deleted user
+     */
+    @TransactionalEventListener
+    public void userDeleted(UserDeletedEvent event) {
+        for(RankedScores[] weekBoards : boards.values()) {
+            for(RankedScores board : weekBoards) {
+                synchronized(board) {
+                    board.remove(event.getUserId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the boards again from every workout in the kept weeks and swap them in
+     * The workouts are streamed so only the boards themselves are held in memory
+     * @return number of workouts read
+     */
+    @Transactional
+    public long rebuild() {
+        ConcurrentMap<LocalDate, RankedScores[]> rebuilt = new ConcurrentHashMap<>();
+        long count = 0;
+        try(Stream<WorkoutSnapshot> workouts = workoutRepository.streamSnapshotsFrom(oldestWeek())) {
+            for(WorkoutSnapshot workout : (Iterable<WorkoutSnapshot>) workouts::iterator) {
+                add(rebuilt, workout, workout.getDurationInMinutes());
+                count++;
+            }
+        }
+        boards = rebuilt;
+        return count;
+    }
+
+    /**
+     * @param date any day
+     * @return monday of the day's week
+     */
+    static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private void add(ConcurrentMap<LocalDate, RankedScores[]> target, WorkoutSnapshot workout, long minutes) {
+        LocalDate weekStart = weekStart(workout.getDate());
+        if(minutes == 0 || weekStart.isBefore(oldestWeek())) {
+            return;
+        }
+        RankedScores board = target.computeIfAbsent(weekStart, key -> newWeek())[workout.getWorkoutType().ordinal()];
+        synchronized(board) {
+            board.add(workout.getUserId(), minutes);
+        }
+    }
+
+    private RankedScores existingBoard(LocalDate weekStart, WorkoutType workoutType) {
+        RankedScores[] weekBoards = boards.get(weekStart);
+        return weekBoards == null ? null : weekBoards[workoutType.ordinal()];
+    }
+
+    private LocalDate validateWeek(WorkoutType workoutType, LocalDate week) {
+        if(workoutType == null) {
+            throw new IllegalArgumentException("Workout type cannot be null");
+        }
+        LocalDate weekStart = weekStart(week == null ? LocalDate.now() : week);
+        if(weekStart.isBefore(oldestWeek())) {
+            throw new IllegalArgumentException("Leaderboards are only kept for the last " + retainedWeeks + " weeks");
+        }
+        return weekStart;
+    }
+
+    private LocalDate oldestWeek() {
+        return weekStart(LocalDate.now()).minusWeeks(retainedWeeks - 1);
+    }
+
+    private static RankedScores[] newWeek() {
+        RankedScores[] weekBoards = new RankedScores[TYPES.length];
+        for(int i = 0; i < weekBoards.length; i++) {
+            weekBoards[i] = new RankedScores();
+        }
+        return weekBoards;
+    }
+}
@@ -0,0 +1,104 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutRecords;
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.repositories.WorkoutRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.transaction.Transactional;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Workout streaks and personal records, kept per user in memory and updated as workouts change
+ * A user's state is built from their history the first time it is asked for, after that every committed
+ * change is applied to it directly (see UserRecordsState) so reading the records does not scan the history again
+ * Uses a Caffeine cache directly rather than the spring cache abstraction, loading and applying a change
+ * have to be atomic per user so a change that commits during the load is never lost
+ */
+@Service
+public class WorkoutRecordsService {
+
+    private static final PageRequest FIRST = PageRequest.of(0, 1);
+
+    private final WorkoutRepository workoutRepository;
+
+    private final UserRepository userRepository;
+
+    private final Cache<Long, UserRecordsState> states;
+
+    @Autowired
+    public WorkoutRecordsService(WorkoutRepository workoutRepository, UserRepository userRepository,
+                                 @Value("${app.records.maximum-size:10000}") long maximumSize,
+                                 @Value("${app.records.expire-after-access:30m}") Duration expireAfterAccess) {
+        this.workoutRepository = workoutRepository;
+        this.userRepository = userRepository;
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+    }
+
+    /**
+     * Current and longest streak (consecutive days with a workout) and the records per workout type
+     * @param userId id of user
+     * @return the user's records
+     */
+    @Transactional
+    public WorkoutRecords getRecords(Long userId) {
+        if(!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User with that id is not found");
+        }
+        UserRecordsState state = states.get(userId, this::loadState);
+        return state.toRecords((int) LocalDate.now().toEpochDay(),
+                workoutType -> first(workoutRepository.findLongestByUserIdAndType(userId, workoutType, FIRST)),
+                workoutType -> first(workoutRepository.findMostCaloriesByUserIdAndType(userId, workoutType, FIRST)));
+    }
+
+    /**
+     * Apply a committed change to the user's state if it is loaded, otherwise the next load will include it
+     * Blocks while the same user's state is being loaded so the change is applied on top of it
+     * @param event change to one of the user's workouts
+     */
+    @TransactionalEventListener
+    public void workoutChanged(WorkoutChangedEvent event) {
+        states.asMap().computeIfPresent(event.getUserId(), (userId, state) -> {
+            state.apply(event);
+            return state;
+        });
+    }
+
+    /**
+     * Apply every workout of a committed import, same as workoutChanged() for each of them
+     * @param event the imported workouts
+     */
+    @TransactionalEventListener
+    public void workoutsImported(WorkoutsImportedEvent event) {
+        states.asMap().computeIfPresent(event.getUserId(), (userId, state) -> {
+            event.getCreated().forEach(workout -> state.apply(WorkoutChangedEvent.created(workout)));
+            return state;
+        });
+    }
+
+    private UserRecordsState loadState(Long userId) {
+        UserRecordsState state = new UserRecordsState();
+        try(Stream<WorkoutSnapshot> workouts = workoutRepository.streamSnapshotsByUserId(userId)) {
+            workouts.forEach(workout -> state.apply(WorkoutChangedEvent.created(workout)));
+        }
+        return state;
+    }
+
+    private static WorkoutSnapshot first(List<WorkoutSnapshot> workouts) {
+        return workouts.isEmpty() ? null : workouts.get(0);
+    }
+}
@@ -0,0 +1,33 @@
+package com.eguglielmelli.service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the workout rollups at startup when the application is started with --rebuild-workout-rollups
+ */
+@Component
+public class WorkoutRollupRebuildRunner implements ApplicationRunner {
+
+    public static final String REBUILD_OPTION = "rebuild-workout-rollups";
+
+    private static final Logger log = LoggerFactory.getLogger(WorkoutRollupRebuildRunner.class);
+
+    private final WorkoutRollupService workoutRollupService;
+
+    @Autowired
+    public WorkoutRollupRebuildRunner(WorkoutRollupService workoutRollupService) {
+        this.workoutRollupService = workoutRollupService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if(args.containsOption(REBUILD_OPTION)) {
+            int rows = workoutRollupService.rebuildRollups();
+            log.info("Rebuilt {} workout rollup rows", rows);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.eguglielmelli.service;
+import com.eguglielmelli.dtos.WorkoutPeriodStats;
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.dtos.WorkoutTypeStats;
+import com.eguglielmelli.entities.WorkoutRollupId;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.repositories.Dialects;
+import com.eguglielmelli.repositories.WorkoutRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the per day, per workout type rollup rows that workout stats are read from
+ * Every method joins the caller's transaction, so a workout and its rollup are always written together
+ */
+@Service
+public class WorkoutRollupService {
+
+    private final WorkoutRollupRepository workoutRollupRepository;
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public WorkoutRollupService(WorkoutRollupRepository workoutRollupRepository, EntityManager entityManager) {
+        this.workoutRollupRepository = workoutRollupRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Add a newly created workout to its rollup
+     * @param created the workout that was saved
+     */
+    @Transactional
+    public void workoutCreated(WorkoutSnapshot created) {
+        apply(created.getUserId(), created.getDate(), created.getWorkoutType(), 1,
+                created.getDurationInMinutes(), created.getCaloriesBurned());
+    }
+
+    /**
+     * Add many newly created workouts, workouts that share a rollup row are summed up first
+     * so each row is only written once
+     * @param created the workouts that were saved
+     */
+    @Transactional
+    public void workoutsCreated(Collection<WorkoutSnapshot> created) {
+        Map<WorkoutRollupId, long[]> deltas = new LinkedHashMap<>();
+        for(WorkoutSnapshot workout : created) {
+            WorkoutRollupId id = new WorkoutRollupId(workout.getUserId(), workout.getDate(), workout.getWorkoutType());
+            long[] delta = deltas.computeIfAbsent(id, key -> new long[3]);
+            delta[0]++;
+            delta[1] += workout.getDurationInMinutes();
+            delta[2] += workout.getCaloriesBurned();
+        }
+        deltas.forEach((id, delta) -> apply(id.getUserId(), id.getWorkoutDate(), id.getWorkoutType(),
+                (int) delta[0], delta[1], delta[2]));
+    }
+
+    /**
+     * Move an updated workout's numbers from its old rollup to its new one
+     * When the date and type did not change only the difference is applied to the same row
+     * @param before the workout before the update
+     * @param after the workout after the update
+     */
+    @Transactional
+    public void workoutUpdated(WorkoutSnapshot before, WorkoutSnapshot after) {
+        boolean sameRollup = before.getUserId().equals(after.getUserId()) && before.getDate().equals(after.getDate())
+                && before.getWorkoutType() == after.getWorkoutType();
+        if(sameRollup) {
+            int durationDelta = after.getDurationInMinutes() - before.getDurationInMinutes();
+            int caloriesDelta = after.getCaloriesBurned() - before.getCaloriesBurned();
+            if(durationDelta != 0 || caloriesDelta != 0) {
+                apply(after.getUserId(), after.getDate(), after.getWorkoutType(), 0, durationDelta, caloriesDelta);
+            }
+            return;
+        }
+        workoutDeleted(before);
+        workoutCreated(after);
+    }
+
+    /**
+     * Take a deleted workout out of its rollup
+     * @param deleted the workout before it was deleted
+     */
+    @Transactional
+    public void workoutDeleted(WorkoutSnapshot deleted) {
+        apply(deleted.getUserId(), deleted.getDate(), deleted.getWorkoutType(), -1,
+                -deleted.getDurationInMinutes(), -deleted.getCaloriesBurned());
+    }
+
+    @Transactional
+    public List<WorkoutTypeStats> getTypeStats(Long userId, LocalDate from, LocalDate to) {
+        return workoutRollupRepository.findTypeStats(userId, from, to);
+    }
+
+    @Transactional
+    public List<WorkoutPeriodStats> getDailyStats(Long userId, LocalDate from, LocalDate to) {
+        return workoutRollupRepository.findDailyStats(userId, from, to);
+    }
+
+    /**
+     * Throw away every rollup row and recompute them all from the workouts table
+     * Used to reconcile the rollups if they ever drift, for example after editing workouts by hand
+     * @return number of rollup rows written
+     */
+    @Transactional
+    public int rebuildRollups() {
+        workoutRollupRepository.deleteAllRollups();
+        return workoutRollupRepository.insertRollupsFromWorkouts();
+    }
+
+    /**
+     * Add the deltas to the rollup row, creating the row when this is the first workout for it
+     * Done in one upsert statement so concurrent first writes to the same row never collide on its key
+     * Postgres has INSERT ... ON CONFLICT, other databases (H2 in tests) get the standard MERGE
+     */
+    private void apply(Long userId, LocalDate date, WorkoutType workoutType, int count, long duration, long calories) {
+        if(Dialects.isPostgres(entityManager)) {
+            workoutRollupRepository.upsertIntoRollup(userId, date, workoutType.name(), count, duration, calories);
+        }
+        else {
+            workoutRollupRepository.mergeIntoRollup(userId, date, workoutType.name(), count, duration, calories);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutSearchCursor;
+import com.eguglielmelli.dtos.WorkoutSearchHit;
+import com.eguglielmelli.dtos.WorkoutSearchPage;
+import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.repositories.WorkoutSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Full text search over a user's workouts, see WorkoutSearchIndex for how matching works
+ */
+@Service
+public class WorkoutSearchService {
+
+    public static final int MAX_QUERY_LENGTH = 200;
+
+    private final WorkoutSearchIndex workoutSearchIndex;
+
+    private final UserRepository userRepository;
+
+    @Autowired
+    public WorkoutSearchService(WorkoutSearchIndex workoutSearchIndex, UserRepository userRepository) {
+        this.workoutSearchIndex = workoutSearchIndex;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Search the names and notes of a user's workouts, best match first
+     * Paginated with a cursor like WorkoutService.getUsersWorkouts(), every page costs about the same
+     * @param userId id of user
+     * @param query words to search for, every word has to match
+     * @param cursor nextCursor from the previous page, null for the first page
+     * @param limit max number of hits on the page
+     * @return the page of hits and the cursor for the next one
+     */
+    @Transactional
+    public WorkoutSearchPage searchWorkouts(Long userId, String query, String cursor, int limit) {
+        if(query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty or null");
+        }
+        if(query.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query must be at most " + MAX_QUERY_LENGTH + " characters");
+        }
+        if(limit < 1 || limit > WorkoutService.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + WorkoutService.MAX_PAGE_SIZE);
+        }
+        if(!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User with that id is not found");
+        }
+
+        //the first page starts above any possible rank
+        WorkoutSearchCursor after = cursor == null
+                ? new WorkoutSearchCursor(Float.MAX_VALUE, Long.MAX_VALUE) : WorkoutSearchCursor.decode(cursor);
+
+        //fetch one extra hit so we know if there is another page
+        List<WorkoutSearchHit> hits = workoutSearchIndex.search(userId, query, after.getRank(), after.getId(), limit + 1);
+        String nextCursor = null;
+        if(hits.size() > limit) {
+            hits = new ArrayList<>(hits.subList(0, limit));
+            WorkoutSearchHit last = hits.get(limit - 1);
+            nextCursor = new WorkoutSearchCursor(last.getRank(), last.getId()).encode();
+        }
+        return new WorkoutSearchPage(hits, nextCursor);
+    }
+}
@@ -0,0 +1,296 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutPeriodStats;
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.dtos.WorkoutStats;
+import com.eguglielmelli.dtos.WorkoutTypeStats;
+import com.eguglielmelli.entities.WorkoutType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A user's workout history stored column by column in primitive arrays, ordered by date
+ * One workout costs 13 bytes (day, duration, calories, type) instead of a full Workout entity,
+ * and a date range is found with a binary search and then summed in a single pass over the arrays
+ * Instances never change once built, a committed change is applied by building a changed copy
+ * (withAdded(), withRemoved()) that WorkoutAnalyticsService swaps in
+ * A loaded series remembers the last change event created when its load finished (getLoadSequence()),
+ * the load may already contain those changes so only later events can safely be applied to it
+ */
+public final class WorkoutSeries {
+
+    private static final WorkoutType[] TYPES = WorkoutType.values();
+
+    //by type stats from the rollups come out ordered by the type's name (stored as a string), keep the same order
+    private static final WorkoutType[] TYPES_BY_NAME = Arrays.stream(TYPES)
+            .sorted(Comparator.comparing(WorkoutType::name)).toArray(WorkoutType[]::new);
+
+    private final int[] epochDays;
+
+    private final int[] durations;
+
+    private final int[] calories;
+
+    private final byte[] types;
+
+    private final int size;
+
+    private final long loadSequence;
+
+    private WorkoutSeries(int[] epochDays, int[] durations, int[] calories, byte[] types, int size,
+                          long loadSequence) {
+        this.epochDays = epochDays;
+        this.durations = durations;
+        this.calories = calories;
+        this.types = types;
+        this.size = size;
+        this.loadSequence = loadSequence;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return sequence number of the last change event created when this series was loaded, copies keep it
+     */
+    public long getLoadSequence() {
+        return loadSequence;
+    }
+
+    /**
+     * @return approximate heap used by the arrays of this series
+     */
+    public long sizeInBytes() {
+        return 4L * (epochDays.length + durations.length + calories.length) + types.length;
+    }
+
+    /**
+     * Same result as WorkoutService.getWorkoutStats() for the same workouts, computed from the arrays
+     * @param from first day to include
+     * @param to last day to include
+     * @return totals by type and by week (weeks start on monday)
+     */
+    public WorkoutStats stats(LocalDate from, LocalDate to) {
+        int start = firstIndexOnOrAfter((int) from.toEpochDay());
+        int end = firstIndexOnOrAfter((int) to.toEpochDay() + 1);
+
+        long[] countByType = new long[TYPES.length];
+        long[] durationByType = new long[TYPES.length];
+        long[] caloriesByType = new long[TYPES.length];
+        List<WorkoutPeriodStats> byWeek = new ArrayList<>();
+        int weekStart = Integer.MIN_VALUE;
+        long weekCount = 0;
+        long weekDuration = 0;
+        long weekCalories = 0;
+        for(int i = start; i < end; i++) {
+            int type = types[i];
+            countByType[type]++;
+            durationByType[type] += durations[i];
+            caloriesByType[type] += calories[i];
+
+            int dayWeekStart = weekStart(epochDays[i]);
+            if(dayWeekStart != weekStart) {
+                if(weekCount > 0) {
+                    byWeek.add(new WorkoutPeriodStats(LocalDate.ofEpochDay(weekStart), weekCount, weekDuration, weekCalories));
+                }
+                weekStart = dayWeekStart;
+                weekCount = 0;
+                weekDuration = 0;
+                weekCalories = 0;
+            }
+            weekCount++;
+            weekDuration += durations[i];
+            weekCalories += calories[i];
+        }
+        if(weekCount > 0) {
+            byWeek.add(new WorkoutPeriodStats(LocalDate.ofEpochDay(weekStart), weekCount, weekDuration, weekCalories));
+        }
+
+        List<WorkoutTypeStats> byType = new ArrayList<>();
+        for(WorkoutType workoutType : TYPES_BY_NAME) {
+            int type = workoutType.ordinal();
+            if(countByType[type] > 0) {
+                byType.add(new WorkoutTypeStats(workoutType, countByType[type], durationByType[type], caloriesByType[type]));
+            }
+        }
+        return new WorkoutStats(from, to, byType, byWeek);
+    }
+
+    /**
+     * Copy of this series with one more workout, placed after the workouts already on that day
+     * @return the new series, this one is left as it is
+     */
+    public WorkoutSeries withAdded(LocalDate date, WorkoutType workoutType, int durationInMinutes, int caloriesBurned) {
+        int epochDay = (int) date.toEpochDay();
+        int index = firstIndexOnOrAfter(epochDay + 1);
+        return new WorkoutSeries(inserted(epochDays, index, epochDay), inserted(durations, index, durationInMinutes),
+                inserted(calories, index, caloriesBurned), inserted(types, index, (byte) workoutType.ordinal()),
+                size + 1, loadSequence);
+    }
+
+    /**
+     * Copy of this series with several more workouts, merged in date order in one pass
+     * @param workouts the workouts to add, in any order
+     * @return the new series, this one is left as it is
+     */
+    public WorkoutSeries withAdded(List<WorkoutSnapshot> workouts) {
+        List<WorkoutSnapshot> sorted = new ArrayList<>(workouts);
+        sorted.sort(Comparator.comparing(WorkoutSnapshot::getDate));
+        Builder builder = builder();
+        int i = 0;
+        for(WorkoutSnapshot workout : sorted) {
+            int epochDay = (int) workout.getDate().toEpochDay();
+            for(; i < size && epochDays[i] <= epochDay; i++) {
+                builder.add(epochDays[i], types[i], durations[i], calories[i]);
+            }
+            builder.add(epochDay, (byte) workout.getWorkoutType().ordinal(), workout.getDurationInMinutes(),
+                    workout.getCaloriesBurned());
+        }
+        for(; i < size; i++) {
+            builder.add(epochDays[i], types[i], durations[i], calories[i]);
+        }
+        return builder.build(loadSequence);
+    }
+
+    /**
+     * Copy of this series without one workout that has exactly these values
+     * Workouts with the same values are interchangeable for the stats so it does not matter which one goes
+     * @return the new series, null when no workout has these values
+     */
+    public WorkoutSeries withRemoved(LocalDate date, WorkoutType workoutType, int durationInMinutes, int caloriesBurned) {
+        int epochDay = (int) date.toEpochDay();
+        byte type = (byte) workoutType.ordinal();
+        for(int i = firstIndexOnOrAfter(epochDay); i < size && epochDays[i] == epochDay; i++) {
+            if(types[i] == type && durations[i] == durationInMinutes && calories[i] == caloriesBurned) {
+                return new WorkoutSeries(removed(epochDays, i), removed(durations, i), removed(calories, i),
+                        removed(types, i), size - 1, loadSequence);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return index of the first workout on or after the given day, size if there is none
+     */
+    int firstIndexOnOrAfter(int epochDay) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(epochDays[middle] < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Epoch day of the monday on or before the given day, day 0 (1970-01-01) was a thursday
+     */
+    static int weekStart(int epochDay) {
+        return epochDay - Math.floorMod(epochDay + 3, 7);
+    }
+
+    private int[] inserted(int[] values, int index, int value) {
+        int[] copy = new int[size + 1];
+        System.arraycopy(values, 0, copy, 0, index);
+        copy[index] = value;
+        System.arraycopy(values, index, copy, index + 1, size - index);
+        return copy;
+    }
+
+    private byte[] inserted(byte[] values, int index, byte value) {
+        byte[] copy = new byte[size + 1];
+        System.arraycopy(values, 0, copy, 0, index);
+        copy[index] = value;
+        System.arraycopy(values, index, copy, index + 1, size - index);
+        return copy;
+    }
+
+    private int[] removed(int[] values, int index) {
+        int[] copy = new int[size - 1];
+        System.arraycopy(values, 0, copy, 0, index);
+        System.arraycopy(values, index + 1, copy, index, size - index - 1);
+        return copy;
+    }
+
+    private byte[] removed(byte[] values, int index) {
+        byte[] copy = new byte[size - 1];
+        System.arraycopy(values, 0, copy, 0, index);
+        System.arraycopy(values, index + 1, copy, index, size - index - 1);
+        return copy;
+    }
+
+    /**
+     * Collects workouts in date order into growing arrays
+     */
+    public static final class Builder {
+
+        private int[] epochDays = new int[16];
+
+        private int[] durations = new int[16];
+
+        private int[] calories = new int[16];
+
+        private byte[] types = new byte[16];
+
+        private int size;
+
+        private Builder() {
+
+        }
+
+        /**
+         * Add the next workout, workouts have to be added in date order
+         */
+        public Builder add(LocalDate date, WorkoutType workoutType, int durationInMinutes, int caloriesBurned) {
+            return add((int) date.toEpochDay(), (byte) workoutType.ordinal(), durationInMinutes, caloriesBurned);
+        }
+
+        private Builder add(int epochDay, byte type, int durationInMinutes, int caloriesBurned) {
+            if(size > 0 && epochDay < epochDays[size - 1]) {
+                throw new IllegalArgumentException("Workouts must be added in date order");
+            }
+            if(size == epochDays.length) {
+                int capacity = size * 2;
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+                calories = Arrays.copyOf(calories, capacity);
+                types = Arrays.copyOf(types, capacity);
+            }
+            epochDays[size] = epochDay;
+            durations[size] = durationInMinutes;
+            calories[size] = caloriesBurned;
+            types[size] = type;
+            size++;
+            return this;
+        }
+
+        /**
+         * @return the series, the arrays are trimmed to the number of workouts
+         */
+        public WorkoutSeries build() {
+            return build(0);
+        }
+
+        /**
+         * @param loadSequence sequence number of the last change event created before the load finished
+         * @return the series, the arrays are trimmed to the number of workouts
+         */
+        public WorkoutSeries build(long loadSequence) {
+            return new WorkoutSeries(Arrays.copyOf(epochDays, size), Arrays.copyOf(durations, size),
+                    Arrays.copyOf(calories, size), Arrays.copyOf(types, size), size, loadSequence);
+        }
+    }
+}
@@ -1,17 +1,39 @@
 package com.eguglielmelli.service;
+import com.eguglielmelli.config.CacheConfig;
+import com.eguglielmelli.dtos.ResourceVersion;
+import com.eguglielmelli.dtos.WorkoutCursor;
 import com.eguglielmelli.dtos.WorkoutDto;
+import com.eguglielmelli.dtos.WorkoutImportResult;
+import com.eguglielmelli.dtos.WorkoutPage;
+import com.eguglielmelli.dtos.WorkoutPatchDto;
+import com.eguglielmelli.dtos.WorkoutPeriodStats;
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.dtos.WorkoutStats;
+import com.eguglielmelli.dtos.WorkoutSummary;
+import com.eguglielmelli.dtos.WorkoutTypeStats;
 import com.eguglielmelli.dtos.WorkoutUpdateDto;
 import com.eguglielmelli.entities.User;
 import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutType;
 import com.eguglielmelli.repositories.UserRepository;
 import com.eguglielmelli.repositories.WorkoutRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Business logic for the Workout CRUD operations
@@ -19,14 +41,38 @@ import java.util.function.Consumer;
 @Service
 public class WorkoutService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public static final int MAX_IMPORT_SIZE = 10_000;
+
+    //same as hibernate.jdbc.batch_size, an import is flushed and cleared after every batch
+    static final int IMPORT_BATCH_SIZE = 50;
+
+    //bounds used when a query has no from or to date, workouts outside them are rejected when written
+    //so they can never fall out of an unbounded query
+    static final LocalDate EARLIEST_DATE = LocalDate.of(1900, 1, 1);
+
+    static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+
     private WorkoutRepository workoutRepository;
 
     private UserRepository userRepository;
 
+    private WorkoutRollupService workoutRollupService;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private EntityManager entityManager;
+
     @Autowired
-    public WorkoutService(WorkoutRepository workoutRepository, UserRepository userRepository) {
+    public WorkoutService(WorkoutRepository workoutRepository, UserRepository userRepository,
+                          WorkoutRollupService workoutRollupService, ApplicationEventPublisher eventPublisher,
+                          EntityManager entityManager) {
         this.workoutRepository = workoutRepository;
         this.userRepository = userRepository;
+        this.workoutRollupService = workoutRollupService;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
     }
 
     /**
@@ -48,24 +94,87 @@ public class WorkoutService {
         Workout workout = new Workout(workoutDto.getName(), workoutDto.getNotes(), workoutDto.getDurationInMinutes(),
                 workoutDto.getDate(), workoutDto.getCaloriesBurned(), workoutDto.getWorkoutType(), workoutDto.getUser());
 
-        return workoutRepository.save(workout);
+        Workout savedWorkout = workoutRepository.save(workout);
+        WorkoutSnapshot snapshot = WorkoutSnapshot.of(savedWorkout);
+        workoutRollupService.workoutCreated(snapshot);
+        eventPublisher.publishEvent(WorkoutChangedEvent.created(snapshot));
+        return savedWorkout;
+
+    }
+
+    /**
+     * Create many workouts for one user in a single transaction, used when syncing a device
+     * or moving over from another app
+     * The user is checked once for the whole import instead of once per workout, and since workout ids
+     * come from a pooled sequence the inserts are sent to the database in JDBC batches
+     * Listeners get one WorkoutsImportedEvent for the whole import
+     * Invalid workouts are skipped and reported back, the valid ones are still saved
+     * @param userId id of the user that owns every imported workout
+     * @param workoutDtos workouts to import, the user on each dto is ignored
+     * @return how many workouts were created and the errors for the ones that were not
+     */
+    @Transactional
+    public WorkoutImportResult importWorkouts(Long userId, List<WorkoutDto> workoutDtos) {
+        if(workoutDtos == null || workoutDtos.isEmpty()) {
+            throw new IllegalArgumentException("Workouts to import must not be null or empty");
+        }
+        if(workoutDtos.size() > MAX_IMPORT_SIZE) {
+            throw new IllegalArgumentException("Cannot import more than " + MAX_IMPORT_SIZE + " workouts at once");
+        }
+        if(!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User with that id is not found");
+        }
+
+        //we already know the user exists, a reference is enough to set the foreign key
+        User user = userRepository.getReferenceById(userId);
+
+        List<Workout> workouts = new ArrayList<>(workoutDtos.size());
+        List<WorkoutImportResult.ItemError> errors = new ArrayList<>();
+        for(int i = 0; i < workoutDtos.size(); i++) {
+            WorkoutDto workoutDto = workoutDtos.get(i);
+            try {
+                validateImportedWorkout(workoutDto);
+            } catch (IllegalArgumentException e) {
+                errors.add(new WorkoutImportResult.ItemError(i, e.getMessage()));
+                continue;
+            }
+            workouts.add(new Workout(workoutDto.getName(), workoutDto.getNotes(), workoutDto.getDurationInMinutes(),
+                    workoutDto.getDate(), workoutDto.getCaloriesBurned(), workoutDto.getWorkoutType(), user));
+        }
 
+        //saved a JDBC batch at a time, clearing after each one keeps the persistence context from growing with the import
+        List<WorkoutSnapshot> snapshots = new ArrayList<>(workouts.size());
+        for(int from = 0; from < workouts.size(); from += IMPORT_BATCH_SIZE) {
+            List<Workout> batch = workouts.subList(from, Math.min(from + IMPORT_BATCH_SIZE, workouts.size()));
+            workoutRepository.saveAll(batch);
+            entityManager.flush();
+            batch.forEach(workout -> snapshots.add(WorkoutSnapshot.of(workout)));
+            entityManager.clear();
+        }
+        workoutRollupService.workoutsCreated(snapshots);
+        if(!snapshots.isEmpty()) {
+            eventPublisher.publishEvent(new WorkoutsImportedEvent(userId, snapshots));
+        }
+        return new WorkoutImportResult(snapshots.size(), errors);
     }
 
     /**
      * Delete a workout that corresponds to a given workout ID number
+     * The workout is never loaded, the delete hands back the few fields the rollups need
+     * (see WorkoutRepositoryCustomImpl), it is scoped to the user so a workout of another user is treated as not found
      *
+     * @param userId    id of the user that owns the workout
      * @param workoutId id of workout
      */
     @Transactional
-    public boolean deleteWorkout(Long workoutId) {
-        Optional<Workout> foundWorkout = workoutRepository.findById(workoutId);
-        if (foundWorkout.isPresent()) {
-            workoutRepository.delete(foundWorkout.get());
-            return true;
-        } else {
-            throw new IllegalArgumentException("Workout with that id was not found");
-        }
+    @CacheEvict(cacheNames = CacheConfig.WORKOUTS_CACHE, key = "#workoutId")
+    public boolean deleteWorkout(Long userId, Long workoutId) {
+        //only touch the rollup if we removed the row, a concurrent delete may have got there first
+        WorkoutSnapshot snapshot = workoutRepository.deleteByIdAndUserIdReturningSnapshot(workoutId, userId)
+                .orElseThrow(() -> new IllegalArgumentException("Workout with that id was not found"));
+        workoutRollupService.workoutDeleted(snapshot);
+        eventPublisher.publishEvent(WorkoutChangedEvent.deleted(snapshot));
+        return true;
     }
 
     /**
@@ -73,11 +182,16 @@ public class WorkoutService {
      *
      * @param id               of workout
      * @param workoutUpdateDto updated workout data
+     * @param expectedVersion  version the client based the update on (from If-Match), null to skip the check
      * @return true if updated, false otherwise
      */
     @Transactional
-    public boolean updateWorkoutInfo(Long id, WorkoutUpdateDto workoutUpdateDto) {
-        return updateWorkout(id, workout -> {
+    @CacheEvict(cacheNames = CacheConfig.WORKOUTS_CACHE, key = "#id")
+    public boolean updateWorkoutInfo(Long id, WorkoutUpdateDto workoutUpdateDto, Long expectedVersion) {
+        if(workoutUpdateDto.getDate() != null) {
+            validateDate(workoutUpdateDto.getDate());
+        }
+        return updateWorkout(id, expectedVersion, workout -> {
             if (workoutUpdateDto.getName() != null && !workoutUpdateDto.getName().isEmpty()) {
                 workout.setName(workoutUpdateDto.getName());
             }
@@ -96,15 +210,80 @@ public class WorkoutService {
         });
     }
 
+    /**
+     * Partial update of a workout, only the fields present in the dto are changed
+     * Fields are only written when the value is actually different, so the entity stays clean when
+     * nothing changed and no UPDATE is sent, Workout uses dynamic updates so a changed name does not
+     * rewrite the notes or any other column
+     *
+     * @param userId          id of the user that owns the workout
+     * @param id              of workout
+     * @param workoutPatchDto fields to change, null fields are left alone
+     * @param expectedVersion version the client based the patch on (from If-Match), null to skip the check
+     * @return true if the workout was found, false otherwise
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.WORKOUTS_CACHE, key = "#id")
+    public boolean patchWorkout(Long userId, Long id, WorkoutPatchDto workoutPatchDto, Long expectedVersion) {
+        if(workoutPatchDto == null) {
+            throw new IllegalArgumentException("Input cannot be null");
+        }
+        validateWorkoutPatch(workoutPatchDto);
+
+        Optional<Workout> foundWorkout = workoutRepository.findById(id);
+        //asking a lazy user for its id does not load it
+        if(foundWorkout.isEmpty() || !foundWorkout.get().getUser().getId().equals(userId)) {
+            return false;
+        }
+        checkVersion(foundWorkout.get(), expectedVersion);
+        if(workoutPatchDto.isEmpty()) {
+            return true;
+        }
+
+        Workout workout = foundWorkout.get();
+        WorkoutSnapshot before = WorkoutSnapshot.of(workout);
+        boolean changed = PatchSupport.setIfChanged(workoutPatchDto.getName(), workout::getName, workout::setName);
+        changed |= PatchSupport.setIfChanged(workoutPatchDto.getNotes(), workout::getNotes, workout::setNotes);
+        changed |= PatchSupport.setIfChanged(workoutPatchDto.getDurationInMinutes(), workout::getDurationInMinutes,
+                workout::setDurationInMinutes);
+        changed |= PatchSupport.setIfChanged(workoutPatchDto.getDate(), workout::getDate, workout::setDate);
+        changed |= PatchSupport.setIfChanged(workoutPatchDto.getCaloriesBurned(), workout::getCaloriesBurned,
+                workout::setCaloriesBurned);
+        changed |= PatchSupport.setIfChanged(workoutPatchDto.getWorkoutType(), workout::getWorkoutType, workout::setWorkoutType);
+
+        if(changed) {
+            WorkoutSnapshot after = WorkoutSnapshot.of(workout);
+            workoutRollupService.workoutUpdated(before, after);
+            eventPublisher.publishEvent(WorkoutChangedEvent.updated(before, after));
+        }
+        return true;
+    }
+
     /**
      * Simple method to retrieve workout details given a workout id
+     * The user is part of the response so it is fetched in the same query
+     * Results are cached by id, updateWorkoutInfo() and deleteWorkout() evict the entry
      *
      * @param id of workout
      * @return workout object containing workout details
      */
     @Transactional
+    @Cacheable(cacheNames = CacheConfig.WORKOUTS_CACHE, key = "#id")
     public Workout getWorkoutInfo(Long id) {
-        return workoutRepository.findById(id).orElseThrow(() -> new IllegalArgumentException("" +
+        return workoutRepository.findWithUserById(id).orElseThrow(() -> new IllegalArgumentException("" +
+                "Workout with that id is not found"));
+    }
+
+    /**
+     * Version and last update time of a workout, lets the controller answer a conditional GET
+     * with 304 before the workout itself is read
+     *
+     * @param id of workout
+     * @return version of the workout
+     */
+    @Transactional
+    public ResourceVersion getWorkoutVersion(Long id) {
+        return workoutRepository.findVersionById(id).orElseThrow(() -> new IllegalArgumentException(
                 "Workout with that id is not found"));
     }
 
@@ -116,34 +295,153 @@ public class WorkoutService {
      */
     @Transactional
     public List<Workout> getUsersWorkouts(Long userId) {
-        Optional<User> foundUser = userRepository.findById(userId);
-        if(foundUser.isEmpty()) {
+        if(!userRepository.existsById(userId)) {
             throw new IllegalArgumentException("User with that id is not found");
         }
         List<Workout> userWorkouts = workoutRepository.findByUser_id(userId);
         return userWorkouts;
     }
 
+    /**
+     * Paginated version of getUsersWorkouts(), workouts are ordered by date and then id
+     * Instead of an offset we continue after the last workout of the previous page, so every page
+     * costs the same no matter how far into the user's history it is
+     * The date range and type filters are optional and should be the same on every page request
+     * @param userId id of user
+     * @param from earliest workout date to include, null for no lower bound
+     * @param to latest workout date to include, null for no upper bound
+     * @param workoutType only include this type of workout, null for all types
+     * @param cursor nextCursor from the previous page, null for the first page
+     * @param limit max number of workouts on the page
+     * @return the page of workouts and the cursor for the next one
+     */
+    @Transactional
+    public WorkoutPage getUsersWorkouts(Long userId, LocalDate from, LocalDate to, WorkoutType workoutType,
+                                        String cursor, int limit) {
+        if(limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if(from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("From date must not be after to date");
+        }
+        if(!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User with that id is not found");
+        }
+
+        //first page starts before any possible workout, id 0 is never assigned
+        WorkoutCursor after = cursor == null ? new WorkoutCursor(EARLIEST_DATE, 0L) : WorkoutCursor.decode(cursor);
+        if(from != null && after.getDate().isBefore(from)) {
+            after = new WorkoutCursor(from, 0L);
+        }
+        LocalDate until = to == null ? LATEST_DATE : to;
+
+        //fetch one extra row so we know if there is another page without running a count query
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<WorkoutSummary> workouts = workoutType == null
+                ? workoutRepository.findPageAfter(userId, after.getDate(), after.getId(), until, pageable)
+                : workoutRepository.findPageAfterByType(userId, workoutType, after.getDate(), after.getId(), until, pageable);
+
+        String nextCursor = null;
+        if(workouts.size() > limit) {
+            workouts = new ArrayList<>(workouts.subList(0, limit));
+            WorkoutSummary last = workouts.get(limit - 1);
+            nextCursor = new WorkoutCursor(last.getDate(), last.getId()).encode();
+        }
+        return new WorkoutPage(workouts, nextCursor);
+    }
+
+    /**
+     * Totals, counts and averages of a user's workouts for a date range, by workout type and by week
+     * Read from the daily rollups rather than the workouts themselves, so the cost depends on
+     * the number of days in the range and not on how many workouts the user logged
+     * @param userId id of user
+     * @param from first day to include, null for no lower bound
+     * @param to last day to include, null for no upper bound
+     * @return the aggregated stats
+     */
+    @Transactional
+    public WorkoutStats getWorkoutStats(Long userId, LocalDate from, LocalDate to) {
+        LocalDate start = from == null ? EARLIEST_DATE : from;
+        LocalDate end = to == null ? LATEST_DATE : to;
+        if(start.isAfter(end)) {
+            throw new IllegalArgumentException("From date must not be after to date");
+        }
+        if(!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User with that id is not found");
+        }
+
+        List<WorkoutTypeStats> byType = workoutRollupService.getTypeStats(userId, start, end);
+        List<WorkoutPeriodStats> byWeek = toWeeklyStats(workoutRollupService.getDailyStats(userId, start, end));
+        return new WorkoutStats(start, end, byType, byWeek);
+    }
+
     /**
      * This method is going to handle all updates, this helps slim down the code and users can include
      * any of the fields they want in the update DTO
      *
-     * @param id           of workout
-     * @param updateAction dto that user will be transferring to update
+     * @param id              of workout
+     * @param expectedVersion version the client based the update on, null to skip the check
+     * @param updateAction    dto that user will be transferring to update
      * @return true if updated, false otherwise
      */
-    private boolean updateWorkout(Long id, Consumer<Workout> updateAction) {
+    private boolean updateWorkout(Long id, Long expectedVersion, Consumer<Workout> updateAction) {
         Optional<Workout> foundWorkout = workoutRepository.findById(id);
         if (foundWorkout.isPresent()) {
             Workout workout = foundWorkout.get();
+            checkVersion(workout, expectedVersion);
+            WorkoutSnapshot before = WorkoutSnapshot.of(workout);
+            //the workout is managed, the changes are flushed when the transaction commits
             updateAction.accept(workout);
-            workoutRepository.save(workout);
+            WorkoutSnapshot after = WorkoutSnapshot.of(workout);
+            workoutRollupService.workoutUpdated(before, after);
+            eventPublisher.publishEvent(WorkoutChangedEvent.updated(before, after));
             return true;
         }
         return false;
     }
 
+    /**
+     * Fail fast when the client's copy of the workout is already out of date
+     * A concurrent update between this check and the commit is still caught by hibernate's version check
+     * @param workout current workout
+     * @param expectedVersion version the client has, null when the client did not send one
+     */
+    private void checkVersion(Workout workout, Long expectedVersion) {
+        if(expectedVersion != null && expectedVersion != workout.getVersion()) {
+            throw new VersionMismatchException("Workout has been modified since version " + expectedVersion,
+                    workout.getVersion());
+        }
+    }
 
+    /**
+     * Fold per day totals into per week totals, weeks start on monday
+     * @param dailyStats totals per day, ordered by day
+     * @return totals per week, ordered by week
+     */
+    static List<WorkoutPeriodStats> toWeeklyStats(List<WorkoutPeriodStats> dailyStats) {
+        List<WorkoutPeriodStats> weeklyStats = new ArrayList<>();
+        LocalDate weekStart = null;
+        long count = 0;
+        long duration = 0;
+        long calories = 0;
+        for(WorkoutPeriodStats day : dailyStats) {
+            LocalDate dayWeekStart = day.getStartDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            if(weekStart != null && !weekStart.equals(dayWeekStart)) {
+                weeklyStats.add(new WorkoutPeriodStats(weekStart, count, duration, calories));
+                count = 0;
+                duration = 0;
+                calories = 0;
+            }
+            weekStart = dayWeekStart;
+            count += day.getCount();
+            duration += day.getTotalDuration();
+            calories += day.getTotalCalories();
+        }
+        if(weekStart != null) {
+            weeklyStats.add(new WorkoutPeriodStats(weekStart, count, duration, calories));
+        }
+        return weeklyStats;
+    }
 
     /**
      * Validate a workout before creating it for the first time
@@ -152,6 +450,40 @@ public class WorkoutService {
      * @param workoutDto data that user included to create workout
      */
     private void validateWorkoutInfo(WorkoutDto workoutDto) {
+        validateWorkoutFields(workoutDto);
+
+        if(workoutDto.getUser() == null) {
+            throw new IllegalArgumentException("There must be a user associated with this workout");
+        }
+
+        if(!userRepository.existsById(workoutDto.getUser().getId())) {
+            throw new IllegalArgumentException("Cannot validate workout data because user with that id is not found");
+        }
+
+        if(workoutDto.getCaloriesBurned() < 0) {
+            throw new IllegalArgumentException("Calories burned must be greater than or equal to 0");
+        }
+
+    }
+
+    /**
+     * Validate a single workout of a bulk import, same rules as validateWorkoutInfo()
+     * except the user, which comes from the request path and is checked once for the whole import
+     * @param workoutDto data of one imported workout
+     */
+    private void validateImportedWorkout(WorkoutDto workoutDto) {
+        validateWorkoutFields(workoutDto);
+
+        if(workoutDto.getCaloriesBurned() < 0) {
+            throw new IllegalArgumentException("Calories burned must be greater than or equal to 0");
+        }
+    }
+
+    /**
+     * Checks shared by every kind of workout creation, mandatory fields and non negative duration
+     * @param workoutDto data that user included to create workout
+     */
+    private void validateWorkoutFields(WorkoutDto workoutDto) {
         if(workoutDto == null) {
             throw new IllegalArgumentException("Input cannot be null");
         }
@@ -163,6 +495,7 @@ public class WorkoutService {
         if(workoutDto.getDate() == null) {
             throw new IllegalArgumentException("Date of workout must not be null");
         }
+        validateDate(workoutDto.getDate());
 
         if(workoutDto.getDurationInMinutes() < 0) {
             throw new IllegalArgumentException("Duration of workout must be greater than or equal to 0");
@@ -171,20 +504,38 @@ public class WorkoutService {
         if(workoutDto.getWorkoutType() == null) {
             throw new IllegalArgumentException("Workout type cannot be null or empty");
         }
+    }
 
-        if(workoutDto.getUser() == null) {
-            throw new IllegalArgumentException("There must be a user associated with this workout");
+    /**
+     * Same rules as validateWorkoutFields() but only for the fields present in the patch
+     * @param workoutPatchDto fields the user wants to change
+     */
+    private void validateWorkoutPatch(WorkoutPatchDto workoutPatchDto) {
+        if(workoutPatchDto.getName() != null && workoutPatchDto.getName().isEmpty()) {
+            throw new IllegalArgumentException("Workout name must not be empty");
         }
 
-        if(userRepository.findById(workoutDto.getUser().getId()).isEmpty()) {
-            throw new IllegalArgumentException("Cannot validate workout data because user with that id is not found");
+        if(workoutPatchDto.getDate() != null) {
+            validateDate(workoutPatchDto.getDate());
         }
 
-        if(workoutDto.getCaloriesBurned() < 0) {
-            throw new IllegalArgumentException("Calories burned must be greater than or equal to 0");
+        if(workoutPatchDto.getDurationInMinutes() != null && workoutPatchDto.getDurationInMinutes() < 0) {
+            throw new IllegalArgumentException("Duration of workout must be greater than or equal to 0");
         }
 
+        if(workoutPatchDto.getCaloriesBurned() != null && workoutPatchDto.getCaloriesBurned() < 0) {
+            throw new IllegalArgumentException("Calories burned must be greater than or equal to 0");
+        }
     }
 
-
+    /**
+     * A workout date has to lie within EARLIEST_DATE and LATEST_DATE, otherwise listings and stats
+     * without a from or to date would silently leave the workout out
+     * @param date date of the workout
+     */
+    private void validateDate(LocalDate date) {
+        if(date.isBefore(EARLIEST_DATE) || date.isAfter(LATEST_DATE)) {
+            throw new IllegalArgumentException("Date of workout must be between " + EARLIEST_DATE + " and " + LATEST_DATE);
+        }
+    }
 }
@@ -0,0 +1,47 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+
+import java.util.List;
+
+/**
+ * Published by WorkoutService once per bulk import instead of one WorkoutChangedEvent per workout,
+ * so a large import is a single dispatch to every listener
+ * Like WorkoutChangedEvent, in memory listeners should use @TransactionalEventListener,
+ * and it is numbered in the same sequence
+ */
+public final class WorkoutsImportedEvent {
+
+    private final Long userId;
+
+    private final List<WorkoutSnapshot> created;
+
+    private final long sequence;
+
+    public WorkoutsImportedEvent(Long userId, List<WorkoutSnapshot> created) {
+        this.userId = userId;
+        this.created = List.copyOf(created);
+        this.sequence = WorkoutChangedEvent.nextSequence();
+    }
+
+    /**
+     * @return owner of every imported workout
+     */
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return number of this event, see WorkoutChangedEvent.getSequence()
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the workouts that were created
+     */
+    public List<WorkoutSnapshot> getCreated() {
+        return created;
+    }
+}
@@ -0,0 +1,45 @@
+-- Runs on every startup, everything here has to be idempotent
+
+-- Workout ids come from a pooled sequence (allocation size 50) so inserts can be batched.
+-- Older databases used an identity column, move the sequence past the existing ids so they never collide.
+CREATE SEQUENCE IF NOT EXISTS workouts_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('workouts_seq', GREATEST((SELECT last_value FROM workouts_seq), (SELECT COALESCE(MAX(id), 1) FROM workouts)));
+
+-- Version columns for optimistic locking (@Version on User and Workout), existing rows start at version 0.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+ALTER TABLE workouts ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+
+-- Last update time for conditional GETs (Last-Modified), rows written before this column existed stay null.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS updated_at timestamp with time zone;
+ALTER TABLE workouts ADD COLUMN IF NOT EXISTS updated_at timestamp with time zone;
+
+-- Soft deleted users (@Where on User) must not block their username or email, uniqueness only applies to live users.
+-- Drop the plain unique constraints from User's @Table in case hibernate created them (ddl-auto create or update).
+ALTER TABLE users DROP CONSTRAINT IF EXISTS uk_users_username;
+ALTER TABLE users DROP CONSTRAINT IF EXISTS uk_users_email;
+-- Older versions mapped the columns with unique = true, hibernate named those constraints after a hash of the column.
+ALTER TABLE users DROP CONSTRAINT IF EXISTS uk_r43af9ap4edm43mmtq01oddj6;
+ALTER TABLE users DROP CONSTRAINT IF EXISTS uk_6dotkott2kjsp8vw4d0m25fb7;
+-- Uniqueness ignores case as well, registration relies on these indexes to stay correct under concurrent sign-ups.
+-- UserService maps a violation back to a message by looking for "username" or "email" in the index name.
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_username_lower_active ON users (lower(username)) WHERE is_deleted = false;
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_email_lower_active ON users (lower(email)) WHERE is_deleted = false;
+-- Case-sensitive versions of the two indexes above created by an earlier version of this script.
+DROP INDEX IF EXISTS ux_users_username_active;
+DROP INDEX IF EXISTS ux_users_email_active;
+
+-- Copy of the owner's is_deleted on every workout so workout queries skip a deleted user's rows without a join.
+ALTER TABLE workouts ADD COLUMN IF NOT EXISTS user_deleted boolean NOT NULL DEFAULT false;
+UPDATE workouts SET user_deleted = true
+WHERE user_deleted = false AND user_id IN (SELECT user_id FROM users WHERE is_deleted = true);
+
+-- Full text search over workout names and notes (PostgresWorkoutSearchIndex), name words rank above notes words.
+-- Generated so it can never drift from the columns, hibernate does not map it.
+ALTER TABLE workouts ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(name, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(notes, '')), 'B')) STORED;
+CREATE INDEX IF NOT EXISTS idx_workouts_search ON workouts USING GIN (search_vector);
+
+-- Leaderboards are rebuilt at startup from every user's workouts of the last few weeks (WorkoutLeaderboardService),
+-- the other workout indexes all start with user_id so none of them serves a date range across users.
+CREATE INDEX IF NOT EXISTS idx_workouts_date ON workouts (date);
@@ -0,0 +1,30 @@
+package com.eguglielmelli.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BCryptCalibrationTest {
+
+    @Test
+    public void pickStrengthTest_Normal_Success() {
+        //30 ms at strength 10 projects to 60, 120, 240 ms at 11, 12, 13
+        assertEquals(13, BCryptCalibration.pickStrength(10, 30, 250));
+    }
+
+    @Test
+    public void pickStrengthTest_exactlyOnTarget_shouldIncludeThatStrength() {
+        assertEquals(12, BCryptCalibration.pickStrength(10, 50, 200));
+    }
+
+    @Test
+    public void pickStrengthTest_slowMachine_shouldNotGoBelowMinimum() {
+        //even the minimum is over the target, we still never hash weaker than that
+        assertEquals(10, BCryptCalibration.pickStrength(10, 400, 250));
+    }
+
+    @Test
+    public void pickStrengthTest_veryFastMachine_shouldStopAtBcryptMaximum() {
+        assertEquals(BCryptCalibration.MAX_STRENGTH, BCryptCalibration.pickStrength(10, 0.0001, Long.MAX_VALUE));
+    }
+}
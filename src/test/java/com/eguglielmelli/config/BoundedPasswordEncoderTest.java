@@ -0,0 +1,108 @@
+package com.eguglielmelli.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedPasswordEncoderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CountDownLatch release;
+
+    private CountDownLatch started;
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        release = new CountDownLatch(1);
+        started = new CountDownLatch(1);
+        //one thread and room for one waiting hash, the delegate blocks until we release it
+        passwordEncoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder(), 1, 1, meterRegistry);
+        callers = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        passwordEncoder.destroy();
+    }
+
+    @Test
+    public void encodeTest_Normal_Success() {
+        release.countDown();
+
+        assertEquals("hashed:password", passwordEncoder.encode("password"));
+        assertTrue(passwordEncoder.matches("password", "hashed:password"));
+        assertEquals(1, meterRegistry.get("password.hash").tag("operation", "encode").timer().count());
+        assertEquals(1, meterRegistry.get("password.hash").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    public void encodeTest_poolAndQueueFull_shouldRejectRightAway() throws Exception {
+        //first call occupies the only thread, second waits in the queue
+        Future<String> running = callers.submit(() -> passwordEncoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> queued = callers.submit(() -> passwordEncoder.encode("second"));
+        waitForQueuedHashes(1);
+
+        //third call has nowhere to go
+        assertThrows(PasswordHashingBusyException.class, () -> passwordEncoder.encode("third"));
+        assertEquals(1.0, meterRegistry.get("password.hashing.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("hashed:first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hashed:second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void constructorTest_zeroThreads_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new BoundedPasswordEncoder(new BlockingPasswordEncoder(), 0, 1, meterRegistry));
+    }
+
+    private void waitForQueuedHashes(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(meterRegistry.get("executor.queued").tag("name", "password.hashing").gauge().value() < expected) {
+            assertTrue(System.nanoTime() < deadline, "hash was never queued");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Stand in for bcrypt that blocks until the test releases it
+     */
+    private class BlockingPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    }
+}
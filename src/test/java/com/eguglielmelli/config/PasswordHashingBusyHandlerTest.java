@@ -0,0 +1,63 @@
+package com.eguglielmelli.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+import javax.servlet.FilterChain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHashingBusyHandlerTest {
+
+    private PasswordHashingBusyHandler passwordHashingBusyHandler;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        passwordHashingBusyHandler = new PasswordHashingBusyHandler("Realm");
+        request = new MockHttpServletRequest();
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void doFilterTest_busyDuringPasswordCheck_shouldReturnTooManyRequests() throws Exception {
+        //the password check inside BasicAuthenticationFilter lets the exception through unwrapped
+        FilterChain chain = (req, res) -> {
+            throw new PasswordHashingBusyException("Password hashing is busy, try again shortly");
+        };
+
+        passwordHashingBusyHandler.doFilter(request, response, chain);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals("Password hashing is busy, try again shortly", response.getContentAsString());
+    }
+
+    @Test
+    public void commenceTest_busyWrapped_shouldReturnTooManyRequests() throws Exception {
+        //an unknown username still hashes to keep timing even, there the exception comes wrapped
+        InternalAuthenticationServiceException authException = new InternalAuthenticationServiceException(
+                "busy", new PasswordHashingBusyException("Password hashing is busy, try again shortly"));
+
+        passwordHashingBusyHandler.commence(request, response, authException);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    public void commenceTest_badCredentials_shouldReturnUnauthorized() throws Exception {
+        passwordHashingBusyHandler.commence(request, response, new BadCredentialsException("Bad credentials"));
+
+        assertEquals(401, response.getStatus());
+        assertEquals("Basic realm=\"Realm\"", response.getHeader(HttpHeaders.WWW_AUTHENTICATE));
+    }
+}
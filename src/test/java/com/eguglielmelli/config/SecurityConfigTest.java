@@ -0,0 +1,61 @@
+package com.eguglielmelli.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SecurityConfigTest {
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+        //strength 5 so hashes made at 4 count as too weak
+        passwordEncoder = (BoundedPasswordEncoder) new SecurityConfig(false)
+                .passwordEncoder(1, 10, 5, 4, 250, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordEncoder.destroy();
+    }
+
+    @Test
+    public void passwordEncoderTest_newHash_shouldBePrefixedAndCurrent() {
+        String encoded = passwordEncoder.encode("password");
+
+        assertTrue(encoded.startsWith("{bcrypt}$2a$05$"));
+        assertTrue(passwordEncoder.matches("password", encoded));
+        assertFalse(passwordEncoder.upgradeEncoding(encoded));
+    }
+
+    @Test
+    public void passwordEncoderTest_legacyHash_shouldMatchAndNeedUpgrade() {
+        //hashes stored before the delegating encoder have no {bcrypt} prefix
+        String legacy = new BCryptPasswordEncoder(5).encode("password");
+
+        assertTrue(passwordEncoder.matches("password", legacy));
+        assertFalse(passwordEncoder.matches("wrong password", legacy));
+        assertTrue(passwordEncoder.upgradeEncoding(legacy));
+    }
+
+    @Test
+    public void passwordEncoderTest_weakerStrength_shouldNeedUpgrade() {
+        String weaker = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("password");
+
+        assertTrue(passwordEncoder.matches("password", weaker));
+        assertTrue(passwordEncoder.upgradeEncoding(weaker));
+    }
+}
@@ -0,0 +1,34 @@
+package com.eguglielmelli.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ThreadingConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(ThreadingConfig.class);
+
+    @Test
+    public void threadingConfigTest_platformMode_shouldNotEnableAsync() {
+        //the default mode must leave @Async methods running on the caller's thread as before
+        contextRunner.withPropertyValues("app.threading.mode=platform")
+                .run(context -> assertThat(context).doesNotHaveBean(AsyncAnnotationBeanPostProcessor.class));
+    }
+
+    @Test
+    public void threadingConfigTest_noMode_shouldNotEnableAsync() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(AsyncAnnotationBeanPostProcessor.class));
+    }
+
+    @Test
+    public void threadingConfigTest_virtualMode_shouldEnableAsync() {
+        //only meaningful when the tests run on Java 21 or later
+        assumeTrue(VirtualThreads.isSupported());
+        contextRunner.withPropertyValues("app.threading.mode=virtual")
+                .run(context -> assertThat(context).hasSingleBean(AsyncAnnotationBeanPostProcessor.class));
+    }
+}
@@ -0,0 +1,35 @@
+package com.eguglielmelli.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void newThreadPerTaskExecutorTest_Normal_Success() throws Exception {
+        //only meaningful when the tests run on Java 21 or later
+        assumeTrue(VirtualThreads.isSupported());
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+
+        String threadName = executor.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals("test-0", threadName);
+    }
+
+    @Test
+    public void newThreadPerTaskExecutorTest_oldJvm_shouldThrowException() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> VirtualThreads.newThreadPerTaskExecutor("test-"));
+
+        assertTrue(exception.getMessage().startsWith("Virtual threads need Java 21 or later"));
+    }
+}
@@ -1,11 +1,29 @@
 package com.eguglielmelli.controllers;
 
 import com.eguglielmelli.config.SecurityConfig;
+import com.eguglielmelli.dtos.ResourceVersion;
 import com.eguglielmelli.dtos.WorkoutDto;
+import com.eguglielmelli.dtos.WorkoutImportResult;
+import com.eguglielmelli.dtos.WorkoutPage;
+import com.eguglielmelli.dtos.WorkoutPatchDto;
+import com.eguglielmelli.dtos.WorkoutPeriodStats;
+import com.eguglielmelli.dtos.WorkoutRecord;
+import com.eguglielmelli.dtos.WorkoutRecords;
+import com.eguglielmelli.dtos.WorkoutSearchHit;
+import com.eguglielmelli.dtos.WorkoutSearchPage;
+import com.eguglielmelli.dtos.WorkoutStats;
+import com.eguglielmelli.dtos.WorkoutSummary;
+import com.eguglielmelli.dtos.WorkoutTypeRecords;
+import com.eguglielmelli.dtos.WorkoutTypeStats;
 import com.eguglielmelli.dtos.WorkoutUpdateDto;
 import com.eguglielmelli.entities.User;
 import com.eguglielmelli.entities.Workout;
 import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.service.VersionMismatchException;
+import com.eguglielmelli.service.WorkoutAnalyticsService;
+import com.eguglielmelli.service.WorkoutExportService;
+import com.eguglielmelli.service.WorkoutRecordsService;
+import com.eguglielmelli.service.WorkoutSearchService;
 import com.eguglielmelli.service.WorkoutService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -16,17 +34,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -41,6 +67,18 @@ public class WorkoutControllerTest {
     @MockBean
     private WorkoutService workoutService;
 
+    @MockBean
+    private WorkoutExportService workoutExportService;
+
+    @MockBean
+    private WorkoutSearchService workoutSearchService;
+
+    @MockBean
+    private WorkoutAnalyticsService workoutAnalyticsService;
+
+    @MockBean
+    private WorkoutRecordsService workoutRecordsService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -103,7 +141,7 @@ public class WorkoutControllerTest {
         Long workoutId = 1L;
         Long userId = 1L;
 
-        when(workoutService.deleteWorkout(workoutId)).thenReturn(true);
+        when(workoutService.deleteWorkout(userId, workoutId)).thenReturn(true);
 
         mockMvc.perform(delete("/api/users/{userId}/workouts/{id}/delete", userId, workoutId))
                 .andExpect(status().isOk());
@@ -134,7 +172,7 @@ public class WorkoutControllerTest {
         updatedWorkout.setNotes(updateDto.getNotes());
 
 
-        when(workoutService.updateWorkoutInfo(eq(workoutId), any(WorkoutUpdateDto.class))).thenReturn(true);
+        when(workoutService.updateWorkoutInfo(eq(workoutId), any(WorkoutUpdateDto.class), isNull())).thenReturn(true);
         String workoutDtoJson = objectMapper.writeValueAsString(updateDto);
 
         // Perform the PUT request and verify the response
@@ -144,6 +182,34 @@ public class WorkoutControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void patchWorkoutTest_Normal_Success() throws Exception {
+        //only the fields in the body are sent to the service
+        Long workoutId = 1L;
+        Long userId = 1L;
+
+        when(workoutService.patchWorkout(eq(userId), eq(workoutId), any(WorkoutPatchDto.class), isNull())).thenReturn(true);
+
+        mockMvc.perform(patch("/api/users/{userId}/workouts/{id}/update", userId, workoutId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Renamed workout\"}"))
+                .andExpect(status().isOk());
+
+        verify(workoutService).patchWorkout(eq(userId), eq(workoutId),
+                argThat(dto -> "Renamed workout".equals(dto.getName()) && dto.getNotes() == null
+                        && dto.getCaloriesBurned() == null), isNull());
+    }
+
+    @Test
+    public void patchWorkoutTest_negativeCalories_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(patch("/api/users/{userId}/workouts/{id}/update", 1L, 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"caloriesBurned\": -5}"))
+                .andExpect(status().isBadRequest());
+
+        verify(workoutService, never()).patchWorkout(anyLong(), anyLong(), any(WorkoutPatchDto.class), any());
+    }
+
     @Test
     public void getWorkoutInfoTest_Normal_Success() throws Exception {
         //normal test of getting workout info
@@ -157,7 +223,9 @@ public class WorkoutControllerTest {
         workout.setDurationInMinutes(60);
         workout.setCaloriesBurned(500);
         workout.setNotes("Sample notes");
+        workout.setUser(new User());
 
+        when(workoutService.getWorkoutVersion(eq(workoutId))).thenReturn(new ResourceVersion(0L, null, 0L, null));
         when(workoutService.getWorkoutInfo(eq(workoutId))).thenReturn(workout);
 
         mockMvc.perform(get("/api/users/{userId}/workouts/{id}/info", 1L, workoutId)
@@ -171,5 +239,244 @@ public class WorkoutControllerTest {
                 .andExpect(jsonPath("$.caloriesBurned").value(500))
                 .andExpect(jsonPath("$.notes").value("Sample notes"));
     }
-}
 
+    @Test
+    public void getWorkoutInfoTest_shouldReturnVersionAsETag() throws Exception {
+        //the workout is returned with its user so both versions go in the ETag
+        User user = new User();
+        user.setVersion(2L);
+        Workout workout = new Workout();
+        workout.setId(1L);
+        workout.setName("Sample Workout");
+        workout.setVersion(3L);
+        workout.setUser(user);
+
+        when(workoutService.getWorkoutVersion(eq(1L))).thenReturn(new ResourceVersion(3L, null, 2L, null));
+        when(workoutService.getWorkoutInfo(eq(1L))).thenReturn(workout);
+
+        mockMvc.perform(get("/api/users/{userId}/workouts/{id}/info", 1L, 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3.2\""));
+    }
+
+    @Test
+    public void getWorkoutInfoTest_matchingIfNoneMatch_shouldReturnNotModified() throws Exception {
+        //the client already has version 3 with user version 2, the workout itself should never be read
+        when(workoutService.getWorkoutVersion(eq(1L))).thenReturn(new ResourceVersion(3L, null, 2L, null));
+
+        mockMvc.perform(get("/api/users/{userId}/workouts/{id}/info", 1L, 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3.2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3.2\""))
+                .andExpect(content().string(""));
+
+        verify(workoutService, never()).getWorkoutInfo(anyLong());
+    }
+
+    @Test
+    public void getWorkoutInfoTest_userChanged_shouldReturnWorkout() throws Exception {
+        //the workout is unchanged but its user was updated, the client's copy embeds the old user
+        User user = new User();
+        user.setVersion(3L);
+        Workout workout = new Workout();
+        workout.setId(1L);
+        workout.setName("Sample Workout");
+        workout.setVersion(3L);
+        workout.setUser(user);
+
+        when(workoutService.getWorkoutVersion(eq(1L))).thenReturn(new ResourceVersion(3L, null, 3L, null));
+        when(workoutService.getWorkoutInfo(eq(1L))).thenReturn(workout);
+
+        mockMvc.perform(get("/api/users/{userId}/workouts/{id}/info", 1L, 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3.2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3.3\""));
+    }
+
+    @Test
+    public void getWorkoutInfoTest_notModifiedSince_shouldReturnNotModified() throws Exception {
+        Instant updatedAt = Instant.parse("2024-06-21T10:15:30Z");
+        when(workoutService.getWorkoutVersion(eq(1L))).thenReturn(new ResourceVersion(3L, updatedAt));
+
+        mockMvc.perform(get("/api/users/{userId}/workouts/{id}/info", 1L, 1L)
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 21 Jun 2024 10:15:30 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(workoutService, never()).getWorkoutInfo(anyLong());
+    }
+
+    @Test
+    public void getWorkoutInfoTest_staleIfNoneMatch_shouldReturnWorkout() throws Exception {
+        Workout workout = new Workout();
+        workout.setId(1L);
+        workout.setName("Sample Workout");
+        workout.setVersion(4L);
+        workout.setUser(new User());
+
+        when(workoutService.getWorkoutVersion(eq(1L))).thenReturn(new ResourceVersion(4L, null, 0L, null));
+        when(workoutService.getWorkoutInfo(eq(1L))).thenReturn(workout);
+
+        mockMvc.perform(get("/api/users/{userId}/workouts/{id}/info", 1L, 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3.0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4.0\""))
+                .andExpect(jsonPath("$.name").value("Sample Workout"));
+    }
+
+    @Test
+    public void patchWorkoutTest_ifMatchHeader_shouldPassVersion() throws Exception {
+        when(workoutService.patchWorkout(eq(1L), eq(1L), any(WorkoutPatchDto.class), eq(3L))).thenReturn(true);
+
+        mockMvc.perform(patch("/api/users/{userId}/workouts/{id}/update", 1L, 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Renamed workout\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void patchWorkoutTest_ifMatchWithUserVersion_shouldPassWorkoutVersion() throws Exception {
+        //the ETag of a GET also carries the user's version, only the workout's version is checked on update
+        when(workoutService.patchWorkout(eq(1L), eq(1L), any(WorkoutPatchDto.class), eq(3L))).thenReturn(true);
+
+        mockMvc.perform(patch("/api/users/{userId}/workouts/{id}/update", 1L, 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"3.2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Renamed workout\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void patchWorkoutTest_staleIfMatch_shouldReturnPreconditionFailed() throws Exception {
+        //the client has version 2 but the workout is already at version 3
+        when(workoutService.patchWorkout(eq(1L), eq(1L), any(WorkoutPatchDto.class), eq(2L)))
+                .thenThrow(new VersionMismatchException("Workout has been modified since version 2", 3L));
+
+        mockMvc.perform(patch("/api/users/{userId}/workouts/{id}/update", 1L, 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Renamed workout\"}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    public void updateWorkoutInfoTest_concurrentUpdate_shouldReturnConflict() throws Exception {
+        //another request committed first, hibernate's version check fails on flush
+        when(workoutService.updateWorkoutInfo(eq(1L), any(WorkoutUpdateDto.class), isNull()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Workout.class, 1L));
+
+        mockMvc.perform(put("/api/users/{userId}/workouts/{id}/update", 1L, 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Renamed workout\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void getUsersWorkoutsTest_Normal_Success() throws Exception {
+        //page of workouts with a cursor pointing at the next page
+        WorkoutSummary workout = new WorkoutSummary(1L, "Sample Workout", LocalDate.parse("2024-06-24"),
+                WorkoutType.RUNNING, 60, 500);
+
+        WorkoutPage page = new WorkoutPage(List.of(workout), "next");
+        when(workoutService.getUsersWorkouts(eq(1L), eq(LocalDate.parse("2024-06-01")), isNull(), eq(WorkoutType.RUNNING),
+                eq("cursor"), eq(10))).thenReturn(page);
+
+        mockMvc.perform(get("/api/users/{userId}/workouts", 1L)
+                        .param("from", "2024-06-01")
+                        .param("type", "RUNNING")
+                        .param("cursor", "cursor")
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.workouts[0].name").value("Sample Workout"))
+                .andExpect(jsonPath("$.workouts[0].user").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    public void importWorkoutsTest_Normal_Success() throws Exception {
+        //bulk import should report how many were created and which failed
+        WorkoutDto workoutDto = new WorkoutDto();
+        workoutDto.setWorkoutType(WorkoutType.RUNNING);
+        workoutDto.setDate(LocalDate.parse("2024-06-24"));
+        workoutDto.setName("Sample workout");
+        workoutDto.setDurationInMinutes(50);
+
+        WorkoutImportResult result = new WorkoutImportResult(1,
+                List.of(new WorkoutImportResult.ItemError(1, "Workout name must not be null or empty")));
+        when(workoutService.importWorkouts(eq(1L), anyList())).thenReturn(result);
+
+        mockMvc.perform(post("/api/users/{userId}/workouts/bulk", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(workoutDto, new WorkoutDto()))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].message").value("Workout name must not be null or empty"));
+    }
+
+    @Test
+    public void exportWorkoutsTest_Normal_Success() throws Exception {
+        //whatever the export service writes should be the response body, as ndjson
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(workoutExportService).exportWorkouts(eq(1L), any(OutputStream.class));
+
+        mockMvc.perform(get("/api/users/{userId}/workouts/export", 1L))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    public void getWorkoutStatsTest_Normal_Success() throws Exception {
+        //only the aggregated rows should come back
+        WorkoutStats stats = new WorkoutStats(LocalDate.parse("2024-06-01"), LocalDate.parse("2024-06-30"),
+                List.of(new WorkoutTypeStats(WorkoutType.RUNNING, 2L, 60L, 400L, 30.0, 200.0)),
+                List.of(new WorkoutPeriodStats(LocalDate.parse("2024-06-24"), 2L, 60L, 400L)));
+        when(workoutService.getWorkoutStats(1L, LocalDate.parse("2024-06-01"), LocalDate.parse("2024-06-30"))).thenReturn(stats);
+
+        mockMvc.perform(get("/api/users/{userId}/workouts/stats", 1L)
+                        .param("from", "2024-06-01")
+                        .param("to", "2024-06-30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.byType[0].workoutType").value("RUNNING"))
+                .andExpect(jsonPath("$.byType[0].averageCalories").value(200.0))
+                .andExpect(jsonPath("$.byWeek[0].startDate").value("2024-06-24"))
+                .andExpect(jsonPath("$.byWeek[0].totalDuration").value(60));
+    }
+
+    @Test
+    public void searchWorkoutsTest_Normal_Success() throws Exception {
+        //hits come back best match first with their rank
+        WorkoutSearchHit hit = new WorkoutSearchHit(1L, "Hill repeats", LocalDate.parse("2024-06-24"),
+                WorkoutType.RUNNING, 45, 400, 0.6f);
+        when(workoutSearchService.searchWorkouts(1L, "hill repeats", null, 20))
+                .thenReturn(new WorkoutSearchPage(List.of(hit), "next"));
+
+        mockMvc.perform(get("/api/users/{userId}/workouts/search", 1L)
+                        .param("q", "hill repeats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits[0].name").value("Hill repeats"))
+                .andExpect(jsonPath("$.hits[0].rank").value(0.6))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    public void getWorkoutRecordsTest_Normal_Success() throws Exception {
+        WorkoutRecord longest = new WorkoutRecord(3L, LocalDate.parse("2024-06-20"), 90);
+        WorkoutRecord calories = new WorkoutRecord(4L, LocalDate.parse("2024-06-22"), 800);
+        when(workoutRecordsService.getRecords(1L)).thenReturn(new WorkoutRecords(2, 5,
+                List.of(new WorkoutTypeRecords(WorkoutType.RUNNING, longest, calories))));
+
+        mockMvc.perform(get("/api/users/{userId}/workouts/records", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.currentStreak").value(2))
+                .andExpect(jsonPath("$.longestStreak").value(5))
+                .andExpect(jsonPath("$.byType[0].longestDuration.workoutId").value(3))
+                .andExpect(jsonPath("$.byType[0].mostCalories.value").value(800));
+    }
+}
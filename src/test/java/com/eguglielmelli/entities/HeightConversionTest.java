@@ -8,20 +8,13 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class HeightConversionTest {
 
-    private HeightConversion heightConverter;
-
-    @BeforeEach
-    void setUp() {
-        this.heightConverter = new HeightConversion();
-    }
-
     @Test
     public void centimetersToInchesTest_Normal_Success() {
         //normal case where we don't have to worry about making changes
         //to decimal places etc, should be successful
         BigDecimal heightInCentimeters = new BigDecimal("90.0");
 
-        BigDecimal heightInInches = heightConverter.centimetersToInches(heightInCentimeters);
+        BigDecimal heightInInches = HeightConversion.centimetersToInches(heightInCentimeters);
 
         assertEquals(BigDecimal.valueOf(35.4), heightInInches);
 
@@ -33,7 +26,7 @@ public class HeightConversionTest {
         //an IllegalArgumentException
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-            heightConverter.centimetersToInches(null);
+            HeightConversion.centimetersToInches(null);
         });
 
         assertEquals("Centimeters cannot be null", exception.getMessage());
@@ -44,7 +37,7 @@ public class HeightConversionTest {
         //normal case, expecting a successful conversion
         BigDecimal heightInInches = new BigDecimal(150.0);
 
-        BigDecimal heightInCentimeters = heightConverter.inchesToCentimeters(heightInInches);
+        BigDecimal heightInCentimeters = HeightConversion.inchesToCentimeters(heightInInches);
 
         assertEquals(BigDecimal.valueOf(381.0), heightInCentimeters);
     }
@@ -54,7 +47,7 @@ public class HeightConversionTest {
         //null case, should throw an IllegalArgumentException
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-           heightConverter.inchesToCentimeters(null);
+           HeightConversion.inchesToCentimeters(null);
         });
 
         assertEquals("Inches cannot be null", exception.getMessage());
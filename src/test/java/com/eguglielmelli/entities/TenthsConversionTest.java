@@ -0,0 +1,162 @@
+package com.eguglielmelli.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TenthsConversionTest {
+
+    //every value from -100,000.0 to 100,000.0, well beyond any real height or weight
+    private static final long EXHAUSTIVE_LIMIT = 1_000_000;
+
+    @Test
+    public void convertTest_centimetersToInches_shouldMatchHeightConversion() {
+        assertMatchesEveryValue(TenthsConversion.CENTIMETERS_TO_INCHES, HeightConversion::centimetersToInches,
+                -EXHAUSTIVE_LIMIT);
+    }
+
+    @Test
+    public void convertTest_inchesToCentimeters_shouldMatchHeightConversion() {
+        assertMatchesEveryValue(TenthsConversion.INCHES_TO_CENTIMETERS, HeightConversion::inchesToCentimeters,
+                -EXHAUSTIVE_LIMIT);
+    }
+
+    @Test
+    public void convertTest_poundsToKilos_shouldMatchWeightConversion() {
+        assertMatchesEveryValue(TenthsConversion.POUNDS_TO_KILOS, WeightConversion::poundsToKilos, 0);
+    }
+
+    @Test
+    public void convertTest_kilosToPounds_shouldMatchWeightConversion() {
+        assertMatchesEveryValue(TenthsConversion.KILOS_TO_POUNDS, WeightConversion::kilosToPounds, 0);
+    }
+
+    @Test
+    public void convertTest_randomLargeValues_shouldMatchBigDecimal() {
+        //beyond the exhaustive range, sampled up to the largest value each conversion accepts
+        Random random = new Random(7);
+        for(TenthsConversion conversion : TenthsConversion.values()) {
+            UnaryOperator<BigDecimal> expected = bigDecimalVersion(conversion);
+            long max = Long.MAX_VALUE / multiplier(conversion);
+            for(int i = 0; i < 100_000; i++) {
+                long tenths = Math.floorMod(random.nextLong(), max + 1);
+                assertEquals(expected.apply(TenthsConversion.fromTenths(tenths)),
+                        TenthsConversion.fromTenths(conversion.convert(tenths)), () -> conversion + " of " + tenths);
+            }
+            assertEquals(expected.apply(TenthsConversion.fromTenths(max)),
+                    TenthsConversion.fromTenths(conversion.convert(max)));
+        }
+    }
+
+    @Test
+    public void convertTest_halfway_shouldRoundAwayFromZero() {
+        //2.5 in is exactly 6.35 cm
+        assertEquals(64, TenthsConversion.INCHES_TO_CENTIMETERS.convert(25));
+        assertEquals(-64, TenthsConversion.INCHES_TO_CENTIMETERS.convert(-25));
+    }
+
+    @Test
+    public void convertTest_negativeWeight_shouldThrowException() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> TenthsConversion.POUNDS_TO_KILOS.convert(-1));
+        assertEquals("Input pounds must be a non-negative number.", exception.getMessage());
+    }
+
+    @Test
+    public void convertTest_tooLarge_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> TenthsConversion.KILOS_TO_POUNDS.convert(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void convertArrayTest_Normal_Success() {
+        long[] pounds = {1505, 0, 2000};
+        long[] kilos = new long[3];
+
+        TenthsConversion.POUNDS_TO_KILOS.convert(pounds, kilos);
+
+        assertArrayEquals(new long[]{683, 0, 907}, kilos);
+    }
+
+    @Test
+    public void convertArrayTest_sameArray_shouldConvertInPlace() {
+        long[] values = {1209, 100};
+
+        TenthsConversion.KILOS_TO_POUNDS.convert(values, values);
+
+        assertArrayEquals(new long[]{2665, 220}, values);
+    }
+
+    @Test
+    public void convertArrayTest_badValue_shouldLeaveOutputUntouched() {
+        long[] pounds = {1505, -10};
+        long[] kilos = new long[2];
+
+        assertThrows(IllegalArgumentException.class, () -> TenthsConversion.POUNDS_TO_KILOS.convert(pounds, kilos));
+        assertArrayEquals(new long[2], kilos);
+    }
+
+    @Test
+    public void convertArrayTest_outputTooShort_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TenthsConversion.POUNDS_TO_KILOS.convert(new long[3], new long[2]));
+    }
+
+    @Test
+    public void toTenthsTest_Normal_Success() {
+        assertEquals(725, TenthsConversion.toTenths(new BigDecimal("72.5")));
+        assertEquals(720, TenthsConversion.toTenths(new BigDecimal("72")));
+        assertEquals(725, TenthsConversion.toTenths(new BigDecimal("72.50")));
+        assertEquals(new BigDecimal("72.5"), TenthsConversion.fromTenths(725));
+    }
+
+    @Test
+    public void toTenthsTest_twoDecimalPlaces_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> TenthsConversion.toTenths(new BigDecimal("72.55")));
+    }
+
+    private void assertMatchesEveryValue(TenthsConversion conversion, UnaryOperator<BigDecimal> expected, long from) {
+        long[] in = new long[(int) (EXHAUSTIVE_LIMIT - from + 1)];
+        for(int i = 0; i < in.length; i++) {
+            in[i] = from + i;
+        }
+        long[] out = new long[in.length];
+        conversion.convert(in, out);
+        for(int i = 0; i < in.length; i++) {
+            BigDecimal value = TenthsConversion.fromTenths(in[i]);
+            BigDecimal converted = expected.apply(value);
+            //equals also compares the scale, both must be one decimal place
+            assertEquals(converted, TenthsConversion.fromTenths(out[i]), () -> conversion + " of " + value);
+            assertEquals(out[i], conversion.convert(in[i]));
+        }
+    }
+
+    private UnaryOperator<BigDecimal> bigDecimalVersion(TenthsConversion conversion) {
+        switch(conversion) {
+            case CENTIMETERS_TO_INCHES:
+                return HeightConversion::centimetersToInches;
+            case INCHES_TO_CENTIMETERS:
+                return HeightConversion::inchesToCentimeters;
+            case POUNDS_TO_KILOS:
+                return WeightConversion::poundsToKilos;
+            default:
+                return WeightConversion::kilosToPounds;
+        }
+    }
+
+    private long multiplier(TenthsConversion conversion) {
+        switch(conversion) {
+            case CENTIMETERS_TO_INCHES:
+                return HeightConversion.CM_TO_INCHES.unscaledValue().longValueExact();
+            case INCHES_TO_CENTIMETERS:
+                return HeightConversion.INCHES_TO_CM.unscaledValue().longValueExact();
+            case POUNDS_TO_KILOS:
+                return WeightConversion.POUNDS_TO_KG.unscaledValue().longValueExact();
+            default:
+                return WeightConversion.KG_TO_POUNDS.unscaledValue().longValueExact();
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.eguglielmelli.entities;
 
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -9,17 +8,11 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class WeightConversionTest {
 
-    WeightConversion weightConverter;
-
-    @BeforeEach
-    public void setUp() {
-        weightConverter = new WeightConversion();
-    }
     @Test
     public void poundsToKilosTest_Normal_Success() {
       //  normal case, making sure our rounding to one decimal place is correct
         BigDecimal pounds = new BigDecimal("150.5");
-        BigDecimal conversionToKilos = weightConverter.poundsToKilos(pounds);
+        BigDecimal conversionToKilos = WeightConversion.poundsToKilos(pounds);
         assertEquals(new BigDecimal("68.3"),conversionToKilos);
     }
     @Test
@@ -27,7 +20,7 @@ public class WeightConversionTest {
         //null case, method must throw an exception
         BigDecimal nullPounds  = null;
         IllegalArgumentException argException = assertThrows(IllegalArgumentException.class, () -> {
-            weightConverter.poundsToKilos(nullPounds);
+            WeightConversion.poundsToKilos(nullPounds);
         });
         assertEquals("Input pounds must be a non-negative number.",argException.getMessage());
 
@@ -37,7 +30,7 @@ public class WeightConversionTest {
         //case where pounds == 0
         BigDecimal zeroPounds = BigDecimal.ZERO;
         BigDecimal zeroKilosResult = BigDecimal.ZERO.setScale(1);
-        assertEquals(zeroKilosResult,weightConverter.poundsToKilos(zeroPounds));
+        assertEquals(zeroKilosResult,WeightConversion.poundsToKilos(zeroPounds));
     }
 
     @Test
@@ -45,7 +38,7 @@ public class WeightConversionTest {
         //another normal case, however input number has multiple decimal places (unlikely since
         // database will also maintain one decimal place)
         BigDecimal poundsMultipleDecimal = new BigDecimal("135.354");
-        BigDecimal kilosConvertedToOneDecimal = weightConverter.poundsToKilos(poundsMultipleDecimal);
+        BigDecimal kilosConvertedToOneDecimal = WeightConversion.poundsToKilos(poundsMultipleDecimal);
         assertEquals(new BigDecimal("61.4"),kilosConvertedToOneDecimal);
     }
     @Test
@@ -53,7 +46,7 @@ public class WeightConversionTest {
         //final case where input is < 0, method must throw exception
         BigDecimal negativePounds = new BigDecimal("-1.0");
         IllegalArgumentException argumentException = assertThrows(IllegalArgumentException.class, () -> {
-            weightConverter.poundsToKilos(negativePounds);
+            WeightConversion.poundsToKilos(negativePounds);
         });
         assertEquals("Input pounds must be a non-negative number.",argumentException.getMessage());
     }
@@ -61,8 +54,7 @@ public class WeightConversionTest {
     public void kilosToPoundsTest_Normal_Success() {
         //normal case, input kilos with one decimal place
         BigDecimal kilos = new BigDecimal("120.9");
-        WeightConversion weightConverter = new WeightConversion();
-        BigDecimal conversionFromKilos = weightConverter.kilosToPounds(kilos);
+        BigDecimal conversionFromKilos = WeightConversion.kilosToPounds(kilos);
         assertEquals(new BigDecimal("266.5"), conversionFromKilos);
     }
 
@@ -71,7 +63,7 @@ public class WeightConversionTest {
         //null case, method should throw an exception
         BigDecimal nullKilos = null;
         IllegalArgumentException argExceptionFromNull = assertThrows(IllegalArgumentException.class, () -> {
-            weightConverter.kilosToPounds(nullKilos);
+            WeightConversion.kilosToPounds(nullKilos);
         });
         assertEquals("Input kilograms must be a non-negative number.",argExceptionFromNull.getMessage());
 
@@ -82,14 +74,14 @@ public class WeightConversionTest {
         //case where input kilos == 0
         BigDecimal zeroKilos = BigDecimal.ZERO;
         BigDecimal zeroPounds = BigDecimal.ZERO.setScale(1, RoundingMode.HALF_UP);
-        assertEquals(zeroPounds,weightConverter.kilosToPounds(zeroKilos));
+        assertEquals(zeroPounds,WeightConversion.kilosToPounds(zeroKilos));
     }
 
     @Test
     public void kilosToPoundsTest_multipleDecimalPlaces_shouldRoundCorrectly() {
         //normal case with extra decimal places, need to ensure it stays as 1 decimal place
         BigDecimal multipleDecimalKilos = new BigDecimal("172.354554");
-        BigDecimal oneDecimalPounds = weightConverter.kilosToPounds(multipleDecimalKilos);
+        BigDecimal oneDecimalPounds = WeightConversion.kilosToPounds(multipleDecimalKilos);
         assertEquals(new BigDecimal("380.0"),oneDecimalPounds);
     }
 
@@ -98,7 +90,7 @@ public class WeightConversionTest {
         //case where input kilos is < 0
         BigDecimal negativeKilos = new BigDecimal("-1.5");
         IllegalArgumentException negativeException = assertThrows(IllegalArgumentException.class, () -> {
-            weightConverter.kilosToPounds(negativeKilos);
+            WeightConversion.kilosToPounds(negativeKilos);
         });
         assertEquals("Input kilograms must be a non-negative number.",negativeException.getMessage());
     }
@@ -8,11 +8,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 @DataJpaTest
 @Import(SecurityConfig.class)
@@ -77,5 +80,47 @@ public class UserRepositoryTest {
         assertThat(nonExistentUser.isEmpty()).isTrue();
     }
 
+    @Test
+    public void whenUserDeleted_lookups_thenReturnEmpty() {
+        //soft deleted users are filtered out by the persistence layer itself
+        user.setDeleted(true);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(userRepository.findById(user.getId())).isEmpty();
+        assertThat(userRepository.findByusername(user.getUsername())).isEmpty();
+        assertThat(userRepository.findByemail(user.getEmail())).isEmpty();
+        assertThat(userRepository.existsById(user.getId())).isFalse();
+    }
+
+    @Test
+    public void whenFindConflictingUsernames_usernameOrEmailTaken_thenReturnUsername() {
+        //both columns are checked in one query and the comparison ignores case
+        assertThat(userRepository.findConflictingUsernames("UserName", "other@gmail.com")).isEqualTo(List.of("username"));
+        assertThat(userRepository.findConflictingUsernames("other", "TEST@gmail.com")).isEqualTo(List.of("username"));
+    }
+
+    @Test
+    public void whenFindConflictingUsernames_nothingTaken_thenReturnEmpty() {
+        assertThat(userRepository.findConflictingUsernames("other", "other@gmail.com").isEmpty()).isTrue();
+    }
 
+    @Test
+    public void whenFindConflictingUsernames_userDeleted_thenReturnEmpty() {
+        //a soft deleted user does not hold on to their username or email
+        user.setDeleted(true);
+        entityManager.flush();
+
+        assertThat(userRepository.findConflictingUsernames("username", "test@gmail.com").isEmpty()).isTrue();
+    }
+
+    @Test
+    public void whenSaveDuplicateUsername_thenThrowException() {
+        //the generated schema has unique constraints too, not only the Postgres partial indexes
+        User duplicate = new User("Other User", "username", "password", "other@gmail.com",
+                30, BigDecimal.valueOf(175.0), BigDecimal.valueOf(75.0), false, false);
+
+        assertThatThrownBy(() -> userRepository.saveAndFlush(duplicate))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
 }
@@ -0,0 +1,94 @@
+package com.eguglielmelli.repositories;
+
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.entities.WorkoutType;
+import org.hibernate.dialect.PostgreSQL10Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * The tests run on H2, which has no DELETE ... RETURNING, so the Postgres path is checked here against
+ * an entity manager that reports the Postgres dialect
+ */
+public class WorkoutRepositoryCustomImplTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private SessionFactoryImplementor sessionFactory;
+
+    @Mock
+    private Query query;
+
+    @InjectMocks
+    private WorkoutRepositoryCustomImpl workoutRepositoryCustom;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(entityManager.getEntityManagerFactory()).thenReturn(entityManagerFactory);
+        when(entityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getJdbcServices().getDialect()).thenReturn(new PostgreSQL10Dialect());
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+    }
+
+    @Test
+    public void deleteReturningTest_shouldSkipWorkoutsOfDeletedUsers() {
+        //native SQL does not get the @Where filter of Workout, the statement has to carry it
+        when(query.getResultList()).thenReturn(List.of());
+
+        workoutRepositoryCustom.deleteByIdAndUserIdReturningSnapshot(5L, 1L);
+
+        verify(entityManager).createNativeQuery(WorkoutRepositoryCustomImpl.DELETE_RETURNING_QUERY);
+        assertTrue(WorkoutRepositoryCustomImpl.DELETE_RETURNING_QUERY.contains("and user_deleted = false"));
+        verify(query).setParameter("id", 5L);
+        verify(query).setParameter("userId", 1L);
+        verify(entityManager, never()).createQuery(anyString(), eq(WorkoutSnapshot.class));
+    }
+
+    @Test
+    public void deleteReturningTest_deletedRow_shouldBeSnapshot() {
+        Object[] row = {5L, 1L, Date.valueOf("2024-06-24"), "RUNNING", 30, 300};
+        when(query.getResultList()).thenReturn(Collections.singletonList(row));
+
+        Optional<WorkoutSnapshot> snapshot = workoutRepositoryCustom.deleteByIdAndUserIdReturningSnapshot(5L, 1L);
+
+        assertTrue(snapshot.isPresent());
+        assertEquals(5L, snapshot.get().getId());
+        assertEquals(1L, snapshot.get().getUserId());
+        assertEquals(LocalDate.parse("2024-06-24"), snapshot.get().getDate());
+        assertEquals(WorkoutType.RUNNING, snapshot.get().getWorkoutType());
+        assertEquals(30, snapshot.get().getDurationInMinutes());
+        assertEquals(300, snapshot.get().getCaloriesBurned());
+    }
+
+    @Test
+    public void deleteReturningTest_nothingDeleted_shouldBeEmpty() {
+        when(query.getResultList()).thenReturn(List.of());
+
+        assertTrue(workoutRepositoryCustom.deleteByIdAndUserIdReturningSnapshot(5L, 1L).isEmpty());
+    }
+}
@@ -1,6 +1,9 @@
 package com.eguglielmelli.repositories;
 
 import com.eguglielmelli.config.SecurityConfig;
+import com.eguglielmelli.dtos.ResourceVersion;
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.dtos.WorkoutSummary;
 import com.eguglielmelli.entities.User;
 import com.eguglielmelli.entities.Workout;
 import com.eguglielmelli.entities.WorkoutType;
@@ -10,10 +13,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -82,5 +88,158 @@ public class WorkoutRepositoryTest {
 
         assertThat(workouts).isEmpty();
     }
-}
 
+    @Test
+    public void findPageAfterTest_Normal_Success() {
+        //three workouts, two on the same day so the id has to break the tie
+        Workout workout1 = createWorkout("Sample workout 1", LocalDate.parse("2024-06-24"));
+        Workout workout2 = createWorkout("Sample workout 2", LocalDate.parse("2024-06-24"));
+        Workout workout3 = createWorkout("Sample workout 3", LocalDate.parse("2024-06-25"));
+
+        List<WorkoutSummary> firstPage = workoutRepository.findPageAfter(user.getId(), LocalDate.parse("1900-01-01"), 0L,
+                LocalDate.parse("9999-12-31"), PageRequest.of(0, 2));
+
+        assertThat(firstPage).extracting("name").containsExactly("Sample workout 1", "Sample workout 2");
+
+        WorkoutSummary last = firstPage.get(1);
+        List<WorkoutSummary> secondPage = workoutRepository.findPageAfter(user.getId(), last.getDate(), last.getId(),
+                LocalDate.parse("9999-12-31"), PageRequest.of(0, 2));
+
+        assertThat(secondPage).extracting("name").containsExactly("Sample workout 3");
+    }
+
+    @Test
+    public void findPageAfterByTypeTest_dateRangeAndType_shouldOnlyReturnMatches() {
+        //only the running workout inside the range should come back
+        Workout inRange = createWorkout("In range", LocalDate.parse("2024-06-24"));
+        Workout outOfRange = createWorkout("Out of range", LocalDate.parse("2024-07-24"));
+        Workout otherType = createWorkout("Other type", LocalDate.parse("2024-06-25"));
+        otherType.setWorkoutType(WorkoutType.CYCLING);
+        entityManager.persistAndFlush(otherType);
+
+        List<WorkoutSummary> workouts = workoutRepository.findPageAfterByType(user.getId(), WorkoutType.RUNNING,
+                LocalDate.parse("2024-06-01"), 0L, LocalDate.parse("2024-06-30"), PageRequest.of(0, 10));
+
+        assertThat(workouts).extracting("name").containsExactly("In range");
+    }
+
+    @Test
+    public void streamByUserIdTest_Normal_Success() {
+        //stream should give back every workout of the user in date order
+        createWorkout("Later workout", LocalDate.parse("2024-06-25"));
+        createWorkout("Earlier workout", LocalDate.parse("2024-06-24"));
+
+        try (Stream<Workout> workouts = workoutRepository.streamByUserId(user.getId())) {
+            assertThat(workouts.map(Workout::getName)).containsExactly("Earlier workout", "Later workout");
+        }
+    }
+
+    /**
+     * Helper to persist a workout for our test user
+     * @param name of workout
+     * @param date of workout
+     * @return the persisted workout
+     */
+    @Test
+    public void findVersionByIdTest_afterUpdate_shouldReturnNewVersion() {
+        //every update bumps the version and refreshes updated_at
+        Workout workout = createWorkout("Sample workout", LocalDate.parse("2024-06-24"));
+        ResourceVersion created = workoutRepository.findVersionById(workout.getId()).orElseThrow();
+
+        workout.setName("Renamed workout");
+        entityManager.flush();
+
+        ResourceVersion updated = workoutRepository.findVersionById(workout.getId()).orElseThrow();
+        assertThat(created.getVersion()).isEqualTo(0L);
+        assertThat(created.getUpdatedAt()).isNotNull();
+        assertThat(updated.getVersion()).isEqualTo(1L);
+        assertThat(updated.getUpdatedAt()).isAfterOrEqualTo(created.getUpdatedAt());
+    }
+
+    @Test
+    public void findVersionByIdTest_userUpdated_shouldReturnNewUserVersion() {
+        //the user is part of the workout response so their version comes along
+        Workout workout = createWorkout("Sample workout", LocalDate.parse("2024-06-24"));
+        ResourceVersion created = workoutRepository.findVersionById(workout.getId()).orElseThrow();
+
+        user.setAge(27);
+        entityManager.flush();
+
+        ResourceVersion updated = workoutRepository.findVersionById(workout.getId()).orElseThrow();
+        assertThat(updated.getVersion()).isEqualTo(created.getVersion());
+        assertThat(updated.getUserVersion()).isEqualTo(created.getUserVersion() + 1);
+    }
+
+    @Test
+    public void deleteByIdAndUserIdReturningSnapshotTest_Normal_Success() {
+        Workout workout = createWorkout("Sample workout", LocalDate.parse("2024-06-24"));
+
+        Optional<WorkoutSnapshot> snapshot = workoutRepository.deleteByIdAndUserIdReturningSnapshot(
+                workout.getId(), user.getId());
+        entityManager.clear();
+
+        //the snapshot carries what the rollups need to take the workout out again
+        assertThat(snapshot).isPresent();
+        assertThat(snapshot.get().getDate()).isEqualTo(LocalDate.parse("2024-06-24"));
+        assertThat(snapshot.get().getUserId()).isEqualTo(user.getId());
+        assertThat(workoutRepository.findById(workout.getId())).isEmpty();
+    }
+
+    @Test
+    public void deleteByIdAndUserIdReturningSnapshotTest_otherUser_shouldDeleteNothing() {
+        Workout workout = createWorkout("Sample workout", LocalDate.parse("2024-06-24"));
+
+        Optional<WorkoutSnapshot> snapshot = workoutRepository.deleteByIdAndUserIdReturningSnapshot(
+                workout.getId(), user.getId() + 1000);
+        entityManager.clear();
+
+        assertThat(snapshot).isEmpty();
+        assertThat(workoutRepository.findById(workout.getId())).isPresent();
+    }
+
+    @Test
+    public void deleteByIdAndUserIdReturningSnapshotTest_deletedUser_shouldDeleteNothing() {
+        //same as the Postgres statement, see WorkoutRepositoryCustomImplTest
+        Workout workout = createWorkout("Sample workout", LocalDate.parse("2024-06-24"));
+        workoutRepository.markUserDeleted(user.getId());
+        entityManager.clear();
+
+        Optional<WorkoutSnapshot> snapshot = workoutRepository.deleteByIdAndUserIdReturningSnapshot(
+                workout.getId(), user.getId());
+
+        assertThat(snapshot).isEmpty();
+    }
+
+    @Test
+    public void findVersionByIdTest_missingWorkout_shouldBeEmpty() {
+        Optional<ResourceVersion> version = workoutRepository.findVersionById(-1L);
+
+        assertThat(version).isEmpty();
+    }
+
+    @Test
+    public void markUserDeletedTest_shouldHideUsersWorkouts() {
+        //once the user is deleted their workouts disappear from every workout query
+        Workout workout = createWorkout("Sample workout", LocalDate.parse("2024-06-24"));
+
+        int hidden = workoutRepository.markUserDeleted(user.getId());
+        entityManager.clear();
+
+        assertThat(hidden).isEqualTo(1);
+        assertThat(workoutRepository.findByUser_id(user.getId())).isEmpty();
+        assertThat(workoutRepository.findById(workout.getId())).isEmpty();
+        assertThat(workoutRepository.findPageAfter(user.getId(), LocalDate.parse("1900-01-01"), 0L,
+                LocalDate.parse("9999-12-31"), PageRequest.of(0, 10))).isEmpty();
+    }
+
+    private Workout createWorkout(String name, LocalDate date) {
+        Workout workout = new Workout();
+        workout.setWorkoutType(WorkoutType.RUNNING);
+        workout.setDate(date);
+        workout.setName(name);
+        workout.setCaloriesBurned(100);
+        workout.setDurationInMinutes(10);
+        workout.setUser(user);
+        return entityManager.persistAndFlush(workout);
+    }
+}
@@ -0,0 +1,136 @@
+package com.eguglielmelli.repositories;
+
+import com.eguglielmelli.config.SecurityConfig;
+import com.eguglielmelli.dtos.WorkoutPeriodStats;
+import com.eguglielmelli.dtos.WorkoutTypeStats;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutDailyRollup;
+import com.eguglielmelli.entities.WorkoutRollupId;
+import com.eguglielmelli.entities.WorkoutType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(SecurityConfig.class)
+public class WorkoutRollupRepositoryTest {
+
+    @Autowired
+    WorkoutRollupRepository workoutRollupRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Test User", "test_user", "password", "test@gmail.com",
+                26, BigDecimal.valueOf(150.0), BigDecimal.valueOf(75.0), false, false);
+        entityManager.persistAndFlush(user);
+    }
+
+    @Test
+    public void findTypeStatsTest_Normal_Success() {
+        //two days of running and one ride inside the range, one run outside it
+        createRollup("2024-06-24", WorkoutType.RUNNING, 1, 10, 100);
+        createRollup("2024-06-25", WorkoutType.RUNNING, 1, 10, 100);
+        createRollup("2023-06-25", WorkoutType.RUNNING, 1, 10, 100);
+        createRollup("2024-06-26", WorkoutType.CYCLING, 1, 40, 300);
+
+        List<WorkoutTypeStats> stats = workoutRollupRepository.findTypeStats(user.getId(),
+                LocalDate.parse("2024-06-01"), LocalDate.parse("2024-06-30"));
+
+        //types are stored as strings so they come back in alphabetical order
+        assertThat(stats).extracting("workoutType").containsExactly(WorkoutType.CYCLING, WorkoutType.RUNNING);
+        assertThat(stats.get(0).getAverageDuration()).isEqualTo(40.0);
+        assertThat(stats.get(1).getCount()).isEqualTo(2);
+        assertThat(stats.get(1).getTotalDuration()).isEqualTo(20);
+        assertThat(stats.get(1).getTotalCalories()).isEqualTo(200);
+    }
+
+    @Test
+    public void findDailyStatsTest_Normal_Success() {
+        //two types on the same day should end up in one row, empty rows should be skipped
+        createRollup("2024-06-24", WorkoutType.RUNNING, 1, 10, 100);
+        createRollup("2024-06-24", WorkoutType.CYCLING, 2, 60, 400);
+        createRollup("2024-06-25", WorkoutType.RUNNING, 1, 10, 100);
+        createRollup("2024-06-26", WorkoutType.RUNNING, 0, 0, 0);
+
+        List<WorkoutPeriodStats> stats = workoutRollupRepository.findDailyStats(user.getId(),
+                LocalDate.parse("2024-06-01"), LocalDate.parse("2024-06-30"));
+
+        assertThat(stats).extracting("startDate").containsExactly(LocalDate.parse("2024-06-24"), LocalDate.parse("2024-06-25"));
+        assertThat(stats.get(0).getCount()).isEqualTo(3);
+        assertThat(stats.get(0).getTotalDuration()).isEqualTo(70);
+    }
+
+    @Test
+    public void mergeIntoRollupTest_rowMissing_shouldInsertRow() {
+        //the first workout of a day and type creates its row
+        int written = workoutRollupRepository.mergeIntoRollup(user.getId(), LocalDate.parse("2024-06-24"),
+                WorkoutType.RUNNING.name(), 1, 10, 100);
+        entityManager.clear();
+
+        assertThat(written).isEqualTo(1);
+        WorkoutDailyRollup rollup = workoutRollupRepository.findById(
+                new WorkoutRollupId(user.getId(), LocalDate.parse("2024-06-24"), WorkoutType.RUNNING)).orElseThrow();
+        assertThat(rollup.getWorkoutCount()).isEqualTo(1);
+        assertThat(rollup.getTotalDuration()).isEqualTo(10);
+        assertThat(rollup.getTotalCalories()).isEqualTo(100);
+    }
+
+    @Test
+    public void mergeIntoRollupTest_rowExists_shouldAddToRow() {
+        //later workouts add to the row in place instead of inserting a duplicate key
+        createRollup("2024-06-24", WorkoutType.RUNNING, 1, 10, 100);
+
+        int written = workoutRollupRepository.mergeIntoRollup(user.getId(), LocalDate.parse("2024-06-24"),
+                WorkoutType.RUNNING.name(), 1, 20, 150);
+        entityManager.clear();
+
+        assertThat(written).isEqualTo(1);
+        WorkoutDailyRollup rollup = workoutRollupRepository.findById(
+                new WorkoutRollupId(user.getId(), LocalDate.parse("2024-06-24"), WorkoutType.RUNNING)).orElseThrow();
+        assertThat(rollup.getWorkoutCount()).isEqualTo(2);
+        assertThat(rollup.getTotalDuration()).isEqualTo(30);
+        assertThat(rollup.getTotalCalories()).isEqualTo(250);
+    }
+
+    @Test
+    public void insertRollupsFromWorkoutsTest_Normal_Success() {
+        //two workouts on the same day and type should be rolled up into one row
+        entityManager.persist(new Workout("Run 1", null, 10, LocalDate.parse("2024-06-24"), 100, WorkoutType.RUNNING, user));
+        entityManager.persist(new Workout("Run 2", null, 20, LocalDate.parse("2024-06-24"), 150, WorkoutType.RUNNING, user));
+        entityManager.flush();
+
+        workoutRollupRepository.deleteAllRollups();
+        int inserted = workoutRollupRepository.insertRollupsFromWorkouts();
+        entityManager.clear();
+
+        assertThat(inserted).isEqualTo(1);
+        WorkoutDailyRollup rollup = workoutRollupRepository.findById(
+                new WorkoutRollupId(user.getId(), LocalDate.parse("2024-06-24"), WorkoutType.RUNNING)).orElseThrow();
+        assertThat(rollup.getWorkoutCount()).isEqualTo(2);
+        assertThat(rollup.getTotalDuration()).isEqualTo(30);
+        assertThat(rollup.getTotalCalories()).isEqualTo(250);
+    }
+
+    /**
+     * Helper to persist a rollup row for our test user
+     */
+    private void createRollup(String date, WorkoutType workoutType, int count, long duration, long calories) {
+        entityManager.persistAndFlush(new WorkoutDailyRollup(
+                new WorkoutRollupId(user.getId(), LocalDate.parse(date), workoutType), count, duration, calories));
+    }
+}
@@ -0,0 +1,122 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.LeaderboardEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RankedScoresTest {
+
+    @Test
+    public void addTest_Normal_Success() {
+        RankedScores scores = new RankedScores();
+        scores.add(1L, 30);
+        scores.add(2L, 50);
+        scores.add(3L, 40);
+
+        List<LeaderboardEntry> top = scores.top(10);
+
+        assertEquals(3, top.size());
+        assertEquals(2L, top.get(0).getUserId());
+        assertEquals(3L, top.get(1).getUserId());
+        assertEquals(1L, top.get(2).getUserId());
+        assertEquals(3, scores.rank(1L));
+    }
+
+    @Test
+    public void addTest_sameScore_lowerUserIdShouldRankFirst() {
+        RankedScores scores = new RankedScores();
+        scores.add(9L, 45);
+        scores.add(4L, 45);
+
+        assertEquals(1, scores.rank(4L));
+        assertEquals(2, scores.rank(9L));
+    }
+
+    @Test
+    public void addTest_scoreDropsToZero_shouldLeaveLeaderboard() {
+        RankedScores scores = new RankedScores();
+        scores.add(1L, 30);
+        scores.add(2L, 20);
+
+        scores.add(1L, -30);
+
+        assertEquals(0, scores.rank(1L));
+        assertEquals(0, scores.score(1L));
+        assertEquals(1, scores.rank(2L));
+        assertEquals(1, scores.size());
+    }
+
+    @Test
+    public void removeTest_Normal_Success() {
+        RankedScores scores = new RankedScores();
+        scores.add(1L, 30);
+        scores.add(2L, 20);
+
+        scores.remove(1L);
+        scores.remove(5L);
+
+        assertEquals(1, scores.size());
+        assertEquals(1, scores.rank(2L));
+    }
+
+    @Test
+    public void topTest_limitSmallerThanBoard_shouldReturnFirstEntries() {
+        RankedScores scores = new RankedScores();
+        for(long userId = 1; userId <= 10; userId++) {
+            scores.add(userId, userId * 10);
+        }
+
+        List<LeaderboardEntry> top = scores.top(3);
+
+        assertEquals(3, top.size());
+        assertEquals(10L, top.get(0).getUserId());
+        assertEquals(3, top.get(2).getRank());
+        assertEquals(80, top.get(2).getTotalMinutes());
+    }
+
+    @Test
+    public void rankTest_randomChanges_shouldMatchSortedScores() {
+        //apply random changes and compare every rank with a plain sort of the same scores
+        Random random = new Random(42);
+        RankedScores scores = new RankedScores();
+        Map<Long, Long> expected = new HashMap<>();
+        for(int i = 0; i < 5000; i++) {
+            Long userId = (long) random.nextInt(300);
+            if(random.nextInt(10) == 0) {
+                scores.remove(userId);
+                expected.remove(userId);
+                continue;
+            }
+            long delta = random.nextInt(120) - 40;
+            scores.add(userId, delta);
+            long score = expected.getOrDefault(userId, 0L) + delta;
+            if(score > 0) {
+                expected.put(userId, score);
+            }
+            else {
+                expected.remove(userId);
+            }
+        }
+
+        List<Map.Entry<Long, Long>> sorted = new ArrayList<>(expected.entrySet());
+        sorted.sort(Comparator.comparing((Map.Entry<Long, Long> entry) -> -entry.getValue())
+                .thenComparing(Map.Entry::getKey));
+        assertEquals(sorted.size(), scores.size());
+        for(int i = 0; i < sorted.size(); i++) {
+            assertEquals(i + 1, scores.rank(sorted.get(i).getKey()));
+            assertEquals(sorted.get(i).getValue(), scores.score(sorted.get(i).getKey()));
+        }
+        List<LeaderboardEntry> top = scores.top(sorted.size());
+        for(int i = 0; i < sorted.size(); i++) {
+            assertEquals(sorted.get(i).getKey(), top.get(i).getUserId());
+        }
+    }
+}
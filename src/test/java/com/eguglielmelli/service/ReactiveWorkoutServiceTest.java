@@ -0,0 +1,102 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutPeriodStats;
+import com.eguglielmelli.dtos.WorkoutStats;
+import com.eguglielmelli.dtos.WorkoutSummary;
+import com.eguglielmelli.dtos.WorkoutTypeStats;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.repositories.ReactiveWorkoutRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ReactiveWorkoutServiceTest {
+
+    @Mock
+    private ReactiveWorkoutRepository reactiveWorkoutRepository;
+
+    @InjectMocks
+    private ReactiveWorkoutService reactiveWorkoutService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void getUsersWorkoutsTest_Normal_Success() {
+        //no dates given means the whole history
+        WorkoutSummary workout = new WorkoutSummary(1L, "Workout 1", LocalDate.parse("2024-06-21"),
+                WorkoutType.RUNNING, 30, 100);
+        when(reactiveWorkoutRepository.existsUserById(1L)).thenReturn(Mono.just(true));
+        when(reactiveWorkoutRepository.findByUserId(1L, WorkoutService.EARLIEST_DATE, WorkoutService.LATEST_DATE, null))
+                .thenReturn(Flux.just(workout));
+
+        List<WorkoutSummary> workouts = reactiveWorkoutService.getUsersWorkouts(1L, null, null, null)
+                .collectList().block();
+
+        assertEquals(1, workouts.size());
+        assertEquals("Workout 1", workouts.get(0).getName());
+    }
+
+    @Test
+    public void getUsersWorkoutsTest_userNotFound_shouldThrowException() {
+        when(reactiveWorkoutRepository.existsUserById(1L)).thenReturn(Mono.just(false));
+        when(reactiveWorkoutRepository.findByUserId(any(), any(), any(), any())).thenReturn(Flux.empty());
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> reactiveWorkoutService.getUsersWorkouts(1L, null, null, null).blockLast());
+
+        assertEquals("User with that id is not found", exception.getMessage());
+    }
+
+    @Test
+    public void getUsersWorkoutsTest_fromAfterTo_shouldThrowException() {
+        //rejected before anything is sent to the database
+        assertThrows(IllegalArgumentException.class, () -> reactiveWorkoutService.getUsersWorkouts(1L,
+                LocalDate.parse("2024-06-30"), LocalDate.parse("2024-06-01"), null).blockLast());
+
+        verify(reactiveWorkoutRepository, never()).existsUserById(any());
+    }
+
+    @Test
+    public void getWorkoutInfoTest_workoutNotFound_shouldThrowException() {
+        when(reactiveWorkoutRepository.findByIdAndUserId(5L, 1L)).thenReturn(Mono.empty());
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> reactiveWorkoutService.getWorkoutInfo(1L, 5L).block());
+
+        assertEquals("Workout with that id is not found", exception.getMessage());
+    }
+
+    @Test
+    public void getWorkoutStatsTest_Normal_Success() {
+        //two days in the same week fold into one weekly entry, like WorkoutService.getWorkoutStats()
+        LocalDate from = LocalDate.parse("2024-06-24");
+        LocalDate to = LocalDate.parse("2024-06-30");
+        when(reactiveWorkoutRepository.existsUserById(1L)).thenReturn(Mono.just(true));
+        when(reactiveWorkoutRepository.findTypeStats(1L, from, to)).thenReturn(Flux.just(
+                new WorkoutTypeStats(WorkoutType.RUNNING, 2L, 50L, 300L)));
+        when(reactiveWorkoutRepository.findDailyStats(1L, from, to)).thenReturn(Flux.just(
+                new WorkoutPeriodStats(LocalDate.parse("2024-06-24"), 1L, 30L, 200L),
+                new WorkoutPeriodStats(LocalDate.parse("2024-06-26"), 1L, 20L, 100L)));
+
+        WorkoutStats stats = reactiveWorkoutService.getWorkoutStats(1L, from, to).block();
+
+        assertEquals(2, stats.getCount());
+        assertEquals(300, stats.getTotalCalories());
+        assertEquals(1, stats.getByWeek().size());
+        assertEquals(50, stats.getByWeek().get(0).getTotalDuration());
+    }
+}
@@ -0,0 +1,82 @@
+package com.eguglielmelli.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreakTrackerTest {
+
+    @Test
+    public void addWorkoutTest_gapFilled_shouldMergeRuns() {
+        //days 1-2 and 4-5 become one run of five once day 3 is added
+        StreakTracker streaks = new StreakTracker();
+        streaks.addWorkout(1);
+        streaks.addWorkout(2);
+        streaks.addWorkout(4);
+        streaks.addWorkout(5);
+        assertEquals(2, streaks.longestStreak());
+
+        streaks.addWorkout(3);
+
+        assertEquals(5, streaks.longestStreak());
+    }
+
+    @Test
+    public void removeWorkoutTest_middleDay_shouldSplitRun() {
+        StreakTracker streaks = new StreakTracker();
+        for(int day = 1; day <= 5; day++) {
+            streaks.addWorkout(day);
+        }
+
+        streaks.removeWorkout(2);
+
+        assertEquals(3, streaks.longestStreak());
+        assertEquals(3, streaks.currentStreak(5));
+    }
+
+    @Test
+    public void removeWorkoutTest_twoWorkoutsSameDay_shouldKeepDay() {
+        //the day only leaves the streak when its last workout is removed
+        StreakTracker streaks = new StreakTracker();
+        streaks.addWorkout(1);
+        streaks.addWorkout(2);
+        streaks.addWorkout(2);
+
+        streaks.removeWorkout(2);
+        assertEquals(2, streaks.longestStreak());
+
+        streaks.removeWorkout(2);
+        assertEquals(1, streaks.longestStreak());
+    }
+
+    @Test
+    public void currentStreakTest_endedYesterday_shouldStillCount() {
+        StreakTracker streaks = new StreakTracker();
+        streaks.addWorkout(8);
+        streaks.addWorkout(9);
+
+        assertEquals(2, streaks.currentStreak(10));
+        //a whole day without a workout breaks it
+        assertEquals(0, streaks.currentStreak(11));
+    }
+
+    @Test
+    public void currentStreakTest_workoutsAheadOfToday_shouldNotCount() {
+        StreakTracker streaks = new StreakTracker();
+        for(int day = 8; day <= 12; day++) {
+            streaks.addWorkout(day);
+        }
+
+        assertEquals(3, streaks.currentStreak(10));
+    }
+
+    @Test
+    public void removeWorkoutTest_unknownDay_shouldDoNothing() {
+        StreakTracker streaks = new StreakTracker();
+        streaks.addWorkout(1);
+
+        streaks.removeWorkout(7);
+
+        assertEquals(1, streaks.longestStreak());
+    }
+}
@@ -0,0 +1,83 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.config.CacheConfig;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UserAuthenticationServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache usersCache;
+
+    @Mock
+    private Cache workoutsCache;
+
+    private UserAuthenticationService userAuthenticationService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        userAuthenticationService = new UserAuthenticationService(userRepository, cacheManager);
+        user = new User("test user", "test_user", "$2a$10$oldhash", "test@gmail.com",
+                30, BigDecimal.valueOf(170.0), BigDecimal.valueOf(70.0), false, false);
+        user.setId(1L);
+    }
+
+    @Test
+    public void loadUserByUsernameTest_mixedCase_shouldFindUser() {
+        //usernames are stored in lowercase so the login name is lowercased before the lookup
+        when(userRepository.findByusername("test_user")).thenReturn(Optional.of(user));
+
+        UserDetails userDetails = userAuthenticationService.loadUserByUsername("Test_User");
+
+        assertEquals("test_user", userDetails.getUsername());
+        assertEquals("$2a$10$oldhash", userDetails.getPassword());
+    }
+
+    @Test
+    public void loadUserByUsernameTest_userNotFound_shouldThrowException() {
+        when(userRepository.findByusername("missing_user")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class,
+                () -> userAuthenticationService.loadUserByUsername("missing_user"));
+    }
+
+    @Test
+    public void updatePasswordTest_Normal_Success() {
+        //spring security hands us the rehashed password after a successful login
+        when(userRepository.findByusername("test_user")).thenReturn(Optional.of(user));
+        when(cacheManager.getCache(CacheConfig.USERS_CACHE)).thenReturn(usersCache);
+        when(cacheManager.getCache(CacheConfig.WORKOUTS_CACHE)).thenReturn(workoutsCache);
+        UserDetails userDetails = userAuthenticationService.loadUserByUsername("test_user");
+
+        UserDetails updated = userAuthenticationService.updatePassword(userDetails, "{bcrypt}$2a$12$newhash");
+
+        assertEquals("{bcrypt}$2a$12$newhash", user.getPassword());
+        assertEquals("{bcrypt}$2a$12$newhash", updated.getPassword());
+        verify(usersCache, times(1)).evict(1L);
+        //cached workouts hold the user with the old hash too
+        verify(workoutsCache, times(1)).clear();
+    }
+}
@@ -1,17 +1,26 @@
 package com.eguglielmelli.service;
 import com.eguglielmelli.dtos.UserDto;
+import com.eguglielmelli.dtos.UserPatchDto;
 import com.eguglielmelli.dtos.UserUpdateDto;
 import com.eguglielmelli.entities.User;
 import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.repositories.WorkoutRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import javax.validation.*;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,7 +32,13 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
     @Mock
+    private WorkoutRepository workoutRepository;
+    @Mock
     private PasswordEncoder passwordEncoder;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private PlatformTransactionManager transactionManager;
     @InjectMocks
     private UserService userService;
 
@@ -34,7 +49,8 @@ public class UserServiceTest {
         MockitoAnnotations.openMocks(this);
         ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
         validator = factory.getValidator();
-        userService = new UserService(userRepository, passwordEncoder, validator);
+        userService = new UserService(userRepository, workoutRepository, passwordEncoder, validator, eventPublisher,
+                transactionManager);
 
     }
 
@@ -122,7 +138,7 @@ public class UserServiceTest {
         UserDto userDto = createUserDto();
 
         //return some user with the same username
-        when(userRepository.findByusername("test_user")).thenReturn(Optional.of(new User()));
+        when(userRepository.findConflictingUsernames("test_user", "test@gmail.com")).thenReturn(List.of("test_user"));
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,() -> {
            userService.createUser(userDto);
@@ -137,7 +153,7 @@ public class UserServiceTest {
         UserDto userDto = createUserDto();
 
         //return a user with the same email so we can test exception throwing
-        when(userRepository.findByemail("test@gmail.com")).thenReturn(Optional.of(new User()));
+        when(userRepository.findConflictingUsernames("test_user", "test@gmail.com")).thenReturn(List.of("other_user"));
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,() -> {
             userService.createUser(userDto);
@@ -146,6 +162,43 @@ public class UserServiceTest {
         assertEquals("A user with this email already exists.", exception.getMessage());
     }
 
+    @Test
+    public void createUserTest_usernameTakenConcurrently_shouldThrowException() {
+        //another sign-up with the same username committed after our check, the unique index rejects the insert
+        UserDto userDto = createUserDto();
+        when(passwordEncoder.encode("password")).thenReturn("encodedPassword");
+        when(userRepository.save(any(User.class))).thenThrow(uniqueViolation("ux_users_username_lower_active"));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            userService.createUser(userDto);
+        });
+
+        assertEquals("A user with this username already exists.", exception.getMessage());
+    }
+
+    @Test
+    public void createUserTest_emailTakenConcurrently_shouldThrowException() {
+        UserDto userDto = createUserDto();
+        when(passwordEncoder.encode("password")).thenReturn("encodedPassword");
+        when(userRepository.save(any(User.class))).thenThrow(uniqueViolation("ux_users_email_lower_active"));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            userService.createUser(userDto);
+        });
+
+        assertEquals("A user with this email already exists.", exception.getMessage());
+    }
+
+    @Test
+    public void createUserTest_otherIntegrityViolation_shouldRethrow() {
+        //violations that are not about username or email are not ours to translate
+        UserDto userDto = createUserDto();
+        when(passwordEncoder.encode("password")).thenReturn("encodedPassword");
+        when(userRepository.save(any(User.class))).thenThrow(uniqueViolation("some_other_constraint"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.createUser(userDto));
+    }
+
     @Test
     public void createUserTest_nullPassword_shouldThrowException() {
         //set up with null password, method needs to throw illegal argument exception
@@ -193,6 +246,23 @@ public class UserServiceTest {
         assertEquals("must be a well-formed email address", violation.getMessage());
     }
 
+    @Test
+    public void createUserTest_passwordHashedBeforeTransaction() {
+        //waiting for the hashing pool inside the transaction would hold a database connection
+        UserDto userDto = createUserDto();
+        when(passwordEncoder.encode("password")).thenReturn("encodedPassword");
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        User createdUser = userService.createUser(userDto);
+
+        assertEquals("encodedPassword", createdUser.getPassword());
+        InOrder inOrder = inOrder(passwordEncoder, transactionManager, userRepository);
+        inOrder.verify(passwordEncoder).encode("password");
+        inOrder.verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        inOrder.verify(userRepository).findConflictingUsernames("test_user", "test@gmail.com");
+        inOrder.verify(userRepository).save(any(User.class));
+    }
+
     @Test
     public void createUserTest_metricSystemNotSet_shouldDefaultToFalse() {
 
@@ -270,6 +340,10 @@ public class UserServiceTest {
         assertTrue(exampleUser.isDeleted());
         verify(userRepository, times(1)).findById(exampleUser.getId());
         verify(userRepository, times(1)).save(exampleUser);
+        //the user's workouts are hidden along with the user
+        verify(workoutRepository, times(1)).markUserDeleted(exampleUser.getId());
+        //and taken off the leaderboards once the delete commits
+        verify(eventPublisher, times(1)).publishEvent(any(UserDeletedEvent.class));
 
     }
 
@@ -284,6 +358,8 @@ public class UserServiceTest {
         assertFalse(result);
         verify(userRepository, times(1)).findById(userId);
         verify(userRepository,times(0)).save(any(User.class));
+        verify(workoutRepository, never()).markUserDeleted(any(Long.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 
     @Test
@@ -297,7 +373,7 @@ public class UserServiceTest {
         UserUpdateDto userUpdateDto = new UserUpdateDto();
         userUpdateDto.setEmail("update_user@gmail.com");
 
-        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto);
+        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto, null);
 
         assertTrue(result);
         assertEquals("update_user@gmail.com",exampleUser.getEmail());
@@ -317,7 +393,7 @@ public class UserServiceTest {
         UserUpdateDto userUpdateDto = new UserUpdateDto();
         userUpdateDto.setUsername("testing_update_user");
 
-        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto);
+        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto, null);
 
         assertTrue(result);
         assertEquals("testing_update_user",exampleUser.getUsername());
@@ -325,6 +401,24 @@ public class UserServiceTest {
         verify(userRepository, times(1)).save(exampleUser);
     }
 
+    @Test
+    public void updateUserInfoTest_usernameTakenConcurrently_shouldThrowException() {
+        //another user took the username after the client picked it, the unique index rejects the update on flush
+        User exampleUser = createExampleUser();
+
+        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
+        doThrow(uniqueViolation("ux_users_username_lower_active")).when(userRepository).flush();
+
+        UserUpdateDto userUpdateDto = new UserUpdateDto();
+        userUpdateDto.setUsername("taken_user");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            userService.updateUserInfo(exampleUser.getId(), userUpdateDto, null);
+        });
+
+        assertEquals("A user with this username already exists.", exception.getMessage());
+    }
+
     @Test
     public void updateUserInfoTest_onlyAgeIncluded_Normal_Success() {
         //same, just including age this time
@@ -336,7 +430,7 @@ public class UserServiceTest {
         UserUpdateDto userUpdateDto = new UserUpdateDto();
         userUpdateDto.setAge(35);
 
-        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto);
+        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto, null);
 
         assertTrue(result);
         assertEquals(35,exampleUser.getAge());
@@ -355,7 +449,7 @@ public class UserServiceTest {
         UserUpdateDto userUpdateDto = new UserUpdateDto();
         userUpdateDto.setHeight(BigDecimal.valueOf(75));
 
-        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto);
+        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto, null);
 
         assertTrue(result);
         assertEquals(BigDecimal.valueOf(75.0),exampleUser.getHeight());
@@ -374,7 +468,7 @@ public class UserServiceTest {
         UserUpdateDto userUpdateDto = new UserUpdateDto();
         userUpdateDto.setWeight(BigDecimal.valueOf(67.5));
 
-        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto);
+        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto, null);
 
         assertTrue(result);
         assertEquals(BigDecimal.valueOf(67.5),exampleUser.getWeight());
@@ -399,7 +493,7 @@ public class UserServiceTest {
         userUpdateDto.setAge(46);
         userUpdateDto.setHeight(BigDecimal.valueOf(70.0));
 
-        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto);
+        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto, null);
 
         assertTrue(result);
         assertEquals(46, exampleUser.getAge());
@@ -481,7 +575,7 @@ public class UserServiceTest {
         userUpdateDto.setAge(46);
         userUpdateDto.setHeight(BigDecimal.valueOf(70.0));
 
-        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto);
+        boolean result = userService.updateUserInfo(exampleUser.getId(), userUpdateDto, null);
 
         assertTrue(result);
         assertEquals(46, exampleUser.getAge());
@@ -544,6 +638,184 @@ public class UserServiceTest {
         verify(userRepository, never()).save(exampleUser);
     }
 
+    @Test
+    public void patchUserTest_onlyWeightIncluded_Normal_Success() {
+        //only the weight is sent, every other field must be left alone
+        User exampleUser = createExampleUser();
+
+        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
+
+        UserPatchDto userPatchDto = new UserPatchDto();
+        userPatchDto.setWeight(BigDecimal.valueOf(165.25));
+
+        boolean result = userService.patchUser(exampleUser.getId(), userPatchDto, null);
+
+        assertTrue(result);
+        assertEquals(BigDecimal.valueOf(165.3), exampleUser.getWeight());
+        assertEquals(30, exampleUser.getAge());
+        assertEquals("test@gmail.com", exampleUser.getEmail());
+        assertFalse(exampleUser.isMetricSystem());
+        //the user is managed, the change is flushed without calling save
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    public void patchUserTest_emailTakenConcurrently_shouldThrowException() {
+        User exampleUser = createExampleUser();
+
+        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
+        doThrow(uniqueViolation("ux_users_email_lower_active")).when(userRepository).flush();
+
+        UserPatchDto userPatchDto = new UserPatchDto();
+        userPatchDto.setEmail("taken@gmail.com");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            userService.patchUser(exampleUser.getId(), userPatchDto, null);
+        });
+
+        assertEquals("A user with this email already exists.", exception.getMessage());
+    }
+
+    @Test
+    public void patchUserTest_zeroAndFalseIncluded_shouldBeApplied() {
+        //unlike the update dto a zero age or false metric system is a real value here
+        User exampleUser = createExampleUser();
+        exampleUser.setMetricSystem(true);
+
+        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
+
+        UserPatchDto userPatchDto = new UserPatchDto();
+        userPatchDto.setAge(0);
+        userPatchDto.setMetricSystem(false);
+
+        userService.patchUser(exampleUser.getId(), userPatchDto, null);
+
+        assertEquals(0, exampleUser.getAge());
+        assertFalse(exampleUser.isMetricSystem());
+    }
+
+    @Test
+    public void patchUserTest_mixedCase_shouldCastToLowerCase() {
+        User exampleUser = createExampleUser();
+
+        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
+
+        UserPatchDto userPatchDto = new UserPatchDto();
+        userPatchDto.setUsername("New_User");
+        userPatchDto.setEmail("New_User@Gmail.com");
+
+        userService.patchUser(exampleUser.getId(), userPatchDto, null);
+
+        assertEquals("new_user", exampleUser.getUsername());
+        assertEquals("new_user@gmail.com", exampleUser.getEmail());
+    }
+
+    @Test
+    public void patchUserTest_newPassword_shouldBeEncoded() {
+        User exampleUser = createExampleUser();
+
+        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
+        when(passwordEncoder.encode("new_password")).thenReturn("encoded_password");
+
+        UserPatchDto userPatchDto = new UserPatchDto();
+        userPatchDto.setPassword("new_password");
+
+        userService.patchUser(exampleUser.getId(), userPatchDto, null);
+
+        assertEquals("encoded_password", exampleUser.getPassword());
+    }
+
+    @Test
+    public void patchUserTest_newPassword_hashedBeforeTransaction() {
+        User exampleUser = createExampleUser();
+
+        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
+        when(passwordEncoder.encode("new_password")).thenReturn("encoded_password");
+
+        UserPatchDto userPatchDto = new UserPatchDto();
+        userPatchDto.setPassword("new_password");
+
+        userService.patchUser(exampleUser.getId(), userPatchDto, null);
+
+        InOrder inOrder = inOrder(passwordEncoder, transactionManager, userRepository);
+        inOrder.verify(passwordEncoder).encode("new_password");
+        inOrder.verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        inOrder.verify(userRepository).findById(exampleUser.getId());
+    }
+
+    @Test
+    public void patchUserTest_emptyPatch_shouldNotChangeAnything() {
+        //nothing to change, the user still has to exist so we return true
+        User exampleUser = createExampleUser();
+
+        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
+
+        boolean result = userService.patchUser(exampleUser.getId(), new UserPatchDto(), null);
+
+        assertTrue(result);
+        assertEquals("test_user", exampleUser.getUsername());
+        verify(passwordEncoder, never()).encode(any());
+    }
+
+    @Test
+    public void patchUserTest_userDoesNotExist_shouldReturnFalse() {
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+
+        UserPatchDto userPatchDto = new UserPatchDto();
+        userPatchDto.setAge(31);
+
+        assertFalse(userService.patchUser(1L, userPatchDto, null));
+    }
+
+    @Test
+    public void patchUserTest_invalidEmailFormat_shouldViolateConstraint() {
+        UserPatchDto userPatchDto = new UserPatchDto();
+        userPatchDto.setEmail("not an email");
+
+        Set<ConstraintViolation<UserPatchDto>> violations = validator.validate(userPatchDto);
+
+        assertFalse(violations.isEmpty());
+    }
+
+    @Test
+    public void updateUserInfoTest_newPassword_hashedBeforeTransaction() {
+        User exampleUser = createExampleUser();
+
+        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
+        when(passwordEncoder.encode("new_password")).thenReturn("encoded_password");
+
+        UserUpdateDto userUpdateDto = new UserUpdateDto();
+        userUpdateDto.setPassword("new_password");
+
+        userService.updateUserInfo(exampleUser.getId(), userUpdateDto, null);
+
+        assertEquals("encoded_password", exampleUser.getPassword());
+        InOrder inOrder = inOrder(passwordEncoder, transactionManager, userRepository);
+        inOrder.verify(passwordEncoder).encode("new_password");
+        inOrder.verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        inOrder.verify(userRepository).findById(exampleUser.getId());
+    }
+
+    @Test
+    public void updateUserInfoTest_staleVersion_shouldThrowException() {
+        //the update was based on an older copy of the user, nothing should change
+        User exampleUser = createExampleUser();
+        exampleUser.setVersion(5L);
+
+        when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
+
+        UserUpdateDto userUpdateDto = new UserUpdateDto();
+        userUpdateDto.setEmail("update_user@gmail.com");
+
+        VersionMismatchException exception = assertThrows(VersionMismatchException.class, () -> {
+            userService.updateUserInfo(exampleUser.getId(), userUpdateDto, 4L);
+        });
+
+        assertEquals(5L, exception.getCurrentVersion());
+        assertEquals("test@gmail.com", exampleUser.getEmail());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
     @Test
     public void getUserInfoTest_Normal_Success() {
         //test scenario where a user actually exists in the db, should
@@ -568,22 +840,26 @@ public class UserServiceTest {
     }
 
     @Test
-    public void getUserInfoTest_userNotFound_shouldThrowException() {
+    public void getUserInfoTest_userNotFound_shouldReturnEmpty() {
         //test scenario where user id is not found in the repository
-        //we want to throw an exception in this case
+        //the controller turns the empty result into a 404
         User exampleUser = createExampleUser();
 
         when(userRepository.findById(exampleUser.getId())).thenReturn(Optional.empty());
 
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
-            userService.getUserInfo(exampleUser.getId());
-        });
-
-        assertEquals("User with that id is not found", exception.getMessage());
+        assertTrue(userService.getUserInfo(exampleUser.getId()).isEmpty());
 
         verify(userRepository, times(1)).findById(exampleUser.getId());
     }
 
+    @Test
+    public void getUserVersionTest_userNotFound_shouldReturnEmpty() {
+        //a conditional GET for a missing user should also end in a 404, not an exception
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.empty());
+
+        assertTrue(userService.getUserVersion(1L).isEmpty());
+    }
+
     /**
      * Since we're creating so many sample objects, combining into one method
      * and can adjust attributes as necessary
@@ -622,4 +898,9 @@ public class UserServiceTest {
 
         return user;
     }
+
+    private DataIntegrityViolationException uniqueViolation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key value", null, constraintName));
+    }
 }
@@ -0,0 +1,195 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.config.CacheConfig;
+import com.eguglielmelli.dtos.WorkoutDto;
+import com.eguglielmelli.dtos.WorkoutPatchDto;
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.dtos.WorkoutStats;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.repositories.WorkoutRepository;
+import com.eguglielmelli.repositories.WorkoutRollupRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Changes only reach the series once a workout change commits, so like WorkoutServiceCacheTest
+ * these tests run without the usual test transaction
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CacheConfig.class, WorkoutService.class, WorkoutRollupService.class, WorkoutAnalyticsService.class})
+public class WorkoutAnalyticsServiceTest {
+
+    @Autowired
+    private WorkoutAnalyticsService workoutAnalyticsService;
+
+    @Autowired
+    private WorkoutService workoutService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutRepository workoutRepository;
+
+    @Autowired
+    private WorkoutRollupRepository workoutRollupRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("Test User", "test_user", "password", "test@gmail.com",
+                26, BigDecimal.valueOf(150.0), BigDecimal.valueOf(75.0), false, false));
+        createWorkout("2024-06-23", WorkoutType.RUNNING, 30, 300);
+        createWorkout("2024-06-24", WorkoutType.CYCLING, 60, 500);
+        createWorkout("2024-06-26", WorkoutType.RUNNING, 20, 200);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workoutRollupRepository.deleteAll();
+        workoutRepository.deleteAll();
+        userRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    public void getWorkoutStatsTest_shouldMatchRollupStats() {
+        LocalDate from = LocalDate.parse("2024-06-01");
+        LocalDate to = LocalDate.parse("2024-06-30");
+
+        WorkoutStats fromRollups = workoutService.getWorkoutStats(user.getId(), from, to);
+        WorkoutStats fromSeries = workoutAnalyticsService.getWorkoutStats(user.getId(), from, to);
+
+        assertEquals(fromRollups.getCount(), fromSeries.getCount());
+        assertEquals(fromRollups.getTotalDuration(), fromSeries.getTotalDuration());
+        assertEquals(fromRollups.getTotalCalories(), fromSeries.getTotalCalories());
+        assertEquals(fromRollups.getByType().size(), fromSeries.getByType().size());
+        for(int i = 0; i < fromRollups.getByType().size(); i++) {
+            assertEquals(fromRollups.getByType().get(i).getWorkoutType(), fromSeries.getByType().get(i).getWorkoutType());
+            assertEquals(fromRollups.getByType().get(i).getTotalCalories(), fromSeries.getByType().get(i).getTotalCalories());
+        }
+        assertEquals(fromRollups.getByWeek().size(), fromSeries.getByWeek().size());
+        for(int i = 0; i < fromRollups.getByWeek().size(); i++) {
+            assertEquals(fromRollups.getByWeek().get(i).getStartDate(), fromSeries.getByWeek().get(i).getStartDate());
+            assertEquals(fromRollups.getByWeek().get(i).getTotalDuration(), fromSeries.getByWeek().get(i).getTotalDuration());
+        }
+    }
+
+    @Test
+    public void getWorkoutStatsTest_calledTwice_secondCallOnlyChecksUser() {
+        workoutAnalyticsService.getWorkoutStats(user.getId(), null, null);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        workoutAnalyticsService.getWorkoutStats(user.getId(), null, null);
+
+        //the user existence check is cached too, nothing is read from the database
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getWorkoutStatsTest_afterCreate_shouldIncludeNewWorkout() {
+        assertEquals(3, workoutAnalyticsService.getWorkoutStats(user.getId(), null, null).getCount());
+
+        createWorkout("2024-06-27", WorkoutType.SWIMMING, 40, 350);
+
+        //the committed create was added to the cached series
+        assertEquals(4, workoutAnalyticsService.getWorkoutStats(user.getId(), null, null).getCount());
+    }
+
+    @Test
+    public void getWorkoutStatsTest_afterUpdate_shouldNotReloadSeries() {
+        Workout workout = createWorkout("2024-06-28", WorkoutType.SWIMMING, 40, 350);
+        workoutAnalyticsService.getWorkoutStats(user.getId(), null, null);
+
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setDurationInMinutes(45);
+        workoutService.patchWorkout(user.getId(), workout.getId(), workoutPatchDto, null);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        //the change was applied to the cached series, the series is not read again
+        assertEquals(155, workoutAnalyticsService.getWorkoutStats(user.getId(), null, null).getTotalDuration());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getWorkoutStatsTest_afterDelete_shouldLeaveWorkoutOut() {
+        Workout workout = createWorkout("2024-06-28", WorkoutType.SWIMMING, 40, 350);
+        assertEquals(4, workoutAnalyticsService.getWorkoutStats(user.getId(), null, null).getCount());
+
+        workoutService.deleteWorkout(user.getId(), workout.getId());
+
+        assertEquals(3, workoutAnalyticsService.getWorkoutStats(user.getId(), null, null).getCount());
+    }
+
+    @Test
+    public void workoutChangedTest_changeAlreadyInLoad_shouldNotCountTwice() {
+        //the change commits, another request loads the series (with the new workout) before our listener runs
+        Workout workout = workoutRepository.save(new Workout("Workout", null, 40, LocalDate.parse("2024-06-28"),
+                350, WorkoutType.SWIMMING, user));
+        WorkoutChangedEvent event = WorkoutChangedEvent.created(WorkoutSnapshot.of(workout));
+        assertEquals(4, workoutAnalyticsService.getWorkoutStats(user.getId(), null, null).getCount());
+
+        workoutAnalyticsService.workoutChanged(event);
+
+        //the series could not tell if the change was in it, it was dropped and reloaded
+        assertEquals(4, workoutAnalyticsService.getWorkoutStats(user.getId(), null, null).getCount());
+    }
+
+    @Test
+    public void getSeriesTest_cacheIsWeighedByArraySize() {
+        WorkoutSeries series = workoutAnalyticsService.getSeries(user.getId());
+
+        @SuppressWarnings("unchecked")
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache =
+                (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cacheManager
+                        .getCache(CacheConfig.WORKOUT_SERIES_CACHE).getNativeCache();
+        //the weight is recorded when caffeine drains its write buffer, which can happen later on another thread
+        nativeCache.cleanUp();
+        assertEquals(series.sizeInBytes(), nativeCache.policy().eviction().orElseThrow().weightedSize().getAsLong());
+    }
+
+    @Test
+    public void getWorkoutStatsTest_userNotFound_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> workoutAnalyticsService.getWorkoutStats(user.getId() + 1000, null, null));
+    }
+
+    private Workout createWorkout(String date, WorkoutType workoutType, int duration, int calories) {
+        WorkoutDto workoutDto = new WorkoutDto();
+        workoutDto.setName("Workout");
+        workoutDto.setDate(LocalDate.parse(date));
+        workoutDto.setWorkoutType(workoutType);
+        workoutDto.setDurationInMinutes(duration);
+        workoutDto.setCaloriesBurned(calories);
+        workoutDto.setUser(user);
+        return workoutService.createWorkout(workoutDto);
+    }
+}
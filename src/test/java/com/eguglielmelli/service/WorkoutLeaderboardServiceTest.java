@@ -0,0 +1,195 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.config.CacheConfig;
+import com.eguglielmelli.dtos.LeaderboardEntry;
+import com.eguglielmelli.dtos.WorkoutDto;
+import com.eguglielmelli.dtos.WorkoutLeaderboard;
+import com.eguglielmelli.dtos.WorkoutPatchDto;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.repositories.WorkoutRepository;
+import com.eguglielmelli.repositories.WorkoutRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Leaderboards change once a workout write commits, so these tests run without the usual test transaction
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CacheConfig.class, WorkoutService.class, WorkoutRollupService.class, WorkoutLeaderboardService.class})
+public class WorkoutLeaderboardServiceTest {
+
+    @Autowired
+    private WorkoutLeaderboardService workoutLeaderboardService;
+
+    @Autowired
+    private WorkoutService workoutService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutRepository workoutRepository;
+
+    @Autowired
+    private WorkoutRollupRepository workoutRollupRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private User first;
+
+    private User second;
+
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        first = userRepository.save(new User("First User", "first_user", "password", "first@gmail.com",
+                26, BigDecimal.valueOf(150.0), BigDecimal.valueOf(75.0), false, false));
+        second = userRepository.save(new User("Second User", "second_user", "password", "second@gmail.com",
+                30, BigDecimal.valueOf(160.0), BigDecimal.valueOf(70.0), false, false));
+        today = LocalDate.now();
+        workoutLeaderboardService.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        workoutRollupRepository.deleteAll();
+        workoutRepository.deleteAll();
+        userRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    public void getLeaderboardTest_Normal_Success() {
+        createWorkout(first, today, WorkoutType.RUNNING, 30);
+        createWorkout(first, today, WorkoutType.RUNNING, 20);
+        createWorkout(second, today, WorkoutType.RUNNING, 40);
+        createWorkout(second, today, WorkoutType.CYCLING, 90);
+
+        WorkoutLeaderboard leaderboard = workoutLeaderboardService.getLeaderboard(WorkoutType.RUNNING, null, 10);
+
+        //minutes are summed per user, other workout types have their own board
+        assertEquals(WorkoutLeaderboardService.weekStart(today), leaderboard.getWeekStart());
+        assertEquals(2, leaderboard.getTotalUsers());
+        assertEquals(first.getId(), leaderboard.getEntries().get(0).getUserId());
+        assertEquals(50, leaderboard.getEntries().get(0).getTotalMinutes());
+        assertEquals(second.getId(), leaderboard.getEntries().get(1).getUserId());
+    }
+
+    @Test
+    public void getUserRankTest_afterUpdateAndDelete_shouldFollowChanges() {
+        Workout workout = createWorkout(first, today, WorkoutType.RUNNING, 30);
+        createWorkout(second, today, WorkoutType.RUNNING, 40);
+        assertEquals(2, workoutLeaderboardService.getUserRank(first.getId(), WorkoutType.RUNNING, today).getRank());
+
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setDurationInMinutes(60);
+        workoutService.patchWorkout(first.getId(), workout.getId(), workoutPatchDto, null);
+        assertEquals(1, workoutLeaderboardService.getUserRank(first.getId(), WorkoutType.RUNNING, today).getRank());
+
+        workoutService.deleteWorkout(first.getId(), workout.getId());
+        LeaderboardEntry entry = workoutLeaderboardService.getUserRank(first.getId(), WorkoutType.RUNNING, today);
+        assertEquals(0, entry.getRank());
+        assertEquals(0, entry.getTotalMinutes());
+    }
+
+    @Test
+    public void getLeaderboardTest_workoutMovedToOtherType_shouldMoveMinutes() {
+        Workout workout = createWorkout(first, today, WorkoutType.RUNNING, 30);
+
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setWorkoutType(WorkoutType.ROWING);
+        workoutService.patchWorkout(first.getId(), workout.getId(), workoutPatchDto, null);
+
+        assertEquals(0, workoutLeaderboardService.getLeaderboard(WorkoutType.RUNNING, today, 10).getTotalUsers());
+        assertEquals(30, workoutLeaderboardService.getUserRank(first.getId(), WorkoutType.ROWING, today).getTotalMinutes());
+    }
+
+    @Test
+    public void getLeaderboardTest_afterImport_shouldCountImportedWorkouts() {
+        createWorkout(second, today, WorkoutType.RUNNING, 40);
+        List<WorkoutDto> workoutDtos = new ArrayList<>();
+        for(int i = 0; i < WorkoutService.IMPORT_BATCH_SIZE + 1; i++) {
+            workoutDtos.add(workoutDto(first, today, WorkoutType.RUNNING, 1));
+        }
+
+        workoutService.importWorkouts(first.getId(), workoutDtos);
+
+        LeaderboardEntry entry = workoutLeaderboardService.getUserRank(first.getId(), WorkoutType.RUNNING, today);
+        assertEquals(1, entry.getRank());
+        assertEquals(WorkoutService.IMPORT_BATCH_SIZE + 1, entry.getTotalMinutes());
+    }
+
+    @Test
+    public void rebuildTest_Normal_Success() {
+        //saved straight through the repository, so only the rebuild can find them
+        workoutRepository.save(new Workout("Run", null, 25, today, 200, WorkoutType.RUNNING, first));
+        workoutRepository.save(new Workout("Run", null, 35, today, 300, WorkoutType.RUNNING, second));
+        workoutRepository.save(new Workout("Old run", null, 500, today.minusWeeks(10), 900, WorkoutType.RUNNING, first));
+
+        workoutLeaderboardService.rebuild();
+
+        WorkoutLeaderboard leaderboard = workoutLeaderboardService.getLeaderboard(WorkoutType.RUNNING, today, 10);
+        assertEquals(2, leaderboard.getTotalUsers());
+        assertEquals(second.getId(), leaderboard.getEntries().get(0).getUserId());
+        assertEquals(25, leaderboard.getEntries().get(1).getTotalMinutes());
+    }
+
+    @Test
+    public void userDeletedTest_Normal_Success() {
+        createWorkout(first, today, WorkoutType.RUNNING, 30);
+        createWorkout(second, today, WorkoutType.RUNNING, 20);
+
+        workoutLeaderboardService.userDeleted(new UserDeletedEvent(first.getId()));
+
+        WorkoutLeaderboard leaderboard = workoutLeaderboardService.getLeaderboard(WorkoutType.RUNNING, today, 10);
+        assertEquals(1, leaderboard.getTotalUsers());
+        assertEquals(second.getId(), leaderboard.getEntries().get(0).getUserId());
+    }
+
+    @Test
+    public void getLeaderboardTest_weekNoLongerKept_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> workoutLeaderboardService.getLeaderboard(WorkoutType.RUNNING, today.minusWeeks(10), 10));
+    }
+
+    @Test
+    public void getLeaderboardTest_limitTooLarge_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> workoutLeaderboardService.getLeaderboard(WorkoutType.RUNNING, today, 101));
+    }
+
+    private Workout createWorkout(User user, LocalDate date, WorkoutType workoutType, int duration) {
+        return workoutService.createWorkout(workoutDto(user, date, workoutType, duration));
+    }
+
+    private WorkoutDto workoutDto(User user, LocalDate date, WorkoutType workoutType, int duration) {
+        WorkoutDto workoutDto = new WorkoutDto();
+        workoutDto.setName("Workout");
+        workoutDto.setDate(date);
+        workoutDto.setWorkoutType(workoutType);
+        workoutDto.setDurationInMinutes(duration);
+        workoutDto.setCaloriesBurned(100);
+        workoutDto.setUser(user);
+        return workoutDto;
+    }
+}
@@ -0,0 +1,174 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.config.CacheConfig;
+import com.eguglielmelli.dtos.WorkoutDto;
+import com.eguglielmelli.dtos.WorkoutPatchDto;
+import com.eguglielmelli.dtos.WorkoutRecords;
+import com.eguglielmelli.dtos.WorkoutTypeRecords;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.repositories.WorkoutRepository;
+import com.eguglielmelli.repositories.WorkoutRollupRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Changes reach the records once the write commits, so like WorkoutServiceCacheTest
+ * these tests run without the usual test transaction
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CacheConfig.class, WorkoutService.class, WorkoutRollupService.class, WorkoutRecordsService.class})
+public class WorkoutRecordsServiceTest {
+
+    @Autowired
+    private WorkoutRecordsService workoutRecordsService;
+
+    @Autowired
+    private WorkoutService workoutService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutRepository workoutRepository;
+
+    @Autowired
+    private WorkoutRollupRepository workoutRollupRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("Test User", "test_user", "password", "test@gmail.com",
+                26, BigDecimal.valueOf(150.0), BigDecimal.valueOf(75.0), false, false));
+        today = LocalDate.now();
+    }
+
+    @AfterEach
+    void tearDown() {
+        workoutRollupRepository.deleteAll();
+        workoutRepository.deleteAll();
+        userRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    public void getRecordsTest_Normal_Success() {
+        createWorkout(today.minusDays(2), WorkoutType.RUNNING, 30, 300);
+        createWorkout(today.minusDays(1), WorkoutType.RUNNING, 45, 250);
+        createWorkout(today.minusDays(1), WorkoutType.CYCLING, 60, 500);
+
+        WorkoutRecords records = workoutRecordsService.getRecords(user.getId());
+
+        assertEquals(2, records.getCurrentStreak());
+        assertEquals(2, records.getLongestStreak());
+        WorkoutTypeRecords running = running(records);
+        assertEquals(45, running.getLongestDuration().getValue());
+        assertEquals(300, running.getMostCalories().getValue());
+    }
+
+    @Test
+    public void getRecordsTest_afterCreate_shouldBeUpdatedWithoutReload() {
+        createWorkout(today.minusDays(1), WorkoutType.RUNNING, 30, 300);
+        workoutRecordsService.getRecords(user.getId());
+
+        Workout workout = createWorkout(today, WorkoutType.RUNNING, 50, 350);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        WorkoutRecords records = workoutRecordsService.getRecords(user.getId());
+
+        //the new workout was applied to the loaded state, nothing was read from the database
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, records.getCurrentStreak());
+        assertEquals(workout.getId(), running(records).getLongestDuration().getWorkoutId());
+    }
+
+    @Test
+    public void getRecordsTest_recordHolderDeleted_shouldFallBackToRunnerUp() {
+        Workout runnerUp = createWorkout(today.minusDays(3), WorkoutType.RUNNING, 40, 300);
+        Workout record = createWorkout(today.minusDays(2), WorkoutType.RUNNING, 60, 200);
+        workoutRecordsService.getRecords(user.getId());
+
+        workoutService.deleteWorkout(user.getId(), record.getId());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        WorkoutRecords records = workoutRecordsService.getRecords(user.getId());
+
+        //only the broken duration record is looked up again, the calories record did not change
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(runnerUp.getId(), running(records).getLongestDuration().getWorkoutId());
+        assertEquals(runnerUp.getId(), running(records).getMostCalories().getWorkoutId());
+        assertEquals(1, records.getLongestStreak());
+    }
+
+    @Test
+    public void getRecordsTest_recordHolderShortened_shouldFallBackToRunnerUp() {
+        Workout runnerUp = createWorkout(today.minusDays(3), WorkoutType.RUNNING, 40, 300);
+        Workout record = createWorkout(today.minusDays(2), WorkoutType.RUNNING, 60, 200);
+        workoutRecordsService.getRecords(user.getId());
+
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setDurationInMinutes(20);
+        workoutService.patchWorkout(user.getId(), record.getId(), workoutPatchDto, null);
+
+        assertEquals(runnerUp.getId(), running(workoutRecordsService.getRecords(user.getId()))
+                .getLongestDuration().getWorkoutId());
+    }
+
+    @Test
+    public void getRecordsTest_noWorkouts_shouldReturnEmptyRecords() {
+        WorkoutRecords records = workoutRecordsService.getRecords(user.getId());
+
+        assertEquals(0, records.getCurrentStreak());
+        assertEquals(0, records.getLongestStreak());
+        assertTrue(records.getByType().isEmpty());
+    }
+
+    @Test
+    public void getRecordsTest_userNotFound_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> workoutRecordsService.getRecords(user.getId() + 1000));
+    }
+
+    private WorkoutTypeRecords running(WorkoutRecords records) {
+        return records.getByType().stream()
+                .filter(typeRecords -> typeRecords.getWorkoutType() == WorkoutType.RUNNING)
+                .findFirst().orElseThrow();
+    }
+
+    private Workout createWorkout(LocalDate date, WorkoutType workoutType, int duration, int calories) {
+        WorkoutDto workoutDto = new WorkoutDto();
+        workoutDto.setName("Workout");
+        workoutDto.setDate(date);
+        workoutDto.setWorkoutType(workoutType);
+        workoutDto.setDurationInMinutes(duration);
+        workoutDto.setCaloriesBurned(calories);
+        workoutDto.setUser(user);
+        return workoutService.createWorkout(workoutDto);
+    }
+}
@@ -0,0 +1,117 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.entities.WorkoutDailyRollup;
+import com.eguglielmelli.entities.WorkoutRollupId;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.repositories.WorkoutRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(WorkoutRollupService.class)
+public class WorkoutRollupServiceTest {
+
+    @Autowired
+    private WorkoutRollupService workoutRollupService;
+
+    @Autowired
+    private WorkoutRollupRepository workoutRollupRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Test User", "test_user", "password", "test@gmail.com",
+                26, BigDecimal.valueOf(150.0), BigDecimal.valueOf(75.0), false, false);
+        entityManager.persistAndFlush(user);
+    }
+
+    @Test
+    public void workoutCreatedTest_twoWorkoutsSameDay_shouldShareRollup() {
+        //first workout inserts the row, the second one adds to it
+        workoutRollupService.workoutCreated(snapshot("2024-06-24", WorkoutType.RUNNING, 30, 200));
+        workoutRollupService.workoutCreated(snapshot("2024-06-24", WorkoutType.RUNNING, 20, 100));
+
+        WorkoutDailyRollup rollup = findRollup("2024-06-24", WorkoutType.RUNNING).orElseThrow();
+        assertEquals(2, rollup.getWorkoutCount());
+        assertEquals(50, rollup.getTotalDuration());
+        assertEquals(300, rollup.getTotalCalories());
+    }
+
+    @Test
+    public void workoutUpdatedTest_dateChanged_shouldMoveBetweenRollups() {
+        //changing the date takes the workout out of the old day and adds it to the new one
+        WorkoutSnapshot before = snapshot("2024-06-24", WorkoutType.RUNNING, 30, 200);
+        WorkoutSnapshot after = snapshot("2024-06-25", WorkoutType.RUNNING, 45, 300);
+        workoutRollupService.workoutCreated(before);
+
+        workoutRollupService.workoutUpdated(before, after);
+
+        WorkoutDailyRollup oldRollup = findRollup("2024-06-24", WorkoutType.RUNNING).orElseThrow();
+        WorkoutDailyRollup newRollup = findRollup("2024-06-25", WorkoutType.RUNNING).orElseThrow();
+        assertEquals(0, oldRollup.getWorkoutCount());
+        assertEquals(0, oldRollup.getTotalDuration());
+        assertEquals(1, newRollup.getWorkoutCount());
+        assertEquals(45, newRollup.getTotalDuration());
+        assertEquals(300, newRollup.getTotalCalories());
+    }
+
+    @Test
+    public void workoutUpdatedTest_sameDayAndType_shouldApplyDifference() {
+        //only the numbers changed so the same row should be adjusted
+        WorkoutSnapshot before = snapshot("2024-06-24", WorkoutType.RUNNING, 30, 200);
+        WorkoutSnapshot after = snapshot("2024-06-24", WorkoutType.RUNNING, 40, 150);
+        workoutRollupService.workoutCreated(before);
+
+        workoutRollupService.workoutUpdated(before, after);
+
+        WorkoutDailyRollup rollup = findRollup("2024-06-24", WorkoutType.RUNNING).orElseThrow();
+        assertEquals(1, rollup.getWorkoutCount());
+        assertEquals(40, rollup.getTotalDuration());
+        assertEquals(150, rollup.getTotalCalories());
+    }
+
+    @Test
+    public void workoutsCreatedTest_Normal_Success() {
+        //bulk created workouts are summed per row before writing
+        workoutRollupService.workoutsCreated(List.of(
+                snapshot("2024-06-24", WorkoutType.RUNNING, 30, 200),
+                snapshot("2024-06-24", WorkoutType.RUNNING, 10, 50),
+                snapshot("2024-06-24", WorkoutType.SWIMMING, 20, 100)));
+
+        assertEquals(2, findRollup("2024-06-24", WorkoutType.RUNNING).orElseThrow().getWorkoutCount());
+        assertEquals(1, findRollup("2024-06-24", WorkoutType.SWIMMING).orElseThrow().getWorkoutCount());
+    }
+
+    /**
+     * Snapshot of a workout owned by our test user
+     */
+    private WorkoutSnapshot snapshot(String date, WorkoutType workoutType, int duration, int calories) {
+        return new WorkoutSnapshot(null, user.getId(), LocalDate.parse(date), workoutType, duration, calories);
+    }
+
+    /**
+     * Read a rollup row straight from the database, skipping anything cached in the persistence context
+     */
+    private Optional<WorkoutDailyRollup> findRollup(String date, WorkoutType workoutType) {
+        entityManager.flush();
+        entityManager.clear();
+        return workoutRollupRepository.findById(new WorkoutRollupId(user.getId(), LocalDate.parse(date), workoutType));
+    }
+}
@@ -0,0 +1,108 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutSearchHit;
+import com.eguglielmelli.dtos.WorkoutSearchPage;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.repositories.InMemoryWorkoutSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against H2, so the in memory index (app.search.mode=memory in the test properties) does the matching
+ */
+@DataJpaTest
+@Import({WorkoutSearchService.class, InMemoryWorkoutSearchIndex.class})
+public class WorkoutSearchServiceTest {
+
+    @Autowired
+    private WorkoutSearchService workoutSearchService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Test User", "test_user", "password", "test@gmail.com",
+                26, BigDecimal.valueOf(150.0), BigDecimal.valueOf(75.0), false, false);
+        entityManager.persist(user);
+    }
+
+    @Test
+    public void searchWorkoutsTest_nameMatch_shouldRankAboveNotesMatch() {
+        Workout inNotes = saveWorkout(user, "Morning run", "did hill repeats on the bridge");
+        Workout inName = saveWorkout(user, "Hill repeats", "felt good");
+        saveWorkout(user, "Hill walk", "easy day");
+
+        WorkoutSearchPage page = workoutSearchService.searchWorkouts(user.getId(), "Hill Repeats", null, 20);
+
+        //every word has to match, so the hill walk is left out
+        assertEquals(List.of(inName.getId(), inNotes.getId()), ids(page.getHits()));
+        assertTrue(page.getHits().get(0).getRank() > page.getHits().get(1).getRank());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void searchWorkoutsTest_cursor_shouldContinueWithNextPage() {
+        //equal ranks are ordered by id so nothing is skipped or repeated between pages
+        Workout first = saveWorkout(user, "Tempo run", null);
+        Workout second = saveWorkout(user, "Tempo run", null);
+        Workout third = saveWorkout(user, "Tempo run", null);
+
+        WorkoutSearchPage firstPage = workoutSearchService.searchWorkouts(user.getId(), "tempo", null, 2);
+        WorkoutSearchPage secondPage = workoutSearchService.searchWorkouts(user.getId(), "tempo",
+                firstPage.getNextCursor(), 2);
+
+        assertEquals(List.of(third.getId(), second.getId()), ids(firstPage.getHits()));
+        assertEquals(List.of(first.getId()), ids(secondPage.getHits()));
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    public void searchWorkoutsTest_otherUsersWorkouts_shouldNotBeFound() {
+        User otherUser = new User("Other User", "other_user", "password", "other@gmail.com",
+                26, BigDecimal.valueOf(150.0), BigDecimal.valueOf(75.0), false, false);
+        entityManager.persist(otherUser);
+        saveWorkout(otherUser, "Hill repeats", null);
+
+        assertTrue(workoutSearchService.searchWorkouts(user.getId(), "hill", null, 20).getHits().isEmpty());
+    }
+
+    @Test
+    public void searchWorkoutsTest_emptyQuery_shouldThrowException() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> workoutSearchService.searchWorkouts(user.getId(), "  ", null, 20));
+
+        assertEquals("Search query must not be empty or null", exception.getMessage());
+    }
+
+    @Test
+    public void searchWorkoutsTest_userNotFound_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> workoutSearchService.searchWorkouts(user.getId() + 1000, "hill", null, 20));
+    }
+
+    private Workout saveWorkout(User owner, String name, String notes) {
+        Workout workout = new Workout(name, notes, 30, LocalDate.parse("2024-06-24"), 200, WorkoutType.RUNNING, owner);
+        entityManager.persist(workout);
+        return workout;
+    }
+
+    private List<Long> ids(List<WorkoutSearchHit> hits) {
+        return hits.stream().map(WorkoutSearchHit::getId).collect(Collectors.toList());
+    }
+}
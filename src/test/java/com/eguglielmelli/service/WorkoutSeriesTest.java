@@ -0,0 +1,175 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.dtos.WorkoutStats;
+import com.eguglielmelli.entities.WorkoutType;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkoutSeriesTest {
+
+    @Test
+    public void statsTest_Normal_Success() {
+        //2024-06-23 is a sunday, so the first workout is in an earlier week than the other two
+        WorkoutSeries series = WorkoutSeries.builder()
+                .add(LocalDate.parse("2024-06-23"), WorkoutType.RUNNING, 30, 300)
+                .add(LocalDate.parse("2024-06-24"), WorkoutType.CYCLING, 60, 500)
+                .add(LocalDate.parse("2024-06-26"), WorkoutType.RUNNING, 20, 200)
+                .build();
+
+        WorkoutStats stats = series.stats(LocalDate.parse("2024-06-01"), LocalDate.parse("2024-06-30"));
+
+        assertEquals(3, stats.getCount());
+        assertEquals(110, stats.getTotalDuration());
+        //types come out ordered by name like the rollup query
+        assertEquals(WorkoutType.CYCLING, stats.getByType().get(0).getWorkoutType());
+        assertEquals(WorkoutType.RUNNING, stats.getByType().get(1).getWorkoutType());
+        assertEquals(250.0, stats.getByType().get(1).getAverageCalories());
+        assertEquals(2, stats.getByWeek().size());
+        assertEquals(LocalDate.parse("2024-06-17"), stats.getByWeek().get(0).getStartDate());
+        assertEquals(LocalDate.parse("2024-06-24"), stats.getByWeek().get(1).getStartDate());
+        assertEquals(80, stats.getByWeek().get(1).getTotalDuration());
+    }
+
+    @Test
+    public void statsTest_dateRange_shouldIncludeBothEnds() {
+        WorkoutSeries series = WorkoutSeries.builder()
+                .add(LocalDate.parse("2024-06-01"), WorkoutType.RUNNING, 10, 100)
+                .add(LocalDate.parse("2024-06-02"), WorkoutType.RUNNING, 20, 100)
+                .add(LocalDate.parse("2024-06-02"), WorkoutType.RUNNING, 30, 100)
+                .add(LocalDate.parse("2024-06-03"), WorkoutType.RUNNING, 40, 100)
+                .add(LocalDate.parse("2024-06-04"), WorkoutType.RUNNING, 50, 100)
+                .build();
+
+        WorkoutStats stats = series.stats(LocalDate.parse("2024-06-02"), LocalDate.parse("2024-06-03"));
+
+        assertEquals(3, stats.getCount());
+        assertEquals(90, stats.getTotalDuration());
+    }
+
+    @Test
+    public void statsTest_noWorkoutsInRange_shouldReturnEmptyStats() {
+        WorkoutSeries series = WorkoutSeries.builder()
+                .add(LocalDate.parse("2024-06-01"), WorkoutType.RUNNING, 10, 100)
+                .build();
+
+        WorkoutStats stats = series.stats(LocalDate.parse("2024-07-01"), LocalDate.parse("2024-07-31"));
+
+        assertEquals(0, stats.getCount());
+        assertTrue(stats.getByType().isEmpty());
+        assertTrue(stats.getByWeek().isEmpty());
+    }
+
+    @Test
+    public void addTest_outOfOrder_shouldThrowException() {
+        WorkoutSeries.Builder builder = WorkoutSeries.builder()
+                .add(LocalDate.parse("2024-06-02"), WorkoutType.RUNNING, 10, 100);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.add(LocalDate.parse("2024-06-01"), WorkoutType.RUNNING, 10, 100));
+    }
+
+    @Test
+    public void buildTest_manyWorkouts_shouldTrimArrays() {
+        //the arrays grow while adding and are trimmed to the exact size at the end
+        WorkoutSeries.Builder builder = WorkoutSeries.builder();
+        LocalDate day = LocalDate.parse("2020-01-01");
+        for(int i = 0; i < 1000; i++) {
+            builder.add(day.plusDays(i), WorkoutType.values()[i % WorkoutType.values().length], 30, 200);
+        }
+        WorkoutSeries series = builder.build();
+
+        assertEquals(1000, series.size());
+        assertEquals(13_000, series.sizeInBytes());
+    }
+
+    @Test
+    public void weekStartTest_shouldMatchLocalDate() {
+        //including days before 1970 where the epoch day is negative
+        for(LocalDate day = LocalDate.parse("1969-12-01"); day.isBefore(LocalDate.parse("1970-02-01")); day = day.plusDays(1)) {
+            LocalDate monday = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            assertEquals(monday.toEpochDay(), WorkoutSeries.weekStart((int) day.toEpochDay()));
+        }
+    }
+
+    @Test
+    public void withAddedTest_Normal_Success() {
+        WorkoutSeries series = WorkoutSeries.builder()
+                .add(LocalDate.parse("2024-06-23"), WorkoutType.RUNNING, 30, 300)
+                .add(LocalDate.parse("2024-06-26"), WorkoutType.RUNNING, 20, 200)
+                .build();
+
+        WorkoutSeries updated = series.withAdded(LocalDate.parse("2024-06-24"), WorkoutType.CYCLING, 60, 500);
+
+        //the new workout lands in date order and the original series is left alone
+        assertEquals(2, series.size());
+        assertEquals(3, updated.size());
+        assertEquals(1, updated.firstIndexOnOrAfter((int) LocalDate.parse("2024-06-24").toEpochDay()));
+        assertEquals(110, updated.stats(LocalDate.parse("2024-06-01"), LocalDate.parse("2024-06-30")).getTotalDuration());
+    }
+
+    @Test
+    public void withAddedTest_severalWorkouts_shouldMergeInDateOrder() {
+        WorkoutSeries series = WorkoutSeries.builder()
+                .add(LocalDate.parse("2024-06-23"), WorkoutType.RUNNING, 30, 300)
+                .add(LocalDate.parse("2024-06-26"), WorkoutType.RUNNING, 20, 200)
+                .build();
+
+        //imported workouts come in any order
+        WorkoutSeries updated = series.withAdded(List.of(
+                new WorkoutSnapshot(1L, 1L, LocalDate.parse("2024-06-28"), WorkoutType.SWIMMING, 40, 350),
+                new WorkoutSnapshot(2L, 1L, LocalDate.parse("2024-06-20"), WorkoutType.CYCLING, 60, 500)));
+
+        WorkoutStats stats = updated.stats(LocalDate.parse("2024-06-21"), LocalDate.parse("2024-06-30"));
+        assertEquals(4, updated.size());
+        assertEquals(3, stats.getCount());
+        assertEquals(90, stats.getTotalDuration());
+    }
+
+    @Test
+    public void withRemovedTest_Normal_Success() {
+        WorkoutSeries series = WorkoutSeries.builder()
+                .add(LocalDate.parse("2024-06-24"), WorkoutType.RUNNING, 30, 300)
+                .add(LocalDate.parse("2024-06-24"), WorkoutType.CYCLING, 60, 500)
+                .add(LocalDate.parse("2024-06-26"), WorkoutType.RUNNING, 20, 200)
+                .build();
+
+        WorkoutSeries updated = series.withRemoved(LocalDate.parse("2024-06-24"), WorkoutType.CYCLING, 60, 500);
+
+        assertEquals(3, series.size());
+        assertEquals(2, updated.size());
+        assertEquals(50, updated.stats(LocalDate.parse("2024-06-01"), LocalDate.parse("2024-06-30")).getTotalDuration());
+    }
+
+    @Test
+    public void withRemovedTest_noSuchWorkout_shouldReturnNull() {
+        //the caller falls back to reloading the series
+        WorkoutSeries series = WorkoutSeries.builder()
+                .add(LocalDate.parse("2024-06-24"), WorkoutType.RUNNING, 30, 300)
+                .build();
+
+        assertNull(series.withRemoved(LocalDate.parse("2024-06-24"), WorkoutType.RUNNING, 31, 300));
+        assertNull(series.withRemoved(LocalDate.parse("2024-06-25"), WorkoutType.RUNNING, 30, 300));
+    }
+
+    @Test
+    public void withAddedTest_shouldKeepLoadSequence() {
+        //copies stay as old as the load they came from
+        WorkoutSeries series = WorkoutSeries.builder()
+                .add(LocalDate.parse("2024-06-24"), WorkoutType.RUNNING, 30, 300)
+                .build(7);
+
+        assertEquals(7, series.withAdded(LocalDate.parse("2024-06-25"), WorkoutType.RUNNING, 30, 300).getLoadSequence());
+        assertEquals(7, series.withAdded(List.of(
+                new WorkoutSnapshot(1L, 1L, LocalDate.parse("2024-06-28"), WorkoutType.SWIMMING, 40, 350)))
+                .getLoadSequence());
+        assertEquals(7, series.withRemoved(LocalDate.parse("2024-06-24"), WorkoutType.RUNNING, 30, 300)
+                .getLoadSequence());
+    }
+}
@@ -0,0 +1,172 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.config.CacheConfig;
+import com.eguglielmelli.config.SecurityConfig;
+import com.eguglielmelli.dtos.UserPatchDto;
+import com.eguglielmelli.dtos.WorkoutUpdateDto;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutType;
+import com.eguglielmelli.repositories.UserRepository;
+import com.eguglielmelli.repositories.WorkoutRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the caches in front of WorkoutService, cache writes and evictions only happen once the
+ * service transaction commits so these tests run without the usual test transaction
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({CacheConfig.class, SecurityConfig.class, WorkoutService.class, WorkoutRollupService.class, UserService.class})
+public class WorkoutServiceCacheTest {
+
+    @Autowired
+    private WorkoutService workoutService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WorkoutRepository workoutRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private User user;
+
+    private Workout workout;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("Test User", "test_user", "password", "test@gmail.com",
+                26, BigDecimal.valueOf(150.0), BigDecimal.valueOf(75.0), false, false));
+        workout = workoutRepository.save(new Workout("Workout 1", "Example notes", 30,
+                LocalDate.parse("2024-06-21"), 100, WorkoutType.RUNNING, user));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        //soft deleted rows are hidden from the repositories, clear the tables directly
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "workout_daily_rollups", "workouts", "users");
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    public void getWorkoutInfo_calledTwice_secondCallServedFromCache() {
+        workoutService.getWorkoutInfo(workout.getId());
+        Workout cachedWorkout = workoutService.getWorkoutInfo(workout.getId());
+
+        //only the first call reaches the database
+        assertEquals("Workout 1", cachedWorkout.getName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, nativeCache(CacheConfig.WORKOUTS_CACHE).stats().hitCount());
+    }
+
+    @Test
+    public void getWorkoutInfo_afterUpdate_returnsUpdatedWorkout() {
+        workoutService.getWorkoutInfo(workout.getId());
+
+        WorkoutUpdateDto workoutUpdateDto = new WorkoutUpdateDto();
+        workoutUpdateDto.setName("Updated workout");
+        workoutService.updateWorkoutInfo(workout.getId(), workoutUpdateDto, null);
+
+        //the update evicted the cached workout so it is read again
+        assertEquals("Updated workout", workoutService.getWorkoutInfo(workout.getId()).getName());
+    }
+
+    @Test
+    public void getWorkoutInfo_afterDelete_throwsException() {
+        workoutService.getWorkoutInfo(workout.getId());
+        workoutService.deleteWorkout(user.getId(), workout.getId());
+
+        assertThrows(IllegalArgumentException.class, () -> workoutService.getWorkoutInfo(workout.getId()));
+    }
+
+    @Test
+    public void getWorkoutInfo_afterUserPatch_returnsUpdatedUser() {
+        workoutService.getWorkoutInfo(workout.getId());
+
+        UserPatchDto userPatchDto = new UserPatchDto();
+        userPatchDto.setEmail("renamed@gmail.com");
+        userService.patchUser(user.getId(), userPatchDto, null);
+
+        //the cached workout carried the old user so the user write cleared it
+        assertEquals("renamed@gmail.com", workoutService.getWorkoutInfo(workout.getId()).getUser().getEmail());
+    }
+
+    @Test
+    public void getUserInfo_afterDelete_returnsEmpty() {
+        userService.getUserInfo(user.getId());
+        userService.deleteUser(user.getId());
+
+        //a deleted user is missing, not an error, so the controller can answer 404
+        assertTrue(userService.getUserVersion(user.getId()).isEmpty());
+        assertTrue(userService.getUserInfo(user.getId()).isEmpty());
+    }
+
+    @Test
+    public void getUserInfo_missingUser_isNotCached() {
+        assertTrue(userService.getUserInfo(user.getId() + 1000).isEmpty());
+        assertTrue(userService.getUserInfo(user.getId() + 1000).isEmpty());
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void existsById_existingUser_isCached() {
+        assertTrue(userRepository.existsById(user.getId()));
+        assertTrue(userRepository.existsById(user.getId()));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void existsById_missingUser_isNotCached() {
+        assertFalse(userRepository.existsById(user.getId() + 1000));
+        assertFalse(userRepository.existsById(user.getId() + 1000));
+
+        //negative answers always go to the database so a new user is seen right away
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> nativeCache(String name) {
+        return (Cache<Object, Object>) cacheManager.getCache(name).getNativeCache();
+    }
+}
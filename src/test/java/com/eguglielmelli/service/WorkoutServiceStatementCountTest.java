@@ -0,0 +1,153 @@
+package com.eguglielmelli.service;
+
+import com.eguglielmelli.dtos.WorkoutDto;
+import com.eguglielmelli.dtos.WorkoutPatchDto;
+import com.eguglielmelli.dtos.WorkoutUpdateDto;
+import com.eguglielmelli.entities.User;
+import com.eguglielmelli.entities.Workout;
+import com.eguglielmelli.entities.WorkoutDailyRollup;
+import com.eguglielmelli.entities.WorkoutRollupId;
+import com.eguglielmelli.entities.WorkoutType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs WorkoutService against the test database and counts the SQL statements each method sends
+ * Catches fetch plan regressions, like the user being loaded again on paths that never read it
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({WorkoutService.class, WorkoutRollupService.class})
+public class WorkoutServiceStatementCountTest {
+
+    @Autowired
+    private WorkoutService workoutService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private User user;
+
+    private Workout workout;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Test User", "test_user", "password", "test@gmail.com",
+                26, BigDecimal.valueOf(150.0), BigDecimal.valueOf(75.0), false, false);
+        entityManager.persist(user);
+        workout = new Workout("Workout 1", "Example notes", 30, LocalDate.parse("2024-06-21"),
+                100, WorkoutType.RUNNING, user);
+        entityManager.persist(workout);
+        entityManager.persist(new WorkoutDailyRollup(
+                new WorkoutRollupId(user.getId(), workout.getDate(), workout.getWorkoutType()), 1, 30, 100));
+        entityManager.flush();
+        //start every test with an empty persistence context so nothing is served from it
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void getWorkoutInfo_shouldLoadWorkoutAndUserInOneStatement() {
+        Workout foundWorkout = workoutService.getWorkoutInfo(workout.getId());
+
+        assertEquals("Test User", foundWorkout.getUser().getFullName());
+        assertEquals(1, statementCount());
+    }
+
+    @Test
+    public void updateWorkoutInfo_shouldNotLoadUser() {
+        WorkoutUpdateDto workoutUpdateDto = new WorkoutUpdateDto();
+        workoutUpdateDto.setName("Updated workout");
+
+        workoutService.updateWorkoutInfo(workout.getId(), workoutUpdateDto, null);
+
+        //only the workout is loaded, what reaches the rollup on this path is not asserted here
+        entityManager.flush();
+        assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void patchWorkout_onlyName_shouldSelectAndUpdate() {
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setName("Updated workout");
+
+        workoutService.patchWorkout(user.getId(), workout.getId(), workoutPatchDto, null);
+
+        //select the workout and update the name column, the rollup is unaffected by a rename
+        assertEquals(2, statementCount());
+    }
+
+    @Test
+    public void patchWorkout_sameValues_shouldNotUpdate() {
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setName(workout.getName());
+
+        workoutService.patchWorkout(user.getId(), workout.getId(), workoutPatchDto, null);
+
+        //nothing changed so the entity is not dirty and only the select is sent
+        assertEquals(1, statementCount());
+    }
+
+    @Test
+    public void deleteWorkout_shouldNotLoadUser() {
+        workoutService.deleteWorkout(user.getId(), workout.getId());
+
+        //read the fields the rollup needs, delete by id and take it out of its rollup
+        //on Postgres the first two are one DELETE ... RETURNING, the tests run on H2
+        assertEquals(3, statementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void createWorkout_shouldCheckUserAndInsert() {
+        WorkoutDto workoutDto = new WorkoutDto();
+        workoutDto.setName("Workout 2");
+        workoutDto.setDate(LocalDate.parse("2024-06-22"));
+        workoutDto.setDurationInMinutes(40);
+        workoutDto.setCaloriesBurned(200);
+        workoutDto.setWorkoutType(WorkoutType.CYCLING);
+        workoutDto.setUser(user);
+
+        workoutService.createWorkout(workoutDto);
+
+        //user existence check and the insert, the id comes from the sequence block allocated in setUp
+        //new day and type, the rollup row is created by a single upsert
+        assertEquals(3, statementCount());
+    }
+
+    @Test
+    public void getUsersWorkoutsPage_shouldNotLoadWorkoutEntities() {
+        workoutService.getUsersWorkouts(user.getId(), null, null, null, null, 20);
+
+        //user existence check and the page query, the existence check is a count so nothing gets loaded
+        assertEquals(2, statementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * Flush pending writes so they are counted, then return how many statements were prepared
+     * @return number of statements sent since the test started
+     */
+    private long statementCount() {
+        entityManager.flush();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -1,7 +1,16 @@
 package com.eguglielmelli.service;
 
 
+import com.eguglielmelli.dtos.WorkoutCursor;
 import com.eguglielmelli.dtos.WorkoutDto;
+import com.eguglielmelli.dtos.WorkoutImportResult;
+import com.eguglielmelli.dtos.WorkoutPage;
+import com.eguglielmelli.dtos.WorkoutPatchDto;
+import com.eguglielmelli.dtos.WorkoutPeriodStats;
+import com.eguglielmelli.dtos.WorkoutSnapshot;
+import com.eguglielmelli.dtos.WorkoutStats;
+import com.eguglielmelli.dtos.WorkoutSummary;
+import com.eguglielmelli.dtos.WorkoutTypeStats;
 import com.eguglielmelli.dtos.WorkoutUpdateDto;
 import com.eguglielmelli.entities.User;
 import com.eguglielmelli.entities.Workout;
@@ -14,13 +23,18 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
+import javax.persistence.EntityManager;
 import javax.validation.*;
 import java.time.LocalDate;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 public class WorkoutServiceTest {
@@ -31,6 +45,15 @@ public class WorkoutServiceTest {
     @Mock
     UserRepository userRepository;
 
+    @Mock
+    WorkoutRollupService workoutRollupService;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    EntityManager entityManager;
+
     @InjectMocks
     WorkoutService workoutService;
 
@@ -52,7 +75,7 @@ public class WorkoutServiceTest {
 
         Workout workout = new Workout("Workout 1","Example Notes for a given workout",21,LocalDate.parse("2024-06-21"),100, WorkoutType.RUNNING,createUserForWorkout());
         when(workoutRepository.save(any(Workout.class))).thenReturn(workout);
-        when(userRepository.findById(createWorkoutDto().getUser().getId())).thenReturn(Optional.ofNullable(workoutDto.getUser()));
+        when(userRepository.existsById(createWorkoutDto().getUser().getId())).thenReturn(true);
 
         Workout createdWorkout = workoutService.createWorkout(workoutDto);
 
@@ -65,7 +88,10 @@ public class WorkoutServiceTest {
         assertNotNull(createdWorkout.getUser());
         assertEquals("Test User", createdWorkout.getUser().getFullName());
         verify(workoutRepository, times(1)).save(any(Workout.class));
-        verify(userRepository, times(1)).findById(createdWorkout.getUser().getId());
+        verify(userRepository, times(1)).existsById(createdWorkout.getUser().getId());
+        verify(workoutRollupService, times(1)).workoutCreated(any(WorkoutSnapshot.class));
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof WorkoutChangedEvent && ((WorkoutChangedEvent) event).getBefore() == null));
     }
 
     @Test
@@ -110,6 +136,20 @@ public class WorkoutServiceTest {
         assertEquals("Date of workout must not be null", exception.getMessage());
     }
 
+    @Test
+    public void createWorkoutTest_dateBefore1900_shouldThrowException() {
+        //listings and stats without a from date start at 1900-01-01, an earlier workout would never show up
+        WorkoutDto workoutDto = createWorkoutDto();
+        workoutDto.setDate(LocalDate.of(1899, 12, 31));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            workoutService.createWorkout(workoutDto);
+        });
+
+        assertEquals("Date of workout must be between 1900-01-01 and 9999-12-31", exception.getMessage());
+        verify(workoutRepository, never()).save(any(Workout.class));
+    }
+
     @Test
     public void createWorkoutTest_workoutTypeIsNull_shouldThrowException() {
         //workout type needs to be specified by the user or else this method should throw an exception
@@ -145,7 +185,7 @@ public class WorkoutServiceTest {
         workoutDto.setCaloriesBurned(-100);
 
         //need to return a user due to logic where we check user id before checking calories burned
-        when(userRepository.findById(workoutDto.getUser().getId())).thenReturn(Optional.of(workoutDto.getUser()));
+        when(userRepository.existsById(workoutDto.getUser().getId())).thenReturn(true);
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             workoutService.createWorkout(workoutDto);
@@ -161,7 +201,7 @@ public class WorkoutServiceTest {
         workoutDto.setCaloriesBurned(-100);
 
         //need to return empty so we simulate a workout not having a valid user id associated
-        when(userRepository.findById(workoutDto.getUser().getId())).thenReturn(Optional.empty());
+        when(userRepository.existsById(workoutDto.getUser().getId())).thenReturn(false);
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             workoutService.createWorkout(workoutDto);
@@ -170,18 +210,94 @@ public class WorkoutServiceTest {
         assertEquals("Cannot validate workout data because user with that id is not found", exception.getMessage());
     }
 
+    @Test
+    public void importWorkoutsTest_someInvalid_shouldSaveValidAndReportErrors() {
+        //second workout has no name, the other two should still be saved
+        //and the user should only be checked once for the whole import
+        User user = createUserForWorkout();
+        WorkoutDto invalidDto = createWorkoutDto();
+        invalidDto.setName(null);
+        List<WorkoutDto> workoutDtos = List.of(createWorkoutDto(), invalidDto, createWorkoutDto());
+
+        when(userRepository.existsById(user.getId())).thenReturn(true);
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
+
+        WorkoutImportResult result = workoutService.importWorkouts(user.getId(), workoutDtos);
+
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getIndex());
+        assertEquals("Workout name must not be null or empty", result.getErrors().get(0).getMessage());
+        verify(userRepository, times(1)).existsById(user.getId());
+        verify(userRepository, never()).findById(anyLong());
+        verify(workoutRepository, times(1)).saveAll(argThat((Iterable<Workout> workouts) -> ((List<Workout>) workouts).size() == 2));
+        verify(workoutRollupService, times(1)).workoutsCreated(argThat(snapshots -> snapshots.size() == 2));
+        //listeners get the whole import in one event
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof WorkoutsImportedEvent && ((WorkoutsImportedEvent) event).getCreated().size() == 2));
+    }
+
+    @Test
+    public void importWorkoutsTest_moreThanOneBatch_shouldFlushAndClearEveryBatch() {
+        User user = createUserForWorkout();
+        List<WorkoutDto> workoutDtos = new ArrayList<>();
+        for(int i = 0; i < WorkoutService.IMPORT_BATCH_SIZE * 2 + 1; i++) {
+            workoutDtos.add(createWorkoutDto());
+        }
+        when(userRepository.existsById(user.getId())).thenReturn(true);
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
+
+        WorkoutImportResult result = workoutService.importWorkouts(user.getId(), workoutDtos);
+
+        assertEquals(WorkoutService.IMPORT_BATCH_SIZE * 2 + 1, result.getCreated());
+        verify(workoutRepository, times(3)).saveAll(any());
+        verify(entityManager, times(3)).flush();
+        verify(entityManager, times(3)).clear();
+        verify(eventPublisher, times(1)).publishEvent(any(WorkoutsImportedEvent.class));
+    }
+
+    @Test
+    public void importWorkoutsTest_userNotFound_shouldThrowException() {
+        //nothing should be saved if the owning user does not exist
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            workoutService.importWorkouts(1L, List.of(createWorkoutDto()));
+        });
+
+        assertEquals("User with that id is not found", exception.getMessage());
+        verify(workoutRepository, never()).saveAll(any());
+    }
+
+    @Test
+    public void importWorkoutsTest_emptyList_shouldThrowException() {
+        //empty imports are rejected before touching the database
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            workoutService.importWorkouts(1L, new ArrayList<>());
+        });
+
+        assertEquals("Workouts to import must not be null or empty", exception.getMessage());
+        verify(userRepository, never()).existsById(anyLong());
+    }
+
     @Test
     public void deleteWorkoutTest_Normal_Success() {
         //simple case, should easily be deleted when we call our delete method
         Workout sampleWorkout = createSampleWorkout();
 
-        when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.of(sampleWorkout));
+        Long userId = sampleWorkout.getUser().getId();
+
+        when(workoutRepository.deleteByIdAndUserIdReturningSnapshot(sampleWorkout.getId(), userId))
+                .thenReturn(Optional.of(WorkoutSnapshot.of(sampleWorkout)));
 
-        boolean deleted = workoutService.deleteWorkout(sampleWorkout.getId());
+        boolean deleted = workoutService.deleteWorkout(userId, sampleWorkout.getId());
 
         assertTrue(deleted);
-        verify(workoutRepository, times(1)).findById(sampleWorkout.getId());
-        verify(workoutRepository, times(1)).delete(sampleWorkout);
+        verify(workoutRepository, times(1)).deleteByIdAndUserIdReturningSnapshot(sampleWorkout.getId(), userId);
+        verify(workoutRepository, never()).findById(anyLong());
+        verify(workoutRollupService, times(1)).workoutDeleted(any(WorkoutSnapshot.class));
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof WorkoutChangedEvent && ((WorkoutChangedEvent) event).getAfter() == null));
     }
 
     @Test
@@ -190,15 +306,17 @@ public class WorkoutServiceTest {
         //we need to throw an IllegalArgumentException
         Workout sampleWorkout = createSampleWorkout();
 
-        when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.empty());
+        Long userId = sampleWorkout.getUser().getId();
+
+        when(workoutRepository.deleteByIdAndUserIdReturningSnapshot(sampleWorkout.getId(), userId))
+                .thenReturn(Optional.empty());
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-           workoutService.deleteWorkout(sampleWorkout.getId());
+           workoutService.deleteWorkout(userId, sampleWorkout.getId());
         });
 
         assertEquals("Workout with that id was not found", exception.getMessage());
-        verify(workoutRepository, times(1)).findById(sampleWorkout.getId());
-        verify(workoutRepository, never()).delete(sampleWorkout);
+        verify(workoutRollupService, never()).workoutDeleted(any(WorkoutSnapshot.class));
     }
 
     @Test
@@ -214,14 +332,177 @@ public class WorkoutServiceTest {
 
         when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.of(sampleWorkout));
 
-        boolean result = workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto);
+        boolean result = workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto, null);
 
         assertTrue(result);
         assertEquals(WorkoutType.RUNNING, sampleWorkout.getWorkoutType());
         assertEquals("Updated workout", sampleWorkout.getName());
         assertEquals(10000, sampleWorkout.getCaloriesBurned());
         verify(workoutRepository, times(1)).findById(sampleWorkout.getId());
-        verify(workoutRepository, times(1)).save(sampleWorkout);
+        verify(workoutRepository, never()).save(any(Workout.class));
+    }
+
+    @Test
+    public void updateWorkoutInfoTest_dateAndType_shouldMoveRollup() {
+        //the rollup needs both the old and the new values to move the workout between days/types
+        Workout sampleWorkout = createSampleWorkout();
+
+        WorkoutUpdateDto workoutUpdateDto = new WorkoutUpdateDto();
+        workoutUpdateDto.setWorkoutType(WorkoutType.CYCLING);
+        workoutUpdateDto.setDate(LocalDate.parse("2024-06-22"));
+        workoutUpdateDto.setCaloriesBurned(100);
+
+        when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.of(sampleWorkout));
+
+        workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto, null);
+
+        verify(workoutRollupService, times(1)).workoutUpdated(
+                argThat(before -> before.getWorkoutType() == WorkoutType.RUNNING
+                        && before.getDate().equals(LocalDate.parse("2024-06-21"))),
+                argThat(after -> after.getWorkoutType() == WorkoutType.CYCLING
+                        && after.getDate().equals(LocalDate.parse("2024-06-22"))));
+    }
+
+    @Test
+    public void patchWorkoutTest_onlyNameIncluded_Normal_Success() {
+        //only the name is sent, the rest of the workout must stay as it was
+        Workout sampleWorkout = createSampleWorkout();
+
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setName("Renamed workout");
+
+        when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.of(sampleWorkout));
+
+        boolean result = workoutService.patchWorkout(1L, sampleWorkout.getId(), workoutPatchDto, null);
+
+        assertTrue(result);
+        assertEquals("Renamed workout", sampleWorkout.getName());
+        assertEquals("Example Notes for a given workout", sampleWorkout.getNotes());
+        assertEquals(21, sampleWorkout.getDurationInMinutes());
+        assertEquals(100, sampleWorkout.getCaloriesBurned());
+        verify(workoutRepository, never()).save(any(Workout.class));
+        verify(workoutRollupService, times(1)).workoutUpdated(any(WorkoutSnapshot.class), any(WorkoutSnapshot.class));
+    }
+
+    @Test
+    public void patchWorkoutTest_zeroCalories_shouldBeApplied() {
+        //a zero is a real value in a patch, only a missing field is ignored
+        Workout sampleWorkout = createSampleWorkout();
+
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setCaloriesBurned(0);
+
+        when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.of(sampleWorkout));
+
+        workoutService.patchWorkout(1L, sampleWorkout.getId(), workoutPatchDto, null);
+
+        assertEquals(0, sampleWorkout.getCaloriesBurned());
+    }
+
+    @Test
+    public void patchWorkoutTest_sameValues_shouldNotTouchRollup() {
+        //values equal to the current ones are not a change, nothing should be written
+        Workout sampleWorkout = createSampleWorkout();
+
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setName(sampleWorkout.getName());
+        workoutPatchDto.setDurationInMinutes(sampleWorkout.getDurationInMinutes());
+
+        when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.of(sampleWorkout));
+
+        boolean result = workoutService.patchWorkout(1L, sampleWorkout.getId(), workoutPatchDto, null);
+
+        assertTrue(result);
+        verify(workoutRollupService, never()).workoutUpdated(any(WorkoutSnapshot.class), any(WorkoutSnapshot.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    public void patchWorkoutTest_workoutOfAnotherUser_shouldReturnFalse() {
+        Workout sampleWorkout = createSampleWorkout();
+
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setName("Renamed workout");
+
+        when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.of(sampleWorkout));
+
+        boolean result = workoutService.patchWorkout(2L, sampleWorkout.getId(), workoutPatchDto, null);
+
+        assertFalse(result);
+        assertEquals("Workout 1", sampleWorkout.getName());
+    }
+
+    @Test
+    public void patchWorkoutTest_negativeDuration_shouldThrowException() {
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setDurationInMinutes(-1);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            workoutService.patchWorkout(1L, 1L, workoutPatchDto, null);
+        });
+
+        assertEquals("Duration of workout must be greater than or equal to 0", exception.getMessage());
+        verify(workoutRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void patchWorkoutTest_dateBefore1900_shouldThrowException() {
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setDate(LocalDate.of(1850, 1, 1));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            workoutService.patchWorkout(1L, 1L, workoutPatchDto, null);
+        });
+
+        assertEquals("Date of workout must be between 1900-01-01 and 9999-12-31", exception.getMessage());
+        verify(workoutRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void updateWorkoutInfoTest_dateBefore1900_shouldThrowException() {
+        WorkoutUpdateDto workoutUpdateDto = new WorkoutUpdateDto();
+        workoutUpdateDto.setDate(LocalDate.of(1850, 1, 1));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            workoutService.updateWorkoutInfo(1L, workoutUpdateDto, null);
+        });
+
+        assertEquals("Date of workout must be between 1900-01-01 and 9999-12-31", exception.getMessage());
+        verify(workoutRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void updateWorkoutInfoTest_staleVersion_shouldThrowException() {
+        //the client read version 1 but another device already updated the workout to version 2
+        Workout sampleWorkout = createSampleWorkout();
+        sampleWorkout.setVersion(2L);
+
+        WorkoutUpdateDto workoutUpdateDto = new WorkoutUpdateDto();
+        workoutUpdateDto.setName("Updated workout");
+
+        when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.of(sampleWorkout));
+
+        VersionMismatchException exception = assertThrows(VersionMismatchException.class, () -> {
+            workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto, 1L);
+        });
+
+        assertEquals(2L, exception.getCurrentVersion());
+        assertEquals("Workout 1", sampleWorkout.getName());
+        verify(workoutRollupService, never()).workoutUpdated(any(WorkoutSnapshot.class), any(WorkoutSnapshot.class));
+    }
+
+    @Test
+    public void patchWorkoutTest_currentVersion_shouldUpdate() {
+        Workout sampleWorkout = createSampleWorkout();
+        sampleWorkout.setVersion(2L);
+
+        WorkoutPatchDto workoutPatchDto = new WorkoutPatchDto();
+        workoutPatchDto.setName("Renamed workout");
+
+        when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.of(sampleWorkout));
+
+        assertTrue(workoutService.patchWorkout(1L, sampleWorkout.getId(), workoutPatchDto, 2L));
+        assertEquals("Renamed workout", sampleWorkout.getName());
     }
 
     @Test
@@ -237,13 +518,13 @@ public class WorkoutServiceTest {
         workoutUpdateDto.setName(null);
         workoutUpdateDto.setWorkoutType(WorkoutType.RUNNING);
 
-        boolean result = workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto);
+        boolean result = workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto, null);
         assertTrue(result);
 
         //making sure that workout name hasn't changed, but workout type has
         assertEquals("Workout 1", sampleWorkout.getName());
         assertEquals(WorkoutType.RUNNING, sampleWorkout.getWorkoutType());
-        verify(workoutRepository, times(1)).save(sampleWorkout);
+        verify(workoutRepository, never()).save(any(Workout.class));
     }
     @Test
     public void updateWorkoutInfoTest_dateIsNull_shouldNotUpdate() {
@@ -256,7 +537,7 @@ public class WorkoutServiceTest {
         WorkoutUpdateDto workoutUpdateDto = new WorkoutUpdateDto();
         workoutUpdateDto.setDate(null);
 
-        boolean result = workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto);
+        boolean result = workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto, null);
 
         assertTrue(result);
         assertEquals(LocalDate.parse("2024-06-21"), sampleWorkout.getDate());
@@ -275,7 +556,7 @@ public class WorkoutServiceTest {
         workoutUpdateDto.setDurationInMinutes(-1);
         workoutUpdateDto.setCaloriesBurned(-100);
 
-        boolean result = workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto);
+        boolean result = workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto, null);
 
         assertTrue(result);
         assertEquals(21, sampleWorkout.getDurationInMinutes());
@@ -294,7 +575,7 @@ public class WorkoutServiceTest {
         workoutUpdateDto.setNotes(null);
         workoutUpdateDto.setWorkoutType(null);
 
-        boolean result = workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto);
+        boolean result = workoutService.updateWorkoutInfo(sampleWorkout.getId(), workoutUpdateDto, null);
 
         assertTrue(result);
         assertEquals("Example Notes for a given workout", sampleWorkout.getNotes());
@@ -306,7 +587,7 @@ public class WorkoutServiceTest {
         //basic case just to make sure everything is being returned as intended
         Workout sampleWorkout = createSampleWorkout();
 
-        when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.of(sampleWorkout));
+        when(workoutRepository.findWithUserById(sampleWorkout.getId())).thenReturn(Optional.of(sampleWorkout));
 
         Workout foundWorkout = workoutService.getWorkoutInfo(sampleWorkout.getId());
 
@@ -318,7 +599,7 @@ public class WorkoutServiceTest {
         assertEquals(21, foundWorkout.getDurationInMinutes());
         assertEquals(LocalDate.parse("2024-06-21"), foundWorkout.getDate());
 
-        verify(workoutRepository, times(1)).findById(foundWorkout.getId());
+        verify(workoutRepository, times(1)).findWithUserById(foundWorkout.getId());
 
     }
 
@@ -327,7 +608,7 @@ public class WorkoutServiceTest {
         //case where workout Id is not found, we will throw an IllegalArgumentException
         Workout sampleWorkout = createSampleWorkout();
 
-        when(workoutRepository.findById(sampleWorkout.getId())).thenReturn(Optional.empty());
+        when(workoutRepository.findWithUserById(sampleWorkout.getId())).thenReturn(Optional.empty());
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             workoutService.getWorkoutInfo(sampleWorkout.getId());
@@ -358,8 +639,7 @@ public class WorkoutServiceTest {
 
         //important, return a user with this id
         //and then the list of workouts
-        when(userRepository.findById(user.getId())).thenReturn(
-                Optional.of(user));
+        when(userRepository.existsById(user.getId())).thenReturn(true);
 
         when(workoutRepository.findByUser_id(user.getId())).thenReturn(
                 testListOfWorkouts);
@@ -382,7 +662,7 @@ public class WorkoutServiceTest {
         //because a user with that id does not exist
         User user = createUserForWorkout();
 
-        when(userRepository.findById(user.getId())).thenReturn(Optional.empty());
+        when(userRepository.existsById(user.getId())).thenReturn(false);
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
                     workoutService.getUsersWorkouts(user.getId());
@@ -398,7 +678,7 @@ public class WorkoutServiceTest {
         //we just expect a simple empty list
         User user = createUserForWorkout();
         List<Workout> emptyWorkoutList = new ArrayList<>();
-        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(userRepository.existsById(user.getId())).thenReturn(true);
 
         when(workoutRepository.findByUser_id(user.getId())).
                 thenReturn(emptyWorkoutList);
@@ -406,11 +686,147 @@ public class WorkoutServiceTest {
         List<Workout> resultList = workoutService.getUsersWorkouts(user.getId());
 
         assertEquals(0, resultList.size());
-        verify(userRepository, times(1)).findById(user.getId());
+        verify(userRepository, times(1)).existsById(user.getId());
         verify(workoutRepository, times(1)).findByUser_id(user.getId());
 
     }
 
+    @Test
+    public void getUsersWorkoutsPageTest_moreWorkoutsThanLimit_shouldReturnNextCursor() {
+        //repository hands back one extra workout, so we should only return the limit
+        //and build a cursor from the last workout on the page
+        User user = createUserForWorkout();
+        WorkoutSummary exampleWorkout1 = createSampleSummary(1L, "2024-06-21");
+        WorkoutSummary exampleWorkout2 = createSampleSummary(2L, "2024-06-22");
+        WorkoutSummary exampleWorkout3 = createSampleSummary(3L, "2024-06-23");
+
+        when(userRepository.existsById(user.getId())).thenReturn(true);
+        when(workoutRepository.findPageAfter(eq(user.getId()), any(LocalDate.class), anyLong(), any(LocalDate.class), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(exampleWorkout1, exampleWorkout2, exampleWorkout3)));
+
+        WorkoutPage page = workoutService.getUsersWorkouts(user.getId(), null, null, null, null, 2);
+
+        assertEquals(2, page.getWorkouts().size());
+        assertEquals(exampleWorkout2, page.getWorkouts().get(1));
+        WorkoutCursor nextCursor = WorkoutCursor.decode(page.getNextCursor());
+        assertEquals(LocalDate.parse("2024-06-22"), nextCursor.getDate());
+        assertEquals(2L, nextCursor.getId());
+        verify(workoutRepository, times(1)).findPageAfter(eq(user.getId()), any(LocalDate.class), eq(0L),
+                any(LocalDate.class), eq(PageRequest.of(0, 3)));
+    }
+
+    @Test
+    public void getUsersWorkoutsPageTest_lastPage_shouldNotReturnCursor() {
+        //continuing from a cursor, fewer workouts than the limit means this is the last page
+        User user = createUserForWorkout();
+        WorkoutSummary exampleWorkout = createSampleSummary(8L, "2024-06-21");
+        String cursor = new WorkoutCursor(LocalDate.parse("2024-06-20"), 7L).encode();
+
+        when(userRepository.existsById(user.getId())).thenReturn(true);
+        when(workoutRepository.findPageAfter(eq(user.getId()), eq(LocalDate.parse("2024-06-20")), eq(7L), any(LocalDate.class), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(exampleWorkout)));
+
+        WorkoutPage page = workoutService.getUsersWorkouts(user.getId(), null, null, null, cursor, 20);
+
+        assertEquals(1, page.getWorkouts().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void getUsersWorkoutsPageTest_limitTooLarge_shouldThrowException() {
+        //we cap the page size so one request can't pull a user's whole history
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            workoutService.getUsersWorkouts(1L, null, null, null, null, WorkoutService.MAX_PAGE_SIZE + 1);
+        });
+
+        assertEquals("Page limit must be between 1 and " + WorkoutService.MAX_PAGE_SIZE, exception.getMessage());
+        verify(workoutRepository, never()).findPageAfter(anyLong(), any(LocalDate.class), anyLong(), any(LocalDate.class), any(Pageable.class));
+    }
+
+    @Test
+    public void getUsersWorkoutsPageTest_invalidCursor_shouldThrowException() {
+        //cursor that was not created by us should be rejected
+        User user = createUserForWorkout();
+        when(userRepository.existsById(user.getId())).thenReturn(true);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            workoutService.getUsersWorkouts(user.getId(), null, null, null, "not-a-cursor", 20);
+        });
+
+        assertEquals("Invalid cursor", exception.getMessage());
+    }
+
+    @Test
+    public void getUsersWorkoutsPageTest_typeAndDateRange_shouldUseTypeQuery() {
+        //when a type is given we should go through the type query and start at the from date
+        User user = createUserForWorkout();
+        WorkoutSummary exampleWorkout = createSampleSummary(1L, "2024-06-21");
+        LocalDate from = LocalDate.parse("2024-06-01");
+        LocalDate to = LocalDate.parse("2024-06-30");
+
+        when(userRepository.existsById(user.getId())).thenReturn(true);
+        when(workoutRepository.findPageAfterByType(eq(user.getId()), eq(WorkoutType.RUNNING), eq(from), eq(0L), eq(to), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(exampleWorkout)));
+
+        WorkoutPage page = workoutService.getUsersWorkouts(user.getId(), from, to, WorkoutType.RUNNING, null, 20);
+
+        assertEquals(1, page.getWorkouts().size());
+        verify(workoutRepository, never()).findPageAfter(anyLong(), any(LocalDate.class), anyLong(), any(LocalDate.class), any(Pageable.class));
+    }
+
+    @Test
+    public void getUsersWorkoutsPageTest_fromAfterTo_shouldThrowException() {
+        //an empty date range is almost certainly a client mistake
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            workoutService.getUsersWorkouts(1L, LocalDate.parse("2024-07-01"), LocalDate.parse("2024-06-01"), null, null, 20);
+        });
+
+        assertEquals("From date must not be after to date", exception.getMessage());
+    }
+
+    @Test
+    public void getWorkoutStatsTest_Normal_Success() {
+        //daily rows from the database should be folded into monday based weeks
+        User user = createUserForWorkout();
+        LocalDate from = LocalDate.parse("2024-06-01");
+        LocalDate to = LocalDate.parse("2024-06-30");
+        List<WorkoutTypeStats> typeStats = List.of(
+                new WorkoutTypeStats(WorkoutType.RUNNING, 3L, 90L, 600L, 30.0, 200.0));
+        List<WorkoutPeriodStats> dailyStats = List.of(
+                new WorkoutPeriodStats(LocalDate.parse("2024-06-23"), 1L, 30L, 200L),
+                new WorkoutPeriodStats(LocalDate.parse("2024-06-24"), 1L, 30L, 200L),
+                new WorkoutPeriodStats(LocalDate.parse("2024-06-30"), 1L, 30L, 200L));
+
+        when(userRepository.existsById(user.getId())).thenReturn(true);
+        when(workoutRollupService.getTypeStats(user.getId(), from, to)).thenReturn(typeStats);
+        when(workoutRollupService.getDailyStats(user.getId(), from, to)).thenReturn(dailyStats);
+
+        WorkoutStats stats = workoutService.getWorkoutStats(user.getId(), from, to);
+
+        assertEquals(3, stats.getCount());
+        assertEquals(90, stats.getTotalDuration());
+        assertEquals(600, stats.getTotalCalories());
+        assertEquals(2, stats.getByWeek().size());
+        assertEquals(LocalDate.parse("2024-06-17"), stats.getByWeek().get(0).getStartDate());
+        assertEquals(1, stats.getByWeek().get(0).getCount());
+        assertEquals(LocalDate.parse("2024-06-24"), stats.getByWeek().get(1).getStartDate());
+        assertEquals(2, stats.getByWeek().get(1).getCount());
+        assertEquals(400, stats.getByWeek().get(1).getTotalCalories());
+    }
+
+    @Test
+    public void getWorkoutStatsTest_userNotFound_shouldThrowException() {
+        //no stats for users that don't exist
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            workoutService.getWorkoutStats(1L, null, null);
+        });
+
+        assertEquals("User with that id is not found", exception.getMessage());
+        verify(workoutRollupService, never()).getTypeStats(anyLong(), any(LocalDate.class), any(LocalDate.class));
+    }
+
     /**
      * Helper method to set up a dto for testing createWorkout() specifically
      * @return a created workoutDTO
@@ -467,4 +883,14 @@ public class WorkoutServiceTest {
         return workout;
     }
 
+    /**
+     * Summary row like the ones the paginated repository queries return
+     * @param id of workout
+     * @param date of workout
+     * @return a newly created workout summary
+     */
+    private WorkoutSummary createSampleSummary(Long id, String date) {
+        return new WorkoutSummary(id, "Workout " + id, LocalDate.parse(date), WorkoutType.RUNNING, 21, 100);
+    }
+
 }